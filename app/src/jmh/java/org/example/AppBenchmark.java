@@ -0,0 +1,65 @@
+package org.example;
+
+import com.sun.net.httpserver.Headers;
+import org.example.buffer.Body;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the JDK server front end does per request besides routing: reading a POST body and mapping
+ * the upstream headers for the client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppBenchmark {
+    @Param({"128", "16384"})
+    public int bodyBytes;
+
+    private byte[] body;
+    private final Map<String, String> upstreamHeaders = Map.of(
+            "x-server", "api[http://localhost:8001]",
+            "cache-control", "max-age=60",
+            "etag", "\"33a64df5\"",
+            "date", "Tue, 15 Nov 1994 08:12:31 GMT");
+
+    @Setup
+    public void setUp() {
+        // 80 character lines, like a pretty printed JSON document
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < bodyBytes) {
+            builder.append("x".repeat(79)).append('\n');
+        }
+        body = builder.substring(0, bodyBytes).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Body readBody() throws IOException {
+        return App.readBody(new ByteArrayInputStream(body));
+    }
+
+    @Benchmark
+    public Headers clientHeaders() {
+        Headers headers = new Headers();
+        App.putClientHeaders(upstreamHeaders, headers);
+        return headers;
+    }
+}
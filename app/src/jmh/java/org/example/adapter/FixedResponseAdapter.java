@@ -0,0 +1,99 @@
+package org.example.adapter;
+
+import org.example.buffer.Body;
+import org.example.request.Method;
+import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Answers every call at once with the same response, so benchmarks measure the proxy and not a
+ * network or an instance.
+ */
+public class FixedResponseAdapter implements Adapter {
+    private final String name;
+    private final Response response;
+
+    public FixedResponseAdapter(String name) {
+        this.name = name;
+        this.response = new Response(200, "ok", Map.of("x-server", name));
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Response post(String path, Body body) {
+        return response;
+    }
+
+    @Override
+    public Response get(String path) {
+        return response;
+    }
+
+    @Override
+    public Response delete(String path) {
+        return response;
+    }
+
+    @Override
+    public Response put(String path, Body body) {
+        return response;
+    }
+
+    @Override
+    public Response head(String path) {
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<Response> postAsync(String path, Body body) {
+        return CompletableFuture.completedFuture(response);
+    }
+
+    @Override
+    public CompletableFuture<Response> getAsync(String path) {
+        return CompletableFuture.completedFuture(response);
+    }
+
+    @Override
+    public CompletableFuture<Response> getAsync(String path, Map<String, String> headers) {
+        return CompletableFuture.completedFuture(response);
+    }
+
+    @Override
+    public CompletableFuture<Response> deleteAsync(String path) {
+        return CompletableFuture.completedFuture(response);
+    }
+
+    @Override
+    public CompletableFuture<Response> putAsync(String path, Body body) {
+        return CompletableFuture.completedFuture(response);
+    }
+
+    @Override
+    public CompletableFuture<Response> headAsync(String path) {
+        return CompletableFuture.completedFuture(response);
+    }
+
+    @Override
+    public CompletableFuture<StreamedResponse> streamAsync(Method method, String path, InputStream body) {
+        return CompletableFuture.completedFuture(StreamedResponse.of(response));
+    }
+
+    @Override
+    public boolean healthcheck() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> healthcheckAsync(Method method, String path) {
+        return CompletableFuture.completedFuture(true);
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.adapter;
+
+import org.example.Config;
+import org.example.buffer.Body;
+import org.example.respond.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the upstream request, wrapping the response body and picking the headers the proxy
+ * acts on, against an in-memory client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpAdapterBenchmark {
+    @Param({"128", "16384"})
+    public int bodyBytes;
+
+    private HttpAdapter adapter;
+    private Body body;
+
+    @Setup
+    public void setUp() {
+        body = Body.of("x".repeat(bodyBytes));
+        Map<String, List<String>> headers = Map.of(
+                "content-type", List.of("application/json"),
+                "cache-control", List.of("max-age=60"),
+                "etag", List.of("\"33a64df5\""),
+                "date", List.of("Tue, 15 Nov 1994 08:12:31 GMT"));
+        InMemoryHttpClient client = new InMemoryHttpClient(200, headers, body.toByteArray());
+        adapter = new HttpAdapter("instance-1", "http://localhost:8001", () -> client, Config.withTimeout(1000));
+    }
+
+    @TearDown
+    public void tearDown() {
+        adapter.close();
+    }
+
+    @Benchmark
+    public Response get() {
+        return adapter.getAsync("/items/42?fields=name,price").join();
+    }
+
+    @Benchmark
+    public Response conditionalGet() {
+        return adapter.getAsync("/items/42", Map.of("If-None-Match", "\"33a64df5\"")).join();
+    }
+
+    @Benchmark
+    public Response post() {
+        return adapter.postAsync("/items", body).join();
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.service;
+
+import org.example.adapter.Adapter;
+import org.example.adapter.FixedResponseAdapter;
+import org.example.request.Method;
+import org.example.request.Request;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Adapter selection, failover bookkeeping and timeouts of a round robin group in front of adapters
+ * that answer at once, alone and with 8 threads racing for the same selector and counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+    private final Request request = new RequestImpl(Method.GET, "/items/42", "");
+    private RoutingService routingService;
+
+    @Setup
+    public void setUp() {
+        List<Adapter> adapters = IntStream.range(0, 4)
+                .<Adapter>mapToObj(i -> new FixedResponseAdapter("instance-" + i))
+                .toList();
+        routingService = new RoundRobinRoutingServiceImpl(adapters, 1000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        routingService.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Response forwardRequest() {
+        return routingService.forwardRequest(request);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Response forwardRequestContended() {
+        return routingService.forwardRequest(request);
+    }
+}
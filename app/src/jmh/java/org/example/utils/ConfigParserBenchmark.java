@@ -0,0 +1,40 @@
+package org.example.utils;
+
+import org.example.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigParserBenchmark {
+    private final String[] minimal = {"instance[http://localhost:8001,http://localhost:8002]"};
+    private final String[] full = {
+            "api[http://localhost:8001=3,http://localhost:8002];web[http://localhost:8003]", "0.0.0.0", "8000", "2000",
+            "--routes=/api=api,static.example.com/=web", "--routing-strategy=peak-ewma", "--hash-key=header:X-User",
+            "--health-check-path=/health", "--breaker-failure-rate=25", "--hedge-percentile=95", "--retry-max=2",
+            "--cache-max-bytes=67108864", "--coalesce", "--concurrency-limit", "--rate-limit=100",
+            "--pool-max-connections=64", "--admin-port=9090"};
+
+    @Benchmark
+    public Config parseMinimal() {
+        return ConfigParser.parse(minimal);
+    }
+
+    @Benchmark
+    public Config parseFull() {
+        return ConfigParser.parse(full);
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-process stand-in for {@code simple-service}: {@code GET /} answers "ok" and {@code POST /}
+ * echoes the body. It can be made slow or failing while the test runs.
+ */
+class Backend {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "backend");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long delayMs;
+    private volatile boolean failing;
+
+    private Backend() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    static Backend start() throws IOException {
+        return new Backend();
+    }
+
+    /**
+     * A URL nothing listens on, so connections are refused like those to a crashed instance.
+     */
+    static String deadUrl() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return "http://localhost:" + socket.getLocalPort();
+        }
+    }
+
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    void delay(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    /**
+     * While failing, every request gets a 503.
+     */
+    void failing(boolean failing) {
+        this.failing = failing;
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (delayMs > 0) {
+                TimeUnit.MILLISECONDS.sleep(delayMs);
+            }
+            if (failing) {
+                respond(exchange, 503, "unavailable".getBytes());
+            } else {
+                respond(exchange, 200, "POST".equals(exchange.getRequestMethod()) ? body : "ok".getBytes());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+}
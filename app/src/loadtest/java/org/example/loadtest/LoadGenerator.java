@@ -0,0 +1,72 @@
+package org.example.loadtest;
+
+import org.example.metrics.LatencyHistogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a constant rate whether or not earlier ones were answered (an open loop), the
+ * way independent clients do. Latency is measured from when a request was due, not from when it
+ * went out, so a stall that holds back the requests behind it is charged to all of them instead
+ * of hiding as a few slow samples (coordinated omission).
+ */
+class LoadGenerator {
+    private final HttpClient client;
+    private final HttpRequest request;
+    private final int ratePerSecond;
+
+    LoadGenerator(HttpClient client, URI target, int ratePerSecond, Duration timeout) {
+        this.client = client;
+        this.request = HttpRequest.newBuilder(target).timeout(timeout).GET().build();
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    record Result(long sent, long ok, long serverErrors, long failed, long elapsedNanos,
+                  LatencyHistogram corrected, LatencyHistogram uncorrected) {
+        double throughput() {
+            return (ok + serverErrors) * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+    }
+
+    Result run(Duration duration) {
+        LatencyHistogram corrected = new LatencyHistogram();
+        LatencyHistogram uncorrected = new LatencyHistogram();
+        LongAdder ok = new LongAdder();
+        LongAdder serverErrors = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long count = duration.toNanos() / intervalNanos;
+        CompletableFuture<?>[] responses = new CompletableFuture[(int) count];
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            long due = start + i * intervalNanos;
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long sent = System.nanoTime();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                long now = System.nanoTime();
+                corrected.record(now - due);
+                uncorrected.record(now - sent);
+                if (error != null) {
+                    failed.increment();
+                } else if (response.statusCode() >= 500) {
+                    serverErrors.increment();
+                } else {
+                    ok.increment();
+                }
+            });
+        }
+        CompletableFuture.allOf(responses).exceptionally(error -> null).join();
+        return new Result(count, ok.sum(), serverErrors.sum(), failed.sum(), System.nanoTime() - start, corrected, uncorrected);
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.loadtest;
+
+import org.example.App;
+import org.example.Config;
+import org.example.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts three backends and the proxy in this process, then drives each scenario at a constant
+ * rate and prints latency percentiles, corrected for coordinated omission, with the uncorrected
+ * p99 next to them for comparison.
+ * <p>
+ * Options: {@code --rate=<requests per second>} (500), {@code --duration-s=<seconds>} (10),
+ * {@code --warmup-s=<seconds>} (5, run first and not reported, so the JIT and the connections are
+ * warm) and {@code --scenarios=<comma separated names>} (all).
+ */
+public class LoadTest {
+    private static final int BACKENDS = 3;
+    private static final long SLOW_DELAY_MS = 200;
+    private static final long FLAP_PERIOD_MS = 2000;
+
+    enum Scenario {
+        HEALTHY,
+        // one instance answers after SLOW_DELAY_MS
+        SLOW,
+        // one instance refuses connections
+        DEAD,
+        // one instance fails every request for FLAP_PERIOD_MS, then recovers for as long, and so on
+        FLAPPING
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (arg.startsWith("--") && separator > 0) {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        int rate = Integer.parseInt(options.getOrDefault("rate", "500"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-s", "10")));
+        Duration warmUp = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-s", "5")));
+        List<Scenario> scenarios = options.containsKey("scenarios")
+                ? Arrays.stream(options.get("scenarios").split(","))
+                        .map(name -> Scenario.valueOf(name.trim().toUpperCase(Locale.ROOT)))
+                        .toList()
+                : List.of(Scenario.values());
+
+        System.out.printf("%d requests/s for %ds per scenario, latency in ms%n", rate, duration.toSeconds());
+        System.out.printf("%-9s %7s %7s %6s %6s %8s %8s %8s %8s %8s %8s %12s%n", "scenario", "sent", "ok", "5xx", "failed",
+                "req/s", "p50", "p90", "p99", "p99.9", "max", "p99 uncorr.");
+        for (Scenario scenario : scenarios) {
+            print(scenario, run(scenario, rate, warmUp, duration));
+        }
+        System.exit(0);
+    }
+
+    static LoadGenerator.Result run(Scenario scenario, int rate, Duration warmUp, Duration duration) throws IOException {
+        List<Backend> backends = new ArrayList<>();
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < BACKENDS; i++) {
+            if (i == 0 && scenario == Scenario.DEAD) {
+                urls.add(Backend.deadUrl());
+                continue;
+            }
+            Backend backend = Backend.start();
+            backends.add(backend);
+            urls.add(backend.url());
+        }
+        ScheduledExecutorService faults = Executors.newSingleThreadScheduledExecutor();
+        if (scenario == Scenario.SLOW) {
+            backends.get(0).delay(SLOW_DELAY_MS);
+        } else if (scenario == Scenario.FLAPPING) {
+            Backend flapping = backends.get(0);
+            long[] flips = {0};
+            faults.scheduleAtFixedRate(() -> flapping.failing(++flips[0] % 2 == 1), FLAP_PERIOD_MS, FLAP_PERIOD_MS, TimeUnit.MILLISECONDS);
+        }
+        App app = new App(Config.builder()
+                .instances(Map.of("service", urls))
+                .port(0)
+                .build());
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        try {
+            LoadGenerator generator = new LoadGenerator(client, URI.create("http://localhost:" + app.port() + "/"), rate,
+                    Duration.ofSeconds(5));
+            generator.run(warmUp);
+            return generator.run(duration);
+        } finally {
+            faults.shutdownNow();
+            app.stop();
+            backends.forEach(Backend::stop);
+        }
+    }
+
+    private static void print(Scenario scenario, LoadGenerator.Result result) {
+        LatencyHistogram corrected = result.corrected();
+        System.out.printf("%-9s %7d %7d %6d %6d %8.1f %8.2f %8.2f %8.2f %8.2f %8.2f %12.2f%n",
+                scenario.name().toLowerCase(Locale.ROOT), result.sent(), result.ok(), result.serverErrors(), result.failed(),
+                result.throughput(), millis(corrected.percentile(50)), millis(corrected.percentile(90)),
+                millis(corrected.percentile(99)), millis(corrected.percentile(99.9)), millis(corrected.percentile(100)),
+                millis(result.uncorrected().percentile(99)));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
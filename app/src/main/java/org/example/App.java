@@ -1,52 +1,272 @@
 package org.example;
 
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import lombok.extern.slf4j.Slf4j;
 import org.example.adapter.Adapter;
+import org.example.adapter.ConnectionPool;
 import org.example.adapter.HttpAdapter;
+import org.example.buffer.Body;
+import org.example.log.AccessLog;
+import org.example.metrics.AdminServer;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.RequestMetrics;
 import org.example.request.Method;
 import org.example.request.RequestImpl;
 import org.example.respond.Response;
-import org.example.service.RoundRobinRoutingServiceImpl;
+import org.example.respond.ResponseCompressor;
+import org.example.server.NioHttpServer;
+import org.example.service.AbstractRoutingService;
+import org.example.service.AccessLoggingRoutingService;
+import org.example.service.AdaptiveLimiter;
+import org.example.service.CachingRoutingService;
+import org.example.service.CoalescingRoutingService;
+import org.example.service.ConcurrencyLimitingRoutingService;
+import org.example.service.MeteredRoutingService;
+import org.example.service.RateLimiter;
+import org.example.service.RateLimitingRoutingService;
+import org.example.service.Route;
+import org.example.service.RouteTable;
+import org.example.service.RouteTableRoutingService;
 import org.example.service.RoutingService;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.InetSocketAddress;
-import java.util.Collections;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 @Slf4j
 public class App {
     private final RoutingService routingService;
+    // one of the two front ends, the other one is null
     private final HttpServer httpServer;
+    private final NioHttpServer nioHttpServer;
+    // null unless an admin port is configured
+    private final AdminServer adminServer;
+    // null unless an access log is configured
+    private final AccessLog accessLog;
+    private final ExecutorService handlerExecutor;
+    private final boolean streaming;
+    // null unless compression is on
+    private final ResponseCompressor compressor;
+
     public App(Config config) throws IOException {
-        List<Adapter> adapters = config.getInstances().entrySet()
-                .stream()
-                .flatMap(entry -> entry.getValue().stream().map(url -> (Adapter) new HttpAdapter(entry.getKey() + "[" + url + "]", url)))
-                .toList();
-        routingService = new RoundRobinRoutingServiceImpl(adapters, config.getTimeoutMs());
-        httpServer = HttpServer.create(new InetSocketAddress(config.getHostname(), config.getPort()), 0);
+        ConnectionPool.configureIdleTimeout(config.getPoolIdleTimeoutMs());
+        Map<String, List<HttpAdapter>> adapters = new LinkedHashMap<>();
+        config.getInstances().forEach((group, urls) -> adapters.put(group, urls.stream()
+                .map(url -> new HttpAdapter(group + "[" + url + "]", url, config))
+                .toList()));
+        warmUp(adapters.values().stream().flatMap(List::stream).toList());
+        MetricsRegistry registry = new MetricsRegistry();
+        AdaptiveLimiter limiter = config.isConcurrencyLimit() ? new AdaptiveLimiter(config) : null;
+        if (limiter != null) {
+            registry.gauge("proxy_concurrency_limit", "Adaptive concurrency limit across all instances", "", limiter::limit);
+            registry.counter("proxy_concurrency_rejected_total", "Requests shed because the proxy was at its limit", "", limiter::rejected);
+        }
+        Map<String, RoutingService> groups = new LinkedHashMap<>();
+        adapters.forEach((group, groupAdapters) -> groups.put(group, createGroup(config.forGroup(group), group, groupAdapters, limiter, registry)));
+        List<Route> routes = config.getRoutes().isEmpty()
+                ? List.of(new Route(null, "/", groups.keySet().iterator().next()))
+                : config.getRoutes();
+        RoutingService routeTable = new RouteTableRoutingService(RouteTable.compile(routes, groups), groups.values());
+        RoutingService edge;
+        if (config.getRateLimit() > 0) {
+            RateLimiter rateLimiter = new RateLimiter(config);
+            registry.counter("proxy_rate_limited_total", "Requests answered with 429 Too Many Requests", "", rateLimiter::limited);
+            registry.gauge("proxy_rate_limit_clients", "Clients whose bucket is not full", "", () -> rateLimiter.size(System.nanoTime()));
+            registry.counter("proxy_rate_limit_evictions_total", "Buckets dropped for lack of room", "", rateLimiter::evictions);
+            edge = new RateLimitingRoutingService(routeTable, rateLimiter, config.getRateLimitKey());
+        } else {
+            edge = routeTable;
+        }
+        if (config.getAccessLog() != null) {
+            accessLog = new AccessLog(config);
+            accessLog.start();
+            registry.counter("proxy_access_log_written_total", "Access log records written", "", accessLog::written);
+            registry.counter("proxy_access_log_dropped_total", "Access log records dropped because the writer fell behind", "", accessLog::dropped);
+            routingService = new AccessLoggingRoutingService(edge, accessLog);
+        } else {
+            accessLog = null;
+            routingService = edge;
+        }
+        streaming = config.isStreaming();
+        compressor = config.isCompress() ? new ResponseCompressor(config) : null;
+        if (config.getAdminPort() > 0) {
+            adminServer = new AdminServer(new InetSocketAddress(config.getHostname(), config.getAdminPort()), registry);
+            adminServer.start();
+        } else {
+            adminServer = null;
+        }
+        InetSocketAddress address = new InetSocketAddress(config.getHostname(), config.getPort());
+        if (config.getFrontEnd() == FrontEnd.NIO) {
+            httpServer = null;
+            handlerExecutor = null;
+            nioHttpServer = new NioHttpServer(address, config, routingService, compressor);
+            nioHttpServer.start();
+            return;
+        }
+        nioHttpServer = null;
+        handlerExecutor = config.getExecutionMode().newExecutor("handler");
+        httpServer = HttpServer.create(address, 0);
         httpServer.createContext("/", new MyHttpHandler());
+        httpServer.setExecutor(handlerExecutor);
         httpServer.start();
     }
 
+    /**
+     * Each instance group balances, retries and caches on its own.
+     *
+     * @param limiter shared by every group, null if concurrency limits are off
+     */
+    private static RoutingService createGroup(Config config, String group, List<HttpAdapter> groupAdapters, AdaptiveLimiter limiter,
+                                              MetricsRegistry registry) {
+        List<Adapter> adapters = List.copyOf(groupAdapters);
+        int[] weights = config.getInstances().get(group).stream()
+                .mapToInt(config::getWeight)
+                .toArray();
+        RoutingService upstream = config.getRoutingStrategy().create(adapters, weights, config,
+                config.getExecutionMode().newExecutor("upstream-" + group));
+        String labels = MetricsRegistry.labels("group", group);
+        if (upstream instanceof AbstractRoutingService balancer) {
+            balancer.registerMetrics(registry, labels);
+        }
+        groupAdapters.forEach(adapter -> adapter.pool().registerMetrics(registry, MetricsRegistry.with(labels, "adapter", adapter.name())));
+        if (limiter != null) {
+            // behind the cache and the coalescing, which answer without calling upstream
+            upstream = new ConcurrencyLimitingRoutingService(upstream, limiter);
+        }
+        if (config.isCoalesce()) {
+            // behind the cache, so expired entries are fetched and revalidated once
+            CoalescingRoutingService coalescing = new CoalescingRoutingService(upstream, config);
+            registry.counter("proxy_coalesced_total", "Requests answered with another request's response", labels, coalescing::coalesced);
+            upstream = coalescing;
+        }
+        if (config.getCacheMaxBytes() > 0) {
+            CachingRoutingService caching = new CachingRoutingService(upstream, config);
+            registry.counter("proxy_cache_hits_total", "Requests answered from the cache", labels, caching::hits);
+            registry.counter("proxy_cache_misses_total", "Cacheable requests sent upstream", labels, caching::misses);
+            registry.gauge("proxy_cache_bytes", "Size of the cached responses", labels, caching.cache()::weightedSize);
+            registry.counter("proxy_cache_evictions_total", "Responses evicted to make room for others", labels,
+                    caching.cache()::evictions);
+            registry.counter("proxy_cache_rejected_total", "New responses the admission filter kept out of the cache", labels,
+                    caching.cache()::rejected);
+            upstream = caching;
+        }
+        RequestMetrics metrics = new RequestMetrics();
+        metrics.register(registry, "proxy_route", "Client", labels);
+        return new MeteredRoutingService(upstream, metrics);
+    }
+
+    /**
+     * Opens every adapter's minimum connections before the listener starts. An instance that does not
+     * answer is only logged, its circuit breaker takes it out of rotation once requests to it fail.
+     */
+    private static void warmUp(List<HttpAdapter> adapters) {
+        CompletableFuture<?>[] warmUps = adapters.stream()
+                .map(adapter -> adapter.warmUp().exceptionally(error -> {
+                    log.warn("Could not warm up the connections of {}: {}", adapter.name(), error.toString());
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(warmUps).join();
+        adapters.forEach(adapter -> log.info("Warmed up {}", adapter.pool()));
+    }
+
+    /**
+     * The port clients connect to, the one picked by the system if the configured port is 0.
+     */
+    public int port() {
+        return nioHttpServer != null ? nioHttpServer.port() : httpServer.getAddress().getPort();
+    }
+
     public void stop(){
         routingService.stop();
+        if (adminServer != null) {
+            adminServer.stop();
+        }
+        if (accessLog != null) {
+            accessLog.stop();
+        }
+        if (nioHttpServer != null) {
+            nioHttpServer.stop();
+            return;
+        }
         httpServer.stop(0);
+        handlerExecutor.shutdown();
+    }
+
+    /**
+     * The request body byte for byte, as it is sent upstream.
+     */
+    static Body readBody(InputStream body) throws IOException {
+        return Body.readFrom(body);
+    }
+
+    /**
+     * Sets the upstream headers passed on to the client, see {@link Response#CLIENT_HEADERS}, straight
+     * on the response.
+     */
+    static void putClientHeaders(Map<String, String> upstreamHeaders, Headers headers) {
+        for (String header : Response.CLIENT_HEADERS) {
+            String value = upstreamHeaders.get(header);
+            if (value != null) {
+                headers.set(header, value);
+            }
+        }
     }
 
     private class MyHttpHandler implements HttpHandler {
-        private void respond(HttpExchange httpExchange, int status, String body, Map<String, List<String>> headers) throws IOException {
+        private void respond(HttpExchange httpExchange, int status, String body) throws IOException {
+            respond(httpExchange, status, Body.of(body));
+        }
+
+        private void respond(HttpExchange httpExchange, int status, Body body) throws IOException {
             var outputStream = httpExchange.getResponseBody();
-            if (headers != null) {
-                httpExchange.getResponseHeaders().putAll(headers);
-            }
             httpExchange.sendResponseHeaders(status, body.length());
-            outputStream.write(body.getBytes());
+            body.writeTo(outputStream);
+            outputStream.flush();
+            outputStream.close();
+        }
+
+        private void respond(HttpExchange httpExchange, Response response) throws IOException {
+            Body body = response.body();
+            Headers headers = httpExchange.getResponseHeaders();
+            putClientHeaders(response.headers(), headers);
+            if (compressor == null) {
+                respond(httpExchange, response.status(), body);
+                return;
+            }
+            ResponseCompressor.Encoded encoded = compressor.encode(response.headers(), body,
+                    httpExchange.getRequestHeaders().getFirst("Accept-Encoding"), null);
+            if (encoded.contentEncoding() != null) {
+                headers.set("content-encoding", encoded.contentEncoding());
+            }
+            if (encoded.varies()) {
+                headers.set("vary", "Accept-Encoding");
+            }
+            respond(httpExchange, response.status(), encoded.buffers(), encoded.length());
+        }
+
+        private void respond(HttpExchange httpExchange, int status, List<ByteBuffer> buffers, int length) throws IOException {
+            var outputStream = httpExchange.getResponseBody();
+            httpExchange.sendResponseHeaders(status, length);
+            WritableByteChannel channel = Channels.newChannel(outputStream);
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
             outputStream.flush();
             outputStream.close();
         }
@@ -54,30 +274,84 @@ public class App {
 
         @Override
         public void handle(HttpExchange httpExchange) throws IOException {
-            if ("GET".equals(httpExchange.getRequestMethod())) {
-                Response response = routingService.forwardRequest(new RequestImpl(Method.GET, "/", ""));
-                log.info("in app {}", response);
-                Map<String, List<String>> headers = Collections.emptyMap();
-                if (!response.headers().isEmpty()) {
-                    headers = Map.of("x-server", List.of(response.headers().get("x-server")));
+            String method = httpExchange.getRequestMethod();
+            if (streaming) {
+                if ("GET".equals(method)) {
+                    stream(httpExchange, new RequestImpl(Method.GET, target(httpExchange), Body.EMPTY, httpExchange.getRequestHeaders(), clientAddress(httpExchange)), null);
+                } else if ("POST".equals(method)) {
+                    stream(httpExchange, new RequestImpl(Method.POST, target(httpExchange), Body.EMPTY, httpExchange.getRequestHeaders(), clientAddress(httpExchange)),
+                            httpExchange.getRequestBody());
+                } else {
+                    notImplemented(httpExchange, method);
                 }
-                respond(httpExchange, response.status(), response.body(), headers);
-            } else if ("POST".equals(httpExchange.getRequestMethod())) {
+            } else if ("GET".equals(method)) {
+                forward(httpExchange, new RequestImpl(Method.GET, target(httpExchange), Body.EMPTY, httpExchange.getRequestHeaders(), clientAddress(httpExchange)));
+            } else if ("POST".equals(method)) {
                 // do client post
-                Scanner sc = new Scanner(httpExchange.getRequestBody());
-                StringBuilder sb = new StringBuilder();
-                while (sc.hasNext()) {
-                    sb.append(sc.nextLine());
-                }
-                Response response = routingService.forwardRequest(new RequestImpl(Method.POST, "/", sb.toString()));
-                Map<String, List<String>> headers = Collections.emptyMap();
-                if (!response.headers().isEmpty()) {
-                    headers = Map.of("x-server", List.of(response.headers().get("x-server")));
-                }
-                respond(httpExchange, response.status(), response.body(), headers);
+                forward(httpExchange, new RequestImpl(Method.POST, target(httpExchange), readBody(httpExchange.getRequestBody()),
+                        httpExchange.getRequestHeaders(), clientAddress(httpExchange)));
+            } else {
+                notImplemented(httpExchange, method);
             }
         }
 
+        /**
+         * Answers what the nio front end answers a method it does not know, rather than leave the
+         * client waiting.
+         */
+        private void notImplemented(HttpExchange httpExchange, String method) throws IOException {
+            respond(httpExchange, 501, "Unsupported method: " + method);
+        }
+
+        private String target(HttpExchange httpExchange) {
+            URI uri = httpExchange.getRequestURI();
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+        }
+
+        private String clientAddress(HttpExchange httpExchange) {
+            InetSocketAddress address = httpExchange.getRemoteAddress();
+            return address == null || address.getAddress() == null ? null : address.getAddress().getHostAddress();
+        }
 
+        private void forward(HttpExchange httpExchange, RequestImpl request) {
+            routingService.forwardRequestAsync(request).whenComplete((response, error) -> {
+                try {
+                    if (error != null) {
+                        log.error("Error forwarding {}", request, error);
+                        respond(httpExchange, 500, "Internal server error");
+                        return;
+                    }
+                    log.debug("in app {}", response);
+                    respond(httpExchange, response);
+                } catch (IOException e) {
+                    log.error("Error writing response", e);
+                    httpExchange.close();
+                }
+            });
+        }
+
+        private void stream(HttpExchange httpExchange, RequestImpl request, InputStream body) {
+            routingService.streamRequestAsync(request, body).whenCompleteAsync((response, error) -> {
+                if (error != null) {
+                    log.error("Error forwarding {}", request, error);
+                    try {
+                        respond(httpExchange, 500, "Internal server error");
+                    } catch (IOException e) {
+                        httpExchange.close();
+                    }
+                    return;
+                }
+                try (InputStream upstream = response.body(); OutputStream outputStream = httpExchange.getResponseBody()) {
+                    putClientHeaders(response.headers(), httpExchange.getResponseHeaders());
+                    // length 0 selects chunked transfer, so the first upstream bytes go out immediately
+                    httpExchange.sendResponseHeaders(response.status(), 0);
+                    upstream.transferTo(outputStream);
+                } catch (IOException e) {
+                    log.error("Error streaming response", e);
+                    httpExchange.close();
+                }
+            }, handlerExecutor);
+        }
     }
 }
@@ -1,19 +1,172 @@
 package org.example;
 
+import lombok.Builder;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import org.example.adapter.ConnectionPool;
+import org.example.log.AccessLog;
+import org.example.metrics.AdminServer;
+import org.example.request.Method;
+import org.example.respond.ResponseCompressor;
+import org.example.server.NioHttpServer;
+import org.example.service.AdaptiveLimiter;
+import org.example.service.CircuitBreaker;
+import org.example.service.CoalescingRoutingService;
+import org.example.service.HashKey;
+import org.example.service.HealthChecker;
+import org.example.service.Hedger;
+import org.example.service.PeakEwmaRoutingServiceImpl;
+import org.example.service.RateLimiter;
+import org.example.service.ResponseCache;
+import org.example.service.RetryPolicy;
+import org.example.service.Route;
+import org.example.service.RoutingStrategy;
 
 import java.util.List;
 import java.util.Map;
 
-@RequiredArgsConstructor
+@Builder(toBuilder = true)
 @Getter
 public class Config {
     public static final long DEFAULT_TIMEOUT_MILLIS = 1000L;
     public static final int DEFAULT_PORT = 8000;
     public static final String DEFAULT_HOSTNAME = "localhost";
+    public static final ExecutionMode DEFAULT_EXECUTION_MODE = ExecutionMode.CONCURRENT;
+    public static final RoutingStrategy DEFAULT_ROUTING_STRATEGY = RoutingStrategy.ROUND_ROBIN;
+    public static final int DEFAULT_WEIGHT = 1;
+    public static final FrontEnd DEFAULT_FRONT_END = FrontEnd.HTTP_SERVER;
     private final Map<String, List<String>> instances;
-    private final long timeoutMs;
-    private final String hostname;
-    private final int port;
+    @Builder.Default
+    private final Map<String, Integer> weights = Map.of();
+    @Builder.Default
+    private final List<Route> routes = List.of();
+    @Builder.Default
+    private final long timeoutMs = DEFAULT_TIMEOUT_MILLIS;
+    @Builder.Default
+    private final String hostname = DEFAULT_HOSTNAME;
+    @Builder.Default
+    private final int port = DEFAULT_PORT;
+    @Builder.Default
+    private final int adminPort = AdminServer.DEFAULT_PORT;
+    // null unless an access log is configured
+    private final String accessLog;
+    @Builder.Default
+    private final int accessLogCapacity = AccessLog.DEFAULT_CAPACITY;
+    @Builder.Default
+    private final long accessLogMaxBytes = AccessLog.DEFAULT_MAX_FILE_BYTES;
+    @Builder.Default
+    private final int accessLogMaxFiles = AccessLog.DEFAULT_MAX_FILES;
+    @Builder.Default
+    private final ExecutionMode executionMode = DEFAULT_EXECUTION_MODE;
+    private final boolean streaming;
+    @Builder.Default
+    private final FrontEnd frontEnd = DEFAULT_FRONT_END;
+    @Builder.Default
+    private final int eventLoops = NioHttpServer.DEFAULT_EVENT_LOOPS;
+    @Builder.Default
+    private final int maxRequestBytes = NioHttpServer.DEFAULT_MAX_REQUEST_BYTES;
+    private final boolean compress;
+    @Builder.Default
+    private final int compressMinBytes = ResponseCompressor.DEFAULT_MIN_BYTES;
+    @Builder.Default
+    private final List<String> compressTypes = ResponseCompressor.DEFAULT_CONTENT_TYPES;
+    @Builder.Default
+    private final RoutingStrategy routingStrategy = DEFAULT_ROUTING_STRATEGY;
+    @Builder.Default
+    private final long ewmaDecayMs = PeakEwmaRoutingServiceImpl.DEFAULT_DECAY_MS;
+    @Builder.Default
+    private final HashKey hashKey = HashKey.PATH;
+    @Builder.Default
+    private final Method healthCheckMethod = HealthChecker.DEFAULT_METHOD;
+    @Builder.Default
+    private final String healthCheckPath = HealthChecker.DEFAULT_PATH;
+    @Builder.Default
+    private final long healthCheckIntervalMs = HealthChecker.DEFAULT_INTERVAL_MS;
+    @Builder.Default
+    private final long healthCheckTimeoutMs = HealthChecker.DEFAULT_TIMEOUT_MS;
+    @Builder.Default
+    private final long healthCheckMaxBackoffMs = HealthChecker.DEFAULT_MAX_BACKOFF_MS;
+
+    @Builder.Default
+    private final int breakerFailureRateThreshold = CircuitBreaker.DEFAULT_FAILURE_RATE_THRESHOLD;
+    @Builder.Default
+    private final int breakerSlowCallRateThreshold = CircuitBreaker.DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+    @Builder.Default
+    private final long breakerSlowCallDurationMs = CircuitBreaker.DEFAULT_SLOW_CALL_DURATION_MS;
+    @Builder.Default
+    private final int breakerMinimumCalls = CircuitBreaker.DEFAULT_MINIMUM_CALLS;
+    @Builder.Default
+    private final long breakerWindowMs = CircuitBreaker.DEFAULT_WINDOW_MS;
+    @Builder.Default
+    private final int breakerHalfOpenCalls = CircuitBreaker.DEFAULT_HALF_OPEN_CALLS;
+
+    @Builder.Default
+    private final long hedgeDelayMs = Hedger.DEFAULT_DELAY_MS;
+    @Builder.Default
+    private final double hedgePercentile = Hedger.DEFAULT_PERCENTILE;
+    @Builder.Default
+    private final int hedgeBudgetPercent = Hedger.DEFAULT_BUDGET_PERCENT;
+
+    @Builder.Default
+    private final int retryMaxRetries = RetryPolicy.DEFAULT_MAX_RETRIES;
+    @Builder.Default
+    private final long retryBackoffMs = RetryPolicy.DEFAULT_BACKOFF_MS;
+    @Builder.Default
+    private final long retryMaxBackoffMs = RetryPolicy.DEFAULT_MAX_BACKOFF_MS;
+    @Builder.Default
+    private final int retryBudgetPercent = RetryPolicy.DEFAULT_BUDGET_PERCENT;
+
+    @Builder.Default
+    private final long cacheMaxBytes = ResponseCache.DEFAULT_MAX_BYTES;
+
+    private final boolean coalesce;
+    @Builder.Default
+    private final long coalesceWaitMs = CoalescingRoutingService.DEFAULT_WAIT_MS;
+
+    private final boolean concurrencyLimit;
+    @Builder.Default
+    private final int concurrencyLimitInitial = AdaptiveLimiter.DEFAULT_INITIAL_LIMIT;
+    @Builder.Default
+    private final int concurrencyLimitMax = AdaptiveLimiter.DEFAULT_MAX_LIMIT;
+
+    @Builder.Default
+    private final long rateLimit = RateLimiter.DEFAULT_RATE;
+    private final int rateLimitBurst;
+    @Builder.Default
+    private final HashKey rateLimitKey = HashKey.CLIENT;
+    @Builder.Default
+    private final int rateLimitMaxKeys = RateLimiter.DEFAULT_MAX_KEYS;
+
+    @Builder.Default
+    private final int poolMaxConnections = ConnectionPool.DEFAULT_MAX_CONNECTIONS;
+    @Builder.Default
+    private final int poolMinConnections = ConnectionPool.DEFAULT_MIN_CONNECTIONS;
+    @Builder.Default
+    private final long poolIdleTimeoutMs = ConnectionPool.DEFAULT_IDLE_TIMEOUT_MS;
+    @Builder.Default
+    private final long poolMaxLifetimeMs = ConnectionPool.DEFAULT_MAX_LIFETIME_MS;
+    @Builder.Default
+    private final long poolKeepAliveMs = ConnectionPool.DEFAULT_KEEP_ALIVE_MS;
+
+    public static Config withTimeout(long timeoutMs) {
+        return Config.builder().instances(Map.of()).timeoutMs(timeoutMs).build();
+    }
+
+    public int getWeight(String url) {
+        return weights.getOrDefault(url, DEFAULT_WEIGHT);
+    }
+
+    /**
+     * This config with the retry limits the routes to {@code group} give it, if any.
+     */
+    public Config forGroup(String group) {
+        for (Route route : routes) {
+            if (route.group().equals(group) && route.hasRetryLimits()) {
+                return toBuilder()
+                        .retryMaxRetries(route.retryMax() == Route.DEFAULT ? retryMaxRetries : route.retryMax())
+                        .retryBudgetPercent(route.retryBudgetPercent() == Route.DEFAULT ? retryBudgetPercent : route.retryBudgetPercent())
+                        .build();
+            }
+        }
+        return this;
+    }
 }
@@ -0,0 +1,59 @@
+package org.example;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link #CONCURRENT} runs every task on its own thread: a virtual thread when the runtime
+ * provides them (JDK 21+), otherwise a platform thread from an unbounded pool.
+ */
+@Slf4j
+public enum ExecutionMode {
+    SERIAL,
+    CONCURRENT;
+
+    private static final MethodHandle VIRTUAL_THREAD_EXECUTOR = lookupVirtualThreadExecutor();
+
+    public ExecutorService newExecutor(String name) {
+        if (this == SERIAL) {
+            return Executors.newSingleThreadExecutor(namedThreadFactory(name));
+        }
+        if (VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invoke();
+            } catch (Throwable e) {
+                log.warn("Unable to create virtual thread executor, falling back to platform threads", e);
+            }
+        }
+        return Executors.newCachedThreadPool(namedThreadFactory(name));
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    private static ThreadFactory namedThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static MethodHandle lookupVirtualThreadExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
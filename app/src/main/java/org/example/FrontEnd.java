@@ -0,0 +1,10 @@
+package org.example;
+
+/**
+ * {@link #HTTP_SERVER} serves clients with the JDK's {@code com.sun.net.httpserver}, {@link #NIO}
+ * with {@link org.example.server.NioHttpServer}.
+ */
+public enum FrontEnd {
+    HTTP_SERVER,
+    NIO
+}
@@ -1,17 +1,63 @@
 package org.example.adapter;
 
+import org.example.buffer.Body;
+import org.example.request.Method;
 import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface Adapter {
-    Response post(String path, String body);
+    String name();
+
+    Response post(String path, Body body);
 
     Response get(String path);
 
     Response delete(String path);
 
-    Response put(String path, String body);
+    Response put(String path, Body body);
 
     Response head(String path);
 
+    /**
+     * Async variants never block the caller. Completing or cancelling the returned future
+     * before the upstream answers aborts the in-flight call.
+     */
+    CompletableFuture<Response> postAsync(String path, Body body);
+
+    CompletableFuture<Response> getAsync(String path);
+
+    /**
+     * GET with extra request headers, e.g. the validators of a conditional request.
+     */
+    CompletableFuture<Response> getAsync(String path, Map<String, String> headers);
+
+    CompletableFuture<Response> deleteAsync(String path);
+
+    CompletableFuture<Response> putAsync(String path, Body body);
+
+    CompletableFuture<Response> headAsync(String path);
+
+    /**
+     * Sends {@code body} (may be null) without buffering it and completes as soon as the upstream
+     * status line and headers arrive.
+     */
+    CompletableFuture<StreamedResponse> streamAsync(Method method, String path, InputStream body);
+
     boolean healthcheck();
+
+    /**
+     * Completes with true when the upstream answers {@code method path} with a 2xx. Completing the
+     * returned future first aborts the probe.
+     */
+    CompletableFuture<Boolean> healthcheckAsync(Method method, String path);
+
+    /**
+     * Releases what the adapter holds on to, like scheduled keep-alive probes.
+     */
+    default void close() {
+    }
 }
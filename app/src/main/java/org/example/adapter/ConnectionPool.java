@@ -0,0 +1,290 @@
+package org.example.adapter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.MetricsRegistry;
+
+import java.net.http.HttpClient;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The upstream connections of one {@link HttpAdapter}. The JDK client pools connections on its own
+ * and needs one per concurrent HTTP/1.1 exchange, so connections are capped by capping concurrent
+ * exchanges; the ones over the cap wait, in order, for a connection to be released. Once the client
+ * is older than the max lifetime new exchanges go to a fresh one, and the old connections close as
+ * they go idle. Warm-up and keep-alive probes open or touch {@code minConnections} connections at
+ * once, so the first requests after startup or a quiet period do not pay for the TCP handshake.
+ */
+@Slf4j
+public class ConnectionPool {
+    public static final int DEFAULT_MAX_CONNECTIONS = 0;
+    public static final int DEFAULT_MIN_CONNECTIONS = 1;
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 30_000;
+    public static final long DEFAULT_MAX_LIFETIME_MS = 0;
+    public static final long DEFAULT_KEEP_ALIVE_MS = 0;
+
+    static final String IDLE_TIMEOUT_PROPERTY = "jdk.httpclient.keepalive.timeout";
+    private static final ScheduledExecutorService MAINTENANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "connection-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String name;
+    private final Supplier<HttpClient> clients;
+    private final Function<HttpClient, CompletableFuture<?>> probe;
+    private final int maxConnections;
+    private final int minConnections;
+    private final long maxLifetimeNanos;
+    private final long keepAliveNanos;
+    private final long probeTimeoutMs;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final Queue<Runnable> waiters = new ConcurrentLinkedQueue<>();
+    private final LongAdder recycles = new LongAdder();
+    private final LatencyHistogram queueTime = new LatencyHistogram();
+    private final ScheduledFuture<?> keepAlive;
+    private volatile Generation generation;
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    private record Generation(HttpClient client, long createdNanos, AtomicInteger peak) {
+    }
+
+    /**
+     * @param probe a cheap exchange that needs a connection of its own, used for warm-up and keep-alive
+     */
+    public ConnectionPool(String name, Supplier<HttpClient> clients, Function<HttpClient, CompletableFuture<?>> probe, Config config) {
+        this(name, clients, probe, config.getPoolMaxConnections(), config.getPoolMinConnections(),
+                config.getPoolMaxLifetimeMs(), config.getPoolKeepAliveMs(), config.getHealthCheckTimeoutMs());
+    }
+
+    public ConnectionPool(String name, Supplier<HttpClient> clients, Function<HttpClient, CompletableFuture<?>> probe,
+                          int maxConnections, int minConnections, long maxLifetimeMs, long keepAliveMs, long probeTimeoutMs) {
+        this.name = name;
+        this.clients = clients;
+        this.probe = probe;
+        this.maxConnections = maxConnections;
+        this.minConnections = maxConnections > 0 ? Math.min(minConnections, maxConnections) : minConnections;
+        this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(maxLifetimeMs);
+        this.keepAliveNanos = TimeUnit.MILLISECONDS.toNanos(keepAliveMs);
+        this.probeTimeoutMs = probeTimeoutMs;
+        this.generation = new Generation(clients.get(), System.nanoTime(), new AtomicInteger());
+        this.keepAlive = keepAliveMs > 0
+                ? MAINTENANCE.scheduleWithFixedDelay(this::keepAlive, keepAliveMs, keepAliveMs, TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    /**
+     * The JDK client reads its idle timeout once, when the first client is built, so it is the same
+     * for every pool and has to be set before any adapter is created.
+     */
+    public static void configureIdleTimeout(long idleTimeoutMs) {
+        System.setProperty(IDLE_TIMEOUT_PROPERTY, String.valueOf(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(idleTimeoutMs))));
+    }
+
+    /**
+     * The current client, replaced by a fresh one once it is older than the max lifetime.
+     */
+    public HttpClient client() {
+        Generation current = generation;
+        if (maxLifetimeNanos > 0 && System.nanoTime() - current.createdNanos() > maxLifetimeNanos) {
+            synchronized (this) {
+                if (generation == current) {
+                    generation = new Generation(clients.get(), System.nanoTime(), new AtomicInteger());
+                    recycles.increment();
+                    log.info("Recycled the connections of {}", name);
+                }
+                return generation.client();
+            }
+        }
+        return current.client();
+    }
+
+    /**
+     * Runs the exchange as soon as a connection is free. Completing the returned future first
+     * aborts it, or drops it if it is still waiting.
+     */
+    public <T> CompletableFuture<T> execute(Function<HttpClient, CompletableFuture<T>> exchange) {
+        long queuedNanos = System.nanoTime();
+        lastUsedNanos = queuedNanos;
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            if (result.isDone()) {
+                release();
+                return;
+            }
+            queueTime.record(System.nanoTime() - queuedNanos);
+            CompletableFuture<T> upstream;
+            try {
+                HttpClient client = client();
+                generation.peak().accumulateAndGet(active.get(), Math::max);
+                upstream = exchange.apply(client);
+            } catch (RuntimeException e) {
+                // fails like any other exchange and releases its connection, a waiter must not throw out of drain()
+                upstream = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<T> call = upstream;
+            call.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+            result.whenComplete((ignored, error) -> {
+                if (error != null && !call.isDone()) {
+                    call.cancel(true);
+                }
+            });
+        };
+        if (tryAcquire()) {
+            start.run();
+        } else {
+            waiting.incrementAndGet();
+            waiters.add(start);
+            drain();
+        }
+        return result;
+    }
+
+    /**
+     * Opens up to {@code minConnections} connections by running that many probes at once. Completes
+     * exceptionally if a probe failed or took longer than the probe timeout.
+     */
+    public CompletableFuture<Void> warmUp() {
+        CompletableFuture<?>[] probes = new CompletableFuture[minConnections];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = execute(client -> probe.apply(client).thenApply(ignored -> null)).orTimeout(probeTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        return CompletableFuture.allOf(probes);
+    }
+
+    public void close() {
+        if (keepAlive != null) {
+            keepAlive.cancel(false);
+        }
+    }
+
+    /**
+     * Exchanges holding a connection right now.
+     */
+    public int active() {
+        return active.get();
+    }
+
+    /**
+     * Exchanges waiting for a connection to be released.
+     */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    /**
+     * The most connections the current client had in use at once. It opened at least that many,
+     * and keeps them until they are idle for the idle timeout.
+     */
+    public int peakConnections() {
+        return generation.peak().get();
+    }
+
+    public long recycles() {
+        return recycles.sum();
+    }
+
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * How long exchanges waited for a connection, 0 for the ones that got one right away.
+     */
+    public LatencyHistogram queueTime() {
+        return queueTime;
+    }
+
+    public void registerMetrics(MetricsRegistry registry, String labels) {
+        registry.summary("proxy_pool_queue_seconds", "Time spent waiting for an upstream connection", labels, queueTime);
+        registry.gauge("proxy_pool_active", "Exchanges holding an upstream connection", labels, this::active);
+        registry.gauge("proxy_pool_waiting", "Exchanges waiting for an upstream connection", labels, this::waiting);
+        registry.gauge("proxy_pool_peak_connections", "Most upstream connections in use at once", labels, this::peakConnections);
+        registry.counter("proxy_pool_recycles_total", "Times the upstream connections were replaced", labels, this::recycles);
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = active.get();
+            if (maxConnections > 0 && current >= maxConnections) {
+                return false;
+            }
+            if (active.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void release() {
+        active.decrementAndGet();
+        drain();
+    }
+
+    /**
+     * Starts waiters while connections are free. Only one thread drains at a time, the others just
+     * ask it for another pass: a waiter that gave up, or whose exchange completes as it starts,
+     * releases its connection from inside {@code waiter.run()}, and draining again right there would
+     * nest one call deeper for every such waiter in the queue.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int requests = 1;
+        do {
+            // re-checks after every acquire so a waiter queued while a connection was being released is not stranded
+            while (!waiters.isEmpty() && tryAcquire()) {
+                Runnable waiter = waiters.poll();
+                if (waiter == null) {
+                    active.decrementAndGet();
+                } else {
+                    waiting.decrementAndGet();
+                    waiter.run();
+                }
+            }
+            requests = drainRequests.addAndGet(-requests);
+        } while (requests != 0);
+    }
+
+    private void keepAlive() {
+        if (System.nanoTime() - lastUsedNanos < keepAliveNanos) {
+            return;
+        }
+        warmUp().whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.debug("Keep-alive probe to {} failed", name, error);
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+                "name='" + name + '\'' +
+                ", active=" + active() +
+                ", waiting=" + waiting() +
+                ", peakConnections=" + peakConnections() +
+                ", recycles=" + recycles() +
+                '}';
+    }
+}
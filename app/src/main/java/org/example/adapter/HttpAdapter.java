@@ -1,47 +1,91 @@
 package org.example.adapter;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.buffer.Body;
+import org.example.request.Method;
 import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @Slf4j
 public class HttpAdapter implements Adapter {
+    private static final List<String> UPSTREAM_HEADERS = List.of("cache-control", "expires", "date", "age", "etag",
+            "last-modified", "vary", "content-type", "content-encoding");
+
     private final String name;
     private final String url;
-    private final HttpClient httpClient;
+    private final ConnectionPool pool;
+    // the headers of a blocking call's response, the same for every call
+    private final Map<String, String> serverHeaders;
 
     public HttpAdapter(String name, String url) {
-        this.name = name;
-        this.url = url;
-        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(1000)).build();
+        this(name, url, Config.withTimeout(Config.DEFAULT_TIMEOUT_MILLIS));
+    }
+
+    public HttpAdapter(String name, String url, Config config) {
+        this(name, url, () -> HttpClient.newBuilder().connectTimeout(Duration.ofMillis(1000)).build(), config);
     }
 
     public HttpAdapter(String name, String url, HttpClient httpClient) {
+        this(name, url, () -> httpClient, Config.withTimeout(Config.DEFAULT_TIMEOUT_MILLIS));
+    }
+
+    HttpAdapter(String name, String url, Supplier<HttpClient> clients, Config config) {
         this.name = name;
         this.url = url;
-        this.httpClient = httpClient;
+        this.serverHeaders = Map.of("x-server", name);
+        HttpRequest probe = HttpRequest.newBuilder(URI.create(url + config.getHealthCheckPath()))
+                .method(config.getHealthCheckMethod().name(), HttpRequest.BodyPublishers.noBody())
+                .build();
+        this.pool = new ConnectionPool(name, clients, client -> client.sendAsync(probe, HttpResponse.BodyHandlers.discarding()), config);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    public ConnectionPool pool() {
+        return pool;
+    }
+
+    /**
+     * Opens the pool's minimum connections ahead of the first request.
+     */
+    public CompletableFuture<Void> warmUp() {
+        return pool.warmUp();
     }
 
     @Override
-    public Response post(String path, String body) {
+    public void close() {
+        pool.close();
+    }
+
+    @Override
+    public Response post(String path, Body body) {
         Response response;
 
         try {
-            HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
-                    .POST(HttpRequest.BodyPublishers.ofByteArray(body.getBytes()))
-                    .build();
-            HttpResponse<String> httpResponse = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            response = new Response(httpResponse.statusCode(), httpResponse.body(), Map.of("x-server", name));
+            HttpRequest request = postRequest(path, body);
+            HttpResponse<byte[]> httpResponse = pool.client().send(request, HttpResponse.BodyHandlers.ofByteArray());
+            response = new Response(httpResponse.statusCode(), body(httpResponse), serverHeaders);
         } catch (IOException | InterruptedException e) {
             log.error("Error calling POST method on {}", path, e);
-            response = new Response(500, "Error calling url " + url, Map.of("x-server", name));
+            response = new Response(500, "Error calling url " + url, serverHeaders);
         }
 
         return response;
@@ -50,12 +94,11 @@ public class HttpAdapter implements Adapter {
     @Override
     public Response get(String path) {
         Response response;
-        log.info("GET {}", url + path);
+        log.debug("GET {}", url + path);
         try {
-            HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
-                    .GET().build();
-            HttpResponse<String> httpResponse = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            response = new Response(httpResponse.statusCode(), httpResponse.body(), Map.of("x-server", name));
+            HttpRequest request = getRequest(path);
+            HttpResponse<byte[]> httpResponse = pool.client().send(request, HttpResponse.BodyHandlers.ofByteArray());
+            response = new Response(httpResponse.statusCode(), body(httpResponse), serverHeaders);
         } catch (IOException | InterruptedException e) {
             log.error("Error calling GET method on {}", url + path, e);
             throw new RuntimeException(e);
@@ -69,11 +112,9 @@ public class HttpAdapter implements Adapter {
         Response response;
 
         try {
-            HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
-                    .DELETE()
-                    .build();
-            HttpResponse<String> httpResponse = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            response = new Response(httpResponse.statusCode(), httpResponse.body(), Map.of("x-server", name));
+            HttpRequest request = deleteRequest(path);
+            HttpResponse<byte[]> httpResponse = pool.client().send(request, HttpResponse.BodyHandlers.ofByteArray());
+            response = new Response(httpResponse.statusCode(), body(httpResponse), serverHeaders);
         } catch (IOException | InterruptedException e) {
             log.error("Error calling DELETE method on {}", path, e);
             throw new RuntimeException(e);
@@ -83,15 +124,13 @@ public class HttpAdapter implements Adapter {
     }
 
     @Override
-    public Response put(String path, String body) {
+    public Response put(String path, Body body) {
         Response response;
 
         try {
-            HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
-                    .PUT(HttpRequest.BodyPublishers.ofByteArray(body.getBytes()))
-                    .build();
-            HttpResponse<String> httpResponse = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            response = new Response(httpResponse.statusCode(), httpResponse.body(), Map.of("x-server", name));
+            HttpRequest request = putRequest(path, body);
+            HttpResponse<byte[]> httpResponse = pool.client().send(request, HttpResponse.BodyHandlers.ofByteArray());
+            response = new Response(httpResponse.statusCode(), body(httpResponse), serverHeaders);
         } catch (IOException | InterruptedException e) {
             log.error("Error calling PUT method on {}", path, e);
             throw new RuntimeException(e);
@@ -105,11 +144,9 @@ public class HttpAdapter implements Adapter {
         Response response;
 
         try {
-            HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
-                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
-                    .build();
-            HttpResponse<String> httpResponse = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            response = new Response(httpResponse.statusCode(), httpResponse.body(), Map.of("x-server", name));
+            HttpRequest request = headRequest(path);
+            HttpResponse<byte[]> httpResponse = pool.client().send(request, HttpResponse.BodyHandlers.ofByteArray());
+            response = new Response(httpResponse.statusCode(), body(httpResponse), serverHeaders);
         } catch (IOException | InterruptedException e) {
             log.error("Error calling HEAD method on {}", path, e);
             throw new RuntimeException(e);
@@ -118,12 +155,172 @@ public class HttpAdapter implements Adapter {
         return response;
     }
 
+    @Override
+    public CompletableFuture<Response> postAsync(String path, Body body) {
+        return sendAsync(postRequest(path, body));
+    }
+
+    @Override
+    public CompletableFuture<Response> getAsync(String path) {
+        return sendAsync(getRequest(path));
+    }
+
+    @Override
+    public CompletableFuture<Response> getAsync(String path, Map<String, String> headers) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url + path)).GET();
+        headers.forEach(builder::header);
+        return sendAsync(builder.build());
+    }
+
+    @Override
+    public CompletableFuture<Response> deleteAsync(String path) {
+        return sendAsync(deleteRequest(path));
+    }
+
+    @Override
+    public CompletableFuture<Response> putAsync(String path, Body body) {
+        return sendAsync(putRequest(path, body));
+    }
+
+    @Override
+    public CompletableFuture<Response> headAsync(String path) {
+        return sendAsync(headRequest(path));
+    }
+
+    private CompletableFuture<Response> sendAsync(HttpRequest request) {
+        CompletableFuture<HttpResponse<byte[]>> exchange = pool.execute(client -> client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()));
+        CompletableFuture<Response> response = exchange
+                .thenApply(httpResponse -> new Response(httpResponse.statusCode(), body(httpResponse), headers(httpResponse)));
+        // cancellation does not travel upstream through thenApply, so abort the exchange
+        // ourselves when the caller completes the response first (timeout, cancel, ...)
+        response.whenComplete((ignored, error) -> {
+            if (error != null && !exchange.isDone()) {
+                logAbort(request, response);
+                exchange.cancel(true);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Cancelled calls, such as every hedge that lost, are routine and only logged at debug level.
+     */
+    private void logAbort(HttpRequest request, CompletableFuture<?> response) {
+        if (response.isCancelled()) {
+            log.debug("Aborting cancelled {} {} on {}", request.method(), request.uri(), name);
+        } else {
+            log.warn("Aborting {} {} on {}", request.method(), request.uri(), name);
+        }
+    }
+
+    @Override
+    public CompletableFuture<StreamedResponse> streamAsync(Method method, String path, InputStream body) {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofInputStream(() -> body);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
+                .method(method.name(), publisher)
+                .build();
+        // not counted against the pool's connections, the body is read long after the exchange completes
+        CompletableFuture<HttpResponse<InputStream>> exchange = pool.client().sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+        CompletableFuture<StreamedResponse> response = exchange
+                .thenApply(httpResponse -> new StreamedResponse(httpResponse.statusCode(), httpResponse.body(), serverHeaders));
+        response.whenComplete((ignored, error) -> {
+            if (error == null) {
+                return;
+            }
+            if (!exchange.isDone()) {
+                logAbort(request, response);
+                exchange.cancel(true);
+            } else if (!exchange.isCompletedExceptionally()) {
+                // headers arrived but nobody will read the body, release the connection
+                closeQuietly(exchange.join().body());
+            }
+        });
+        return response;
+    }
+
+    /**
+     * The upstream headers the proxy acts on, under lower case names, plus the serving instance.
+     */
+    private Map<String, String> headers(HttpResponse<?> httpResponse) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("x-server", name);
+        for (String header : UPSTREAM_HEADERS) {
+            httpResponse.headers().firstValue(header).ifPresent(value -> headers.put(header, value));
+        }
+        return headers;
+    }
+
+    /**
+     * The bytes as they came from upstream, the body handler already gathered them into one array.
+     */
+    private static Body body(HttpResponse<byte[]> httpResponse) {
+        return httpResponse.body() == null ? Body.EMPTY : Body.wrap(httpResponse.body());
+    }
+
+    private static HttpRequest.BodyPublisher publisher(Body body) {
+        ByteBuffer bytes = body.asByteBuffer();
+        return HttpRequest.BodyPublishers.ofByteArray(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            log.warn("Error closing upstream body", e);
+        }
+    }
+
+    private HttpRequest postRequest(String path, Body body) {
+        return HttpRequest.newBuilder(URI.create(url + path))
+                .POST(publisher(body))
+                .build();
+    }
+
+    private HttpRequest getRequest(String path) {
+        return HttpRequest.newBuilder(URI.create(url + path))
+                .GET().build();
+    }
+
+    private HttpRequest deleteRequest(String path) {
+        return HttpRequest.newBuilder(URI.create(url + path))
+                .DELETE()
+                .build();
+    }
+
+    private HttpRequest putRequest(String path, Body body) {
+        return HttpRequest.newBuilder(URI.create(url + path))
+                .PUT(publisher(body))
+                .build();
+    }
+
+    private HttpRequest headRequest(String path) {
+        return HttpRequest.newBuilder(URI.create(url + path))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
     @Override
     public boolean healthcheck() {
         Response response = get("/");
         return response.status() >= 200 && response.status() < 300;
     }
 
+    @Override
+    public CompletableFuture<Boolean> healthcheckAsync(Method method, String path) {
+        CompletableFuture<Response> response = sendAsync(HttpRequest.newBuilder(URI.create(url + path))
+                .method(method.name(), HttpRequest.BodyPublishers.noBody())
+                .build());
+        CompletableFuture<Boolean> healthy = response.thenApply(probe -> probe.status() >= 200 && probe.status() < 300);
+        healthy.whenComplete((ignored, error) -> {
+            if (error != null) {
+                response.cancel(true);
+            }
+        });
+        return healthy;
+    }
+
     @Override
     public String toString() {
         return "HttpAdapter{" +
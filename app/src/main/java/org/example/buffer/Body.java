@@ -0,0 +1,126 @@
+package org.example.buffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A request or response body as the bytes that came off the wire, passed from front end to
+ * upstream and back without charset conversion or copies. The bytes are never changed once
+ * wrapped, so whoever wraps an array hands it over for good; bodies holding the same bytes are
+ * equal.
+ */
+public final class Body {
+    public static final Body EMPTY = new Body(new byte[0], 0, 0);
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    private Body(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static Body wrap(byte[] bytes) {
+        return wrap(bytes, 0, bytes.length);
+    }
+
+    public static Body wrap(byte[] bytes, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        return length == 0 ? EMPTY : new Body(bytes, offset, length);
+    }
+
+    /**
+     * The UTF-8 encoding of {@code text}, empty for null.
+     */
+    public static Body of(String text) {
+        return text == null || text.isEmpty() ? EMPTY : wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Copies {@code length} bytes from {@code index} on out of a buffer that is going to be reused,
+     * leaving its position alone.
+     */
+    public static Body copyOf(ByteBuffer buffer, int index, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(index, bytes);
+        return new Body(bytes, 0, length);
+    }
+
+    public static Body readFrom(InputStream in) throws IOException {
+        return wrap(in.readAllBytes());
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    /**
+     * A buffer over the bytes, without a copy. Only ever read from it.
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(bytes, offset, length);
+    }
+
+    public InputStream newInputStream() {
+        return new ByteArrayInputStream(bytes, offset, length);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, offset, length);
+    }
+
+    public void copyTo(ByteBuffer buffer) {
+        buffer.put(bytes, offset, length);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOfRange(bytes, offset, offset + length);
+    }
+
+    /**
+     * The bytes decoded as UTF-8.
+     */
+    public String asString() {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Body other)) {
+            return false;
+        }
+        return Arrays.equals(bytes, offset, offset + length, other.bytes, other.offset, other.offset + other.length);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return asString();
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Direct buffers of one size, handed out and taken back by a single thread so that reading a
+ * request or writing a response does not allocate a buffer for the garbage collector every time.
+ * Direct buffers also spare a socket channel the copy into a temporary direct buffer it makes
+ * for every heap buffer. Not thread safe.
+ */
+public final class BufferPool {
+    private final int bufferBytes;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+
+    /**
+     * @param maxPooled buffers kept for later, any released beyond that are left to the garbage collector
+     */
+    public BufferPool(int bufferBytes, int maxPooled) {
+        this.bufferBytes = bufferBytes;
+        this.maxPooled = maxPooled;
+    }
+
+    public int bufferBytes() {
+        return bufferBytes;
+    }
+
+    /**
+     * A cleared buffer of {@link #bufferBytes()}.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.pollLast();
+        return buffer == null ? ByteBuffer.allocateDirect(bufferBytes) : buffer.clear();
+    }
+
+    /**
+     * Takes a buffer back, the caller must not touch it any more. Buffers that did not come from a
+     * pool, like heap buffers or direct ones of another size, are ignored, so anything written can
+     * be released without keeping track of where it came from.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.isDirect() && buffer.capacity() == bufferBytes && free.size() < maxPooled) {
+            free.addLast(buffer);
+        }
+    }
+
+    /**
+     * Buffers waiting to be acquired again.
+     */
+    public int pooled() {
+        return free.size();
+    }
+}
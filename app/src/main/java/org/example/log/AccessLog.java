@@ -0,0 +1,335 @@
+package org.example.log;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.request.Method;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes one JSON line per request to a file, off the request path. {@link #log} only claims a slot
+ * in a ring of preallocated arrays and fills it in: it takes no lock, does no I/O and allocates
+ * nothing. When the ring is full the record is dropped and counted rather than making the request
+ * wait. A single writer thread turns the records into lines in batches, writes them through a
+ * {@link FileChannel} and starts a new file once the current one reaches {@code maxFileBytes},
+ * keeping {@code maxFiles} older ones as {@code <path>.1} (the newest) to {@code <path>.<maxFiles>}.
+ */
+@Slf4j
+public class AccessLog {
+    public static final int DEFAULT_CAPACITY = 16 * 1024;
+    public static final long DEFAULT_MAX_FILE_BYTES = 100L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final Method[] METHODS = Method.values();
+
+    private final Path path;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final int mask;
+
+    // the ring: slot i holds the record with sequence published[i]
+    private final AtomicLongArray published;
+    private final long[] timesMs;
+    private final long[] durationsNanos;
+    private final long[] bytes;
+    private final int[] statuses;
+    private final byte[] methods;
+    private final String[] clients;
+    private final String[] paths;
+    private final String[] upstreams;
+    // the next sequence to hand out, and the first one the writer has not taken yet
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running;
+
+    // only touched by the writer thread
+    private final StringBuilder line = new StringBuilder(256);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private FileChannel channel;
+    private long fileBytes;
+
+    public AccessLog(Config config) {
+        this(Path.of(config.getAccessLog()), config.getAccessLogCapacity(), config.getAccessLogMaxBytes(), config.getAccessLogMaxFiles());
+    }
+
+    /**
+     * @param capacity records waiting to be written at most, rounded up to a power of two
+     */
+    public AccessLog(Path path, int capacity, long maxFileBytes, int maxFiles) {
+        this.path = path;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(Math.min(capacity, 1 << 30) - 1) << 1;
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.timesMs = new long[size];
+        this.durationsNanos = new long[size];
+        this.bytes = new long[size];
+        this.statuses = new int[size];
+        this.methods = new byte[size];
+        this.clients = new String[size];
+        this.paths = new String[size];
+        this.upstreams = new String[size];
+        this.writer = new Thread(this::run, "access-log");
+        this.writer.setDaemon(true);
+    }
+
+    public void start() throws IOException {
+        open();
+        running = true;
+        writer.start();
+        log.info("Writing the access log to {}", path);
+    }
+
+    /**
+     * Writes what is still in the ring and closes the file.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues one record for the writer.
+     *
+     * @param clientAddress  may be null
+     * @param responseBytes  body length, negative if not known up front
+     * @param upstream       the instance that answered, null if none did
+     * @return false if the ring was full and the record was dropped
+     */
+    public boolean log(long timeMs, String clientAddress, Method method, String path, int status, long responseBytes,
+                       long durationNanos, String upstream) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() > mask) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        int index = (int) (sequence & mask);
+        timesMs[index] = timeMs;
+        durationsNanos[index] = durationNanos;
+        bytes[index] = responseBytes;
+        statuses[index] = status;
+        methods[index] = (byte) method.ordinal();
+        clients[index] = clientAddress;
+        paths[index] = path;
+        upstreams[index] = upstream;
+        // makes the fields above visible to the writer along with it
+        published.setRelease(index, sequence);
+        return true;
+    }
+
+    /**
+     * Records dropped because the writer fell behind, or lost to a failed write.
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long written() {
+        return written.sum();
+    }
+
+    private void run() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_WAIT_NANOS);
+            }
+        }
+        // what was logged before stop()
+        int drained;
+        do {
+            drained = drain();
+        } while (drained > 0);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Error closing access log {}", path, e);
+        }
+    }
+
+    /**
+     * Writes the records published so far, at most one ring's worth.
+     *
+     * @return records taken out of the ring
+     */
+    private int drain() {
+        long next = consumed.get();
+        int count = 0;
+        int buffered = 0;
+        while (count <= mask) {
+            int index = (int) (next & mask);
+            if (published.getAcquire(index) != next) {
+                break;
+            }
+            format(index);
+            clients[index] = null;
+            paths[index] = null;
+            upstreams[index] = null;
+            next++;
+            count++;
+            // hands the slot back to the request threads
+            consumed.setRelease(next);
+            if (line.length() > buffer.remaining()) {
+                flush(buffered);
+                buffered = 0;
+            }
+            if (line.length() > buffer.capacity()) {
+                // only a very long path gets here
+                writeLine();
+            } else {
+                putLine();
+                buffered++;
+            }
+        }
+        flush(buffered);
+        return count;
+    }
+
+    private void format(int index) {
+        line.setLength(0);
+        line.append("{\"time\":\"");
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(timesMs[index]), line);
+        line.append("\",\"client\":");
+        appendString(clients[index]);
+        line.append(",\"method\":\"").append(METHODS[methods[index]].name());
+        line.append("\",\"path\":");
+        appendString(paths[index]);
+        line.append(",\"status\":").append(statuses[index]);
+        line.append(",\"bytes\":");
+        if (bytes[index] < 0) {
+            line.append("null");
+        } else {
+            line.append(bytes[index]);
+        }
+        line.append(",\"duration_us\":").append(TimeUnit.NANOSECONDS.toMicros(durationsNanos[index]));
+        line.append(",\"upstream\":");
+        appendString(upstreams[index]);
+        line.append("}\n");
+    }
+
+    /**
+     * A JSON string with everything outside printable ASCII escaped, so every char is one byte.
+     */
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                line.append("\\u");
+                for (int shift = 12; shift >= 0; shift -= 4) {
+                    line.append(Character.forDigit((c >> shift) & 0xf, 16));
+                }
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    private void putLine() {
+        for (int i = 0; i < line.length(); i++) {
+            buffer.put((byte) line.charAt(i));
+        }
+    }
+
+    private void writeLine() {
+        ByteBuffer bytes = ByteBuffer.allocate(line.length());
+        for (int i = 0; i < line.length(); i++) {
+            bytes.put((byte) line.charAt(i));
+        }
+        write(bytes.flip(), 1);
+    }
+
+    /**
+     * @param records lines in the buffer
+     */
+    private void flush(int records) {
+        if (buffer.position() > 0) {
+            write(buffer.flip(), records);
+            buffer.clear();
+        }
+    }
+
+    private void write(ByteBuffer bytes, int records) {
+        try {
+            if (fileBytes > 0 && fileBytes + bytes.remaining() > maxFileBytes) {
+                try {
+                    rotate();
+                } catch (IOException e) {
+                    // keeps writing to the current file, the next write tries again
+                    log.error("Error rotating access log {}", path, e);
+                }
+            }
+            while (bytes.hasRemaining()) {
+                fileBytes += channel.write(bytes);
+            }
+            written.add(records);
+        } catch (IOException e) {
+            log.error("Error writing access log {}", path, e);
+            dropped.add(records);
+        }
+    }
+
+    /**
+     * Moves the files along while the current one stays open, and only closes it once the new one
+     * is, so that a failure on the way leaves a file to write to.
+     */
+    private void rotate() throws IOException {
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = rotated(i);
+            if (Files.exists(older)) {
+                Files.move(older, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(path, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        FileChannel full = channel;
+        open();
+        full.close();
+    }
+
+    private Path rotated(int generation) {
+        return path.resolveSibling(path.getFileName() + "." + generation);
+    }
+
+    private void open() throws IOException {
+        FileChannel opened = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        fileBytes = opened.size();
+        channel = opened;
+    }
+}
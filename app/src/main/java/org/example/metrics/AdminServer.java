@@ -0,0 +1,69 @@
+package org.example.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@code GET /metrics} on a port of its own, so scrapes neither compete with client
+ * traffic nor get shed, rate limited or routed by it.
+ */
+@Slf4j
+public class AdminServer {
+    public static final int DEFAULT_PORT = 0;
+
+    private final HttpServer httpServer;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "admin");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AdminServer(InetSocketAddress address, MetricsRegistry registry) throws IOException {
+        httpServer = HttpServer.create(address, 0);
+        httpServer.createContext("/metrics", exchange -> {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    respond(exchange, 405, "text/plain", "Method not allowed");
+                    return;
+                }
+                respond(exchange, 200, MetricsRegistry.CONTENT_TYPE, registry.scrape());
+            } catch (RuntimeException e) {
+                log.error("Error collecting metrics", e);
+            } finally {
+                exchange.close();
+            }
+        });
+        httpServer.setExecutor(executor);
+    }
+
+    public void start() {
+        httpServer.start();
+        log.info("Serving metrics on {}", httpServer.getAddress());
+    }
+
+    public InetSocketAddress address() {
+        return httpServer.getAddress();
+    }
+
+    public void stop() {
+        httpServer.stop(0);
+        executor.shutdown();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics read on demand and written in the Prometheus text format. Components keep their own
+ * counters and are registered once at startup as suppliers, so nothing is copied or locked on the
+ * request path; a scrape reads every supplier.
+ */
+public class MetricsRegistry {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    // one entry per metric name, in registration order
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    private record Family(String type, String help, List<Sample> samples) {
+    }
+
+    private record Sample(String labels, DoubleSupplier value, LatencyHistogram histogram) {
+    }
+
+    /**
+     * Builds a label set from name and value pairs, e.g. {@code labels("group", "api")}.
+     */
+    public static String labels(String... namesAndValues) {
+        return with("", namesAndValues);
+    }
+
+    /**
+     * The label set with more pairs appended.
+     */
+    public static String with(String labels, String... namesAndValues) {
+        StringBuilder builder = new StringBuilder(labels.isEmpty() ? "{" : labels.substring(0, labels.length() - 1));
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            if (builder.length() > 1) {
+                builder.append(',');
+            }
+            builder.append(namesAndValues[i]).append("=\"").append(escape(namesAndValues[i + 1])).append('"');
+        }
+        return builder.length() == 1 ? "" : builder.append('}').toString();
+    }
+
+    public synchronized void counter(String name, String help, String labels, LongSupplier value) {
+        add(name, "counter", help, new Sample(labels, value::getAsLong, null));
+    }
+
+    public synchronized void gauge(String name, String help, String labels, DoubleSupplier value) {
+        add(name, "gauge", help, new Sample(labels, value, null));
+    }
+
+    /**
+     * Quantiles, sum and count of a histogram of nanoseconds, exported in seconds.
+     */
+    public synchronized void summary(String name, String help, String labels, LatencyHistogram histogram) {
+        add(name, "summary", help, new Sample(labels, null, histogram));
+    }
+
+    public synchronized String scrape() {
+        StringBuilder out = new StringBuilder();
+        families.forEach((name, family) -> {
+            out.append("# HELP ").append(name).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type()).append('\n');
+            for (Sample sample : family.samples()) {
+                if (sample.histogram() == null) {
+                    line(out, name, sample.labels(), sample.value().getAsDouble());
+                    continue;
+                }
+                LatencyHistogram histogram = sample.histogram();
+                for (double quantile : QUANTILES) {
+                    line(out, name, with(sample.labels(), "quantile", String.valueOf(quantile)),
+                            histogram.percentile(quantile * 100) / NANOS_PER_SECOND);
+                }
+                line(out, name + "_sum", sample.labels(), histogram.sum() / NANOS_PER_SECOND);
+                line(out, name + "_count", sample.labels(), histogram.count());
+            }
+        });
+        return out.toString();
+    }
+
+    private void add(String name, String type, String help, Sample sample) {
+        Family family = families.computeIfAbsent(name, ignored -> new Family(type, help, new ArrayList<>()));
+        if (!family.type().equals(type)) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type());
+        }
+        family.samples().add(sample);
+    }
+
+    private static void line(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
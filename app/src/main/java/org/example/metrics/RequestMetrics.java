@@ -0,0 +1,73 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Responses by status class, failed calls and the latency of both, for one adapter or route.
+ * Recording only increments counters, so it is safe on the request path of every thread.
+ */
+public class RequestMetrics {
+    static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final LongAdder[] responses = new LongAdder[STATUS_CLASSES.length];
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public RequestMetrics() {
+        for (int i = 0; i < responses.length; i++) {
+            responses[i] = new LongAdder();
+        }
+    }
+
+    public void onResponse(int status, long latencyNanos) {
+        int statusClass = status / 100 - 1;
+        if (statusClass >= 0 && statusClass < responses.length) {
+            responses[statusClass].increment();
+        }
+        latency.record(latencyNanos);
+    }
+
+    /**
+     * The call failed or timed out without a response.
+     */
+    public void onError(long latencyNanos) {
+        errors.increment();
+        latency.record(latencyNanos);
+    }
+
+    /**
+     * @param statusClass 1 for 1xx up to 5 for 5xx
+     */
+    public long responses(int statusClass) {
+        return responses[statusClass - 1].sum();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    /**
+     * Responses and errors alike.
+     */
+    public long requests() {
+        return latency.count();
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    /**
+     * Adds {@code <prefix>_responses_total}, {@code <prefix>_errors_total} and
+     * {@code <prefix>_latency_seconds} to the registry.
+     */
+    public void register(MetricsRegistry registry, String prefix, String help, String labels) {
+        for (int i = 0; i < STATUS_CLASSES.length; i++) {
+            int statusClass = i + 1;
+            registry.counter(prefix + "_responses_total", help + " responses by status class",
+                    MetricsRegistry.with(labels, "code", STATUS_CLASSES[i]), () -> responses(statusClass));
+        }
+        registry.counter(prefix + "_errors_total", help + " calls that failed without a response", labels, this::errors);
+        registry.summary(prefix + "_latency_seconds", help + " latency", labels, latency);
+    }
+}
@@ -1,5 +1,27 @@
 package org.example.request;
 
 public enum Method {
-    POST, GET, DELETE, HEAD, PUT
+    POST(false, false), GET(true, true), DELETE(false, true), HEAD(true, true), PUT(false, true);
+
+    private final boolean safe;
+    private final boolean idempotent;
+
+    Method(boolean safe, boolean idempotent) {
+        this.safe = safe;
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * Safe methods do not change anything upstream, so sending one twice is harmless.
+     */
+    public boolean isSafe() {
+        return safe;
+    }
+
+    /**
+     * Sending an idempotent request twice has the same effect as sending it once.
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
 }
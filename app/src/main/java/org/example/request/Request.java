@@ -1,9 +1,34 @@
 package org.example.request;
 
+import org.example.buffer.Body;
+
+import java.util.List;
+import java.util.Map;
+
 public interface Request {
     Method method();
 
     String path();
 
-    String payload();
+    Body payload();
+
+    Map<String, List<String>> headers();
+
+    /**
+     * IP address of the client that sent the request, or null if the front end does not know it.
+     */
+    String clientAddress();
+
+    default String header(String name) {
+        List<String> values = headers().get(name);
+        if (values == null) {
+            for (Map.Entry<String, List<String>> entry : headers().entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(name)) {
+                    values = entry.getValue();
+                    break;
+                }
+            }
+        }
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
 }
@@ -1,6 +1,29 @@
 package org.example.request;
 
-public record RequestImpl(Method method, String path, String payload) implements Request {
+import org.example.buffer.Body;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public record RequestImpl(Method method, String path, Body payload, Map<String, List<String>> headers,
+                          String clientAddress) implements Request {
+    public RequestImpl {
+        payload = payload == null ? Body.EMPTY : payload;
+    }
+
+    public RequestImpl(Method method, String path, String payload) {
+        this(method, path, payload, Collections.emptyMap());
+    }
+
+    public RequestImpl(Method method, String path, String payload, Map<String, List<String>> headers) {
+        this(method, path, payload, headers, null);
+    }
+
+    public RequestImpl(Method method, String path, String payload, Map<String, List<String>> headers, String clientAddress) {
+        this(method, path, Body.of(payload), headers, clientAddress);
+    }
+
     @Override
     public Method method() {
         return method;
@@ -12,7 +35,17 @@ public record RequestImpl(Method method, String path, String payload) implements
     }
 
     @Override
-    public String payload() {
+    public Body payload() {
         return payload;
     }
+
+    @Override
+    public Map<String, List<String>> headers() {
+        return headers;
+    }
+
+    @Override
+    public String clientAddress() {
+        return clientAddress;
+    }
 }
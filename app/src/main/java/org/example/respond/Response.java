@@ -1,6 +1,24 @@
 package org.example.respond;
 
+import org.example.buffer.Body;
+
+import java.util.List;
 import java.util.Map;
 
-public record Response(int status, String body, Map<String, String> headers) {
-}
\ No newline at end of file
+public record Response(int status, Body body, Map<String, String> headers) {
+    /**
+     * The headers passed on to the client, every other upstream header stays in the proxy.
+     */
+    public static final List<String> CLIENT_HEADERS = List.of("x-server", "retry-after", "content-type", "content-encoding");
+
+    public Response {
+        body = body == null ? Body.EMPTY : body;
+    }
+
+    /**
+     * @param body sent as UTF-8
+     */
+    public Response(int status, String body, Map<String, String> headers) {
+        this(status, Body.of(body), headers);
+    }
+}
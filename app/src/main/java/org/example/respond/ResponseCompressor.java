@@ -0,0 +1,260 @@
+package org.example.respond;
+
+import org.example.Config;
+import org.example.buffer.Body;
+import org.example.buffer.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses response bodies with gzip or deflate, whichever the client's {@code Accept-Encoding}
+ * prefers, when their content type is one of the configured ones and they are at least
+ * {@code minBytes} long. Bodies the upstream already encoded are left as they are.
+ * <p>
+ * A {@link Deflater} holds native zlib state that is only freed by {@link Deflater#end()} or the
+ * garbage collector, so they are borrowed from a shared pool and reset between responses instead of
+ * allocating one per response like {@link java.util.zip.GZIPOutputStream} does. The pool is
+ * bounded, Deflaters borrowed in a burst beyond it are ended when they come back. The compressed
+ * bytes go straight into buffers from the caller's {@link BufferPool}.
+ */
+public class ResponseCompressor {
+    public static final int DEFAULT_MIN_BYTES = 1024;
+    public static final List<String> DEFAULT_CONTENT_TYPES = List.of("text/*", "application/json", "application/javascript",
+            "application/xml", "image/svg+xml");
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int GZIP_TRAILER_BYTES = 8;
+    // compressing at the same time on more threads than there are processors gains nothing
+    public static final int DEFAULT_MAX_POOLED_CODECS = Runtime.getRuntime().availableProcessors();
+    // buffers for the compressed bytes when the caller has no pool
+    private static final int BUFFER_BYTES = 8 * 1024;
+
+    public enum Encoding {
+        GZIP,
+        DEFLATE;
+
+        public String token() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * @param buffers         the bytes to send, a view of the body or the compressed bytes in
+     *                        buffers from the pool, which the caller releases once written
+     * @param length          bytes remaining in {@code buffers}
+     * @param contentEncoding the encoding applied, null if the body is sent as it is
+     * @param varies          whether the body depends on {@code Accept-Encoding}, for the
+     *                        {@code Vary} header
+     */
+    public record Encoded(List<ByteBuffer> buffers, int length, String contentEncoding, boolean varies) {
+        static Encoded identity(Body body, boolean varies) {
+            return new Encoded(List.of(body.asByteBuffer()), body.length(), null, varies);
+        }
+    }
+
+    private final int minBytes;
+    private final List<String> contentTypes;
+    private final BlockingQueue<Codec> codecs;
+
+    private static final class Codec {
+        private final Deflater gzip = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final Deflater deflate = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final CRC32 crc = new CRC32();
+
+        void end() {
+            gzip.end();
+            deflate.end();
+        }
+    }
+
+    public ResponseCompressor(Config config) {
+        this(config.getCompressMinBytes(), config.getCompressTypes());
+    }
+
+    public ResponseCompressor(int minBytes, List<String> contentTypes) {
+        this(minBytes, contentTypes, DEFAULT_MAX_POOLED_CODECS);
+    }
+
+    /**
+     * @param contentTypes     media types like {@code application/json}, or {@code text/*} for a
+     *                         whole top-level type
+     * @param maxPooledCodecs  Deflater pairs kept between responses
+     */
+    public ResponseCompressor(int minBytes, List<String> contentTypes, int maxPooledCodecs) {
+        this.minBytes = minBytes;
+        this.contentTypes = contentTypes.stream().map(type -> type.trim().toLowerCase(Locale.ROOT)).toList();
+        this.codecs = new ArrayBlockingQueue<>(maxPooledCodecs);
+    }
+
+    /**
+     * @param upstreamHeaders the response's headers, under lower case names
+     * @param acceptEncoding  the client's {@code Accept-Encoding}, may be null
+     * @param pool            where to take buffers for the compressed bytes from, null to allocate
+     *                        them; only touched by the calling thread
+     */
+    public Encoded encode(Map<String, String> upstreamHeaders, Body body, String acceptEncoding, BufferPool pool) {
+        if (upstreamHeaders.containsKey("content-encoding") || !isCompressible(upstreamHeaders.get("content-type"))) {
+            return Encoded.identity(body, false);
+        }
+        Encoding encoding = negotiate(acceptEncoding);
+        if (encoding == null || body.length() < minBytes) {
+            return Encoded.identity(body, true);
+        }
+        List<ByteBuffer> buffers = new ArrayList<>();
+        int length = compress(body, encoding, pool, buffers);
+        if (length < 0) {
+            buffers.forEach(buffer -> release(pool, buffer));
+            return Encoded.identity(body, true);
+        }
+        return new Encoded(buffers, length, encoding.token(), true);
+    }
+
+    boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int parameters = contentType.indexOf(';');
+        String mediaType = (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim().toLowerCase(Locale.ROOT);
+        for (String type : contentTypes) {
+            if (type.endsWith("/*") ? mediaType.startsWith(type.substring(0, type.length() - 1)) : mediaType.equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the accepted encoding with the highest quality, gzip on a tie, or null for none
+     */
+    static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parts);
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzip = quality;
+                case "deflate" -> deflate = quality;
+                case "*" -> any = quality;
+                default -> {
+                }
+            }
+        }
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? Encoding.GZIP : Encoding.DEFLATE;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Adds the compressed body to {@code buffers}, flipped for reading.
+     *
+     * @return the compressed length, or -1 once it is no shorter than the body, which already dense
+     * content like embedded base64 images can be
+     */
+    int compress(Body body, Encoding encoding, BufferPool pool, List<ByteBuffer> buffers) {
+        Codec codec = borrow();
+        Deflater deflater = encoding == Encoding.GZIP ? codec.gzip : codec.deflate;
+        try {
+            ByteBuffer out = acquire(pool);
+            buffers.add(out);
+            if (encoding == Encoding.GZIP) {
+                out.put(GZIP_HEADER);
+            }
+            int length = out.position();
+            deflater.setInput(body.asByteBuffer());
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (length >= body.length()) {
+                    return -1;
+                }
+                if (!out.hasRemaining()) {
+                    out = acquire(pool);
+                    buffers.add(out);
+                }
+                length += deflater.deflate(out);
+            }
+            if (encoding == Encoding.GZIP) {
+                codec.crc.reset();
+                codec.crc.update(body.asByteBuffer());
+                out = writeIntLittleEndian(out, (int) codec.crc.getValue(), pool, buffers);
+                writeIntLittleEndian(out, body.length(), pool, buffers);
+                length += GZIP_TRAILER_BYTES;
+            }
+            buffers.forEach(ByteBuffer::flip);
+            return length < body.length() ? length : -1;
+        } finally {
+            // also lets go of the body
+            deflater.reset();
+            giveBack(codec);
+        }
+    }
+
+    private Codec borrow() {
+        Codec codec = codecs.poll();
+        return codec == null ? new Codec() : codec;
+    }
+
+    private void giveBack(Codec codec) {
+        if (!codecs.offer(codec)) {
+            codec.end();
+        }
+    }
+
+    /**
+     * Deflater pairs waiting to be borrowed again.
+     */
+    int pooledCodecs() {
+        return codecs.size();
+    }
+
+    private static ByteBuffer acquire(BufferPool pool) {
+        return pool == null ? ByteBuffer.allocate(BUFFER_BYTES) : pool.acquire();
+    }
+
+    private static void release(BufferPool pool, ByteBuffer buffer) {
+        if (pool != null) {
+            pool.release(buffer);
+        }
+    }
+
+    private static ByteBuffer writeIntLittleEndian(ByteBuffer out, int value, BufferPool pool, List<ByteBuffer> buffers) {
+        for (int i = 0; i < 4; i++) {
+            if (!out.hasRemaining()) {
+                out = acquire(pool);
+                buffers.add(out);
+            }
+            out.put((byte) (value >>> (8 * i)));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.respond;
+
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Response whose body is read from upstream as it arrives. Whoever consumes the body must close it.
+ */
+public record StreamedResponse(int status, InputStream body, Map<String, String> headers) {
+    public static StreamedResponse of(Response response) {
+        return new StreamedResponse(response.status(), response.body().newInputStream(), response.headers());
+    }
+}
@@ -0,0 +1,264 @@
+package org.example.server;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.buffer.BufferPool;
+import org.example.request.Method;
+import org.example.respond.Response;
+import org.example.respond.ResponseCompressor;
+import org.example.service.RoutingService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One client connection, only ever touched by the thread of its {@link EventLoop}. Pipelined
+ * requests are all forwarded right away and their responses are written back in request order.
+ * The read buffer grows up to the request size limit, and reading stops while too many responses
+ * are outstanding or the client is not reading what was written.
+ * <p>
+ * Buffers come from the loop's {@link BufferPool} and go back as soon as they are done with: the
+ * read buffer whenever no partial request is left in it, so idle keep-alive connections hold none,
+ * and a response's buffer once it is written.
+ */
+@Slf4j
+final class Connection {
+    static final int MAX_PIPELINED = 16;
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final Response INTERNAL_ERROR_RESPONSE = new Response(500, "Internal server error", Collections.emptyMap());
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final EventLoop loop;
+    private final RoutingService routingService;
+    private final int maxRequestBytes;
+    private final BufferPool pool;
+    // null unless compression is on
+    private final ResponseCompressor compressor;
+    private final String clientAddress;
+    private final Queue<Exchange> exchanges = new ArrayDeque<>();
+    private final Queue<ByteBuffer> writes = new ArrayDeque<>();
+    // a response takes up to two buffers, see HttpResponseEncoder, plus a 100 Continue or a rejection
+    private final ByteBuffer[] gather = new ByteBuffer[2 * MAX_PIPELINED + 2];
+    // null while it holds no partial request
+    private ByteBuffer readBuffer;
+    private boolean continueSent;
+    // no more requests are read, the connection closes once the outstanding responses are written
+    private boolean closing;
+    // the client sent everything it is going to, requests already read are still answered
+    private boolean inputClosed;
+    private boolean closed;
+    private long lastActiveNanos = System.nanoTime();
+
+    Connection(SocketChannel channel, SelectionKey key, EventLoop loop, RoutingService routingService, int maxRequestBytes,
+               BufferPool pool, ResponseCompressor compressor, String clientAddress) {
+        this.channel = channel;
+        this.clientAddress = clientAddress;
+        this.key = key;
+        this.loop = loop;
+        this.routingService = routingService;
+        this.maxRequestBytes = maxRequestBytes;
+        this.pool = pool;
+        this.compressor = compressor;
+    }
+
+    private static final class Exchange {
+        private final boolean keepAlive;
+        private final boolean head;
+        private final String acceptEncoding;
+        private Response response;
+
+        private Exchange(boolean keepAlive, boolean head, String acceptEncoding) {
+            this.keepAlive = keepAlive;
+            this.head = head;
+            this.acceptEncoding = acceptEncoding;
+        }
+    }
+
+    boolean isIdle(long nowNanos, long idleNanos) {
+        return exchanges.isEmpty() && writes.isEmpty() && nowNanos - lastActiveNanos > idleNanos;
+    }
+
+    void onReadable() {
+        if (readBuffer == null) {
+            readBuffer = pool.acquire();
+        }
+        int read;
+        try {
+            read = channel.read(readBuffer);
+        } catch (IOException e) {
+            log.debug("Error reading from {}", channel, e);
+            close();
+            return;
+        }
+        if (read < 0) {
+            inputClosed = true;
+        } else {
+            lastActiveNanos = System.nanoTime();
+        }
+        processRequests();
+    }
+
+    void onWritable() {
+        write();
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (readBuffer != null) {
+            pool.release(readBuffer);
+            readBuffer = null;
+        }
+        writes.forEach(pool::release);
+        writes.clear();
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Error closing {}", channel, e);
+        }
+        loop.closed(this);
+    }
+
+    private void processRequests() {
+        readBuffer.flip();
+        try {
+            while (!closing && exchanges.size() < MAX_PIPELINED && readBuffer.hasRemaining()) {
+                HttpRequestParser.ParsedRequest parsed = HttpRequestParser.parse(readBuffer, clientAddress);
+                if (parsed == null) {
+                    if (!continueSent && exchanges.isEmpty() && HttpRequestParser.expectsContinue(readBuffer)) {
+                        continueSent = true;
+                        writes.add(ByteBuffer.wrap(CONTINUE));
+                    }
+                    break;
+                }
+                continueSent = false;
+                forward(parsed);
+            }
+        } catch (HttpRequestParser.BadRequestException e) {
+            log.info("Rejecting request from {}: {}", channel, e.getMessage());
+            reject(e.status());
+        }
+        if (closed) {
+            // the rejection was written and the connection closed
+            return;
+        }
+        readBuffer.compact();
+        if (!closing && exchanges.size() < MAX_PIPELINED && !readBuffer.hasRemaining()) {
+            // a single request does not fit
+            if (readBuffer.capacity() < maxRequestBytes) {
+                ByteBuffer grown = ByteBuffer.allocate((int) Math.min(2L * readBuffer.capacity(), maxRequestBytes)).put(readBuffer.flip());
+                pool.release(readBuffer);
+                readBuffer = grown;
+            } else {
+                reject(413);
+                if (closed) {
+                    return;
+                }
+            }
+        }
+        if (readBuffer.position() == 0) {
+            pool.release(readBuffer);
+            readBuffer = null;
+        }
+        write();
+    }
+
+    private void forward(HttpRequestParser.ParsedRequest parsed) {
+        Exchange exchange = new Exchange(parsed.keepAlive(), parsed.request().method() == Method.HEAD,
+                parsed.request().header("Accept-Encoding"));
+        exchanges.add(exchange);
+        if (!parsed.keepAlive()) {
+            closing = true;
+        }
+        CompletableFuture<Response> response;
+        try {
+            response = routingService.forwardRequestAsync(parsed.request());
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((result, error) -> loop.execute(() -> {
+            if (error != null) {
+                log.error("Error forwarding {}", parsed.request(), error);
+            }
+            exchange.response = error == null ? result : INTERNAL_ERROR_RESPONSE;
+            onResponse();
+        }));
+    }
+
+    private void reject(int status) {
+        Exchange exchange = new Exchange(false, false, null);
+        exchange.response = new Response(status, HttpResponseEncoder.reason(status), Collections.emptyMap());
+        exchanges.add(exchange);
+        closing = true;
+        onResponse();
+    }
+
+    private void onResponse() {
+        if (closed) {
+            return;
+        }
+        while (!exchanges.isEmpty() && exchanges.peek().response != null) {
+            Exchange exchange = exchanges.poll();
+            HttpResponseEncoder.encode(exchange.response, exchange.keepAlive, exchange.head, compressor, exchange.acceptEncoding, pool, writes);
+            if (!exchange.keepAlive) {
+                // later requests were never read
+                exchanges.clear();
+            }
+        }
+        if (!closing && exchanges.size() < MAX_PIPELINED && readBuffer != null) {
+            // requests that were read but held back by the pipelining limit
+            processRequests();
+        } else {
+            write();
+        }
+    }
+
+    private void write() {
+        if (closed) {
+            return;
+        }
+        try {
+            boolean full = false;
+            while (!writes.isEmpty() && !full) {
+                // one write for all pending responses, each one's head and body included
+                int count = 0;
+                for (ByteBuffer buffer : writes) {
+                    if (count == gather.length) {
+                        break;
+                    }
+                    gather[count++] = buffer;
+                }
+                channel.write(gather, 0, count);
+                Arrays.fill(gather, 0, count, null);
+                int written = 0;
+                while (!writes.isEmpty() && !writes.peek().hasRemaining()) {
+                    pool.release(writes.poll());
+                    written++;
+                    lastActiveNanos = System.nanoTime();
+                }
+                full = written < count;
+            }
+        } catch (IOException e) {
+            log.debug("Error writing to {}", channel, e);
+            close();
+            return;
+        }
+        if ((closing || inputClosed) && exchanges.isEmpty() && writes.isEmpty()) {
+            close();
+            return;
+        }
+        boolean reading = !closing && !inputClosed && exchanges.size() < MAX_PIPELINED && writes.isEmpty();
+        key.interestOps((reading ? SelectionKey.OP_READ : 0) | (writes.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+    }
+}
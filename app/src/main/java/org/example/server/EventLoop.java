@@ -0,0 +1,141 @@
+package org.example.server;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.buffer.BufferPool;
+import org.example.respond.ResponseCompressor;
+import org.example.service.RoutingService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread running one selector over its share of the connections. Other threads hand it work, like
+ * a new connection or a finished upstream call, through {@link #execute(Runnable)}.
+ */
+@Slf4j
+final class EventLoop implements Runnable {
+    static final long IDLE_TIMEOUT_MS = 60_000;
+    private static final long SELECT_TIMEOUT_MS = 1000;
+    private static final int BUFFER_BYTES = 8 * 1024;
+    // 2 MB per loop at most, enough for the requests and responses in flight at any one time
+    private static final int MAX_POOLED_BUFFERS = 256;
+
+    private final Selector selector;
+    private final RoutingService routingService;
+    private final int maxRequestBytes;
+    private final BufferPool pool;
+    private final ResponseCompressor compressor;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // only touched by the loop thread
+    private final Set<Connection> connections = new HashSet<>();
+    private volatile boolean running = true;
+
+    EventLoop(RoutingService routingService, int maxRequestBytes, ResponseCompressor compressor) throws IOException {
+        this.selector = Selector.open();
+        this.routingService = routingService;
+        this.maxRequestBytes = maxRequestBytes;
+        this.pool = new BufferPool(Math.min(BUFFER_BYTES, maxRequestBytes), MAX_POOLED_BUFFERS);
+        this.compressor = compressor;
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                InetSocketAddress remote = (InetSocketAddress) channel.getRemoteAddress();
+                String clientAddress = remote == null ? null : remote.getAddress().getHostAddress();
+                Connection connection = new Connection(channel, key, this, routingService, maxRequestBytes, pool, compressor, clientAddress);
+                key.attach(connection);
+                connections.add(connection);
+            } catch (IOException e) {
+                log.error("Error registering {}", channel, e);
+                closeQuietly(channel);
+            }
+        });
+    }
+
+    void closed(Connection connection) {
+        connections.remove(connection);
+    }
+
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MS);
+        long lastIdleCheck = System.nanoTime();
+        while (running) {
+            try {
+                selector.select(SELECT_TIMEOUT_MS);
+                for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+                    run(task);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isValid() && key.isReadable()) {
+                        run(connection::onReadable);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        run(connection::onWritable);
+                    }
+                }
+                long now = System.nanoTime();
+                if (now - lastIdleCheck > TimeUnit.MILLISECONDS.toNanos(SELECT_TIMEOUT_MS)) {
+                    lastIdleCheck = now;
+                    for (Connection connection : new ArrayList<>(connections)) {
+                        if (connection.isIdle(now, idleNanos)) {
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Error selecting", e);
+            }
+        }
+        new ArrayList<>(connections).forEach(Connection::close);
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.warn("Error closing selector", e);
+        }
+    }
+
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // catching all exceptions so the loop wont die
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Error closing {}", channel, e);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.example.server;
+
+import org.example.buffer.Body;
+import org.example.request.Method;
+import org.example.request.Request;
+import org.example.request.RequestImpl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Parses HTTP/1.1 requests straight out of a connection's read buffer. A request is only consumed
+ * once it arrived completely, body included, so the parser keeps no state between reads.
+ */
+final class HttpRequestParser {
+    private HttpRequestParser() {
+    }
+
+    record ParsedRequest(Request request, boolean keepAlive) {
+    }
+
+    /**
+     * Rejects a request with the given status; the connection is closed after the response.
+     */
+    static final class BadRequestException extends RuntimeException {
+        private final int status;
+
+        BadRequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        int status() {
+            return status;
+        }
+    }
+
+    static ParsedRequest parse(ByteBuffer buffer) {
+        return parse(buffer, null);
+    }
+
+    /**
+     * @param buffer        readable bytes from position to limit; the position is moved past the request
+     * @param clientAddress IP address of the client, passed on with the request
+     * @return the next request, or null if it has not arrived completely
+     */
+    static ParsedRequest parse(ByteBuffer buffer, String clientAddress) {
+        skipEmptyLines(buffer);
+        int start = buffer.position();
+        int headerEnd = headerEnd(buffer, start);
+        if (headerEnd < 0) {
+            return null;
+        }
+        List<String> lines = lines(buffer, start, headerEnd);
+        String[] requestLine = lines.get(0).split(" ", -1);
+        if (requestLine.length != 3 || requestLine[1].isEmpty() || !requestLine[2].startsWith("HTTP/1.")) {
+            throw new BadRequestException(400, "Malformed request line: " + lines.get(0));
+        }
+        Method method;
+        try {
+            method = Method.valueOf(requestLine[0]);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(501, "Unsupported method: " + requestLine[0]);
+        }
+        Map<String, List<String>> headers = headers(lines);
+        if (requestLine[2].equals("HTTP/1.1") && !headers.containsKey("Host")) {
+            throw new BadRequestException(400, "Missing Host header");
+        }
+        int bodyStart = headerEnd + 4;
+        Body body;
+        String transferEncoding = first(headers, "Transfer-Encoding");
+        if (transferEncoding != null) {
+            if (headers.containsKey("Content-Length")) {
+                // the two disagreeing is how requests get smuggled past proxies
+                throw new BadRequestException(400, "Both Transfer-Encoding and Content-Length are set");
+            }
+            if (!transferEncoding.equalsIgnoreCase("chunked")) {
+                throw new BadRequestException(501, "Unsupported transfer encoding: " + transferEncoding);
+            }
+            body = chunkedBody(buffer, bodyStart);
+            if (body == null) {
+                return null;
+            }
+        } else {
+            int length = contentLength(headers);
+            if (buffer.limit() - bodyStart < length) {
+                return null;
+            }
+            // the one copy, out of the read buffer that is reused for the next request
+            body = Body.copyOf(buffer, bodyStart, length);
+            buffer.position(bodyStart + length);
+        }
+        String connection = first(headers, "Connection");
+        boolean keepAlive = requestLine[2].equals("HTTP/1.0")
+                ? connection != null && connection.toLowerCase(Locale.ROOT).contains("keep-alive")
+                : connection == null || !connection.toLowerCase(Locale.ROOT).contains("close");
+        return new ParsedRequest(new RequestImpl(method, requestLine[1], body, headers, clientAddress), keepAlive);
+    }
+
+    /**
+     * @return true if the headers of the next request arrived and it waits for a 100 Continue
+     * before sending its body
+     */
+    static boolean expectsContinue(ByteBuffer buffer) {
+        int start = buffer.position();
+        int headerEnd = headerEnd(buffer, start);
+        if (headerEnd < 0) {
+            return false;
+        }
+        String expect = first(headers(lines(buffer, start, headerEnd)), "Expect");
+        return expect != null && expect.equalsIgnoreCase("100-continue");
+    }
+
+    private static void skipEmptyLines(ByteBuffer buffer) {
+        while (buffer.remaining() >= 2 && buffer.get(buffer.position()) == '\r' && buffer.get(buffer.position() + 1) == '\n') {
+            buffer.position(buffer.position() + 2);
+        }
+    }
+
+    private static int headerEnd(ByteBuffer buffer, int from) {
+        for (int i = from; i + 3 < buffer.limit(); i++) {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n' && buffer.get(i + 2) == '\r' && buffer.get(i + 3) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> lines(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return List.of(new String(bytes, StandardCharsets.ISO_8859_1).split("\r\n", -1));
+    }
+
+    private static Map<String, List<String>> headers(List<String> lines) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (String line : lines.subList(1, lines.size())) {
+            int colon = line.indexOf(':');
+            if (colon <= 0 || Character.isWhitespace(line.charAt(0)) || Character.isWhitespace(line.charAt(colon - 1))) {
+                throw new BadRequestException(400, "Malformed header: " + line);
+            }
+            headers.computeIfAbsent(line.substring(0, colon), name -> new ArrayList<>()).add(line.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    private static String first(Map<String, List<String>> headers, String name) {
+        List<String> values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    private static int contentLength(Map<String, List<String>> headers) {
+        List<String> values = headers.get("Content-Length");
+        if (values == null) {
+            return 0;
+        }
+        String value = values.get(0);
+        if (!value.matches("^[0-9]{1,9}$") || values.stream().anyMatch(other -> !other.equals(value))) {
+            throw new BadRequestException(400, "Invalid Content-Length: " + values);
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * @return the decoded body, or null if the last chunk has not arrived yet
+     */
+    private static Body chunkedBody(ByteBuffer buffer, int from) {
+        // a first pass finds the end and the size, so the chunks are copied once, straight into the body
+        int total = 0;
+        int position = from;
+        while (true) {
+            int lineEnd = lineEnd(buffer, position);
+            if (lineEnd < 0) {
+                return null;
+            }
+            int size = chunkSize(buffer, position, lineEnd);
+            position = lineEnd + 2;
+            if (size == 0) {
+                break;
+            }
+            if (buffer.limit() - position < size + 2) {
+                return null;
+            }
+            total += size;
+            position += size;
+            if (buffer.get(position) != '\r' || buffer.get(position + 1) != '\n') {
+                throw new BadRequestException(400, "Malformed chunk");
+            }
+            position += 2;
+        }
+        // trailer fields are ignored, up to the empty line that ends the message
+        while (true) {
+            int lineEnd = lineEnd(buffer, position);
+            if (lineEnd < 0) {
+                return null;
+            }
+            boolean last = lineEnd == position;
+            position = lineEnd + 2;
+            if (last) {
+                break;
+            }
+        }
+        byte[] body = new byte[total];
+        int offset = 0;
+        for (int chunk = from; offset < total; ) {
+            int lineEnd = lineEnd(buffer, chunk);
+            int size = chunkSize(buffer, chunk, lineEnd);
+            buffer.get(lineEnd + 2, body, offset, size);
+            offset += size;
+            chunk = lineEnd + 2 + size + 2;
+        }
+        buffer.position(position);
+        return Body.wrap(body);
+    }
+
+    private static int lineEnd(ByteBuffer buffer, int from) {
+        for (int i = from; i + 1 < buffer.limit(); i++) {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int chunkSize(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        String line = new String(bytes, StandardCharsets.ISO_8859_1);
+        int extension = line.indexOf(';');
+        String size = (extension < 0 ? line : line.substring(0, extension)).trim();
+        if (!size.matches("^[0-9a-fA-F]{1,7}$")) {
+            throw new BadRequestException(400, "Malformed chunk size: " + line);
+        }
+        return Integer.parseInt(size, 16);
+    }
+}
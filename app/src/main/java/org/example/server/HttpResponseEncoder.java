@@ -0,0 +1,144 @@
+package org.example.server;
+
+import org.example.buffer.Body;
+import org.example.buffer.BufferPool;
+import org.example.respond.Response;
+import org.example.respond.ResponseCompressor;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Queue;
+
+final class HttpResponseEncoder {
+    private HttpResponseEncoder() {
+    }
+
+    // everything in the head but the reason, the content encoding and the passed on headers
+    private static final int FIXED_HEAD_BYTES = 128;
+
+    /**
+     * Adds the response to {@code writes}: status line and headers in a buffer from the pool,
+     * followed by the body in the same buffer if it fits, or else as a buffer over the body's own
+     * bytes so that large bodies are never copied. A compressed body is written into buffers from
+     * the pool and queued as it is. Like the default front end, only the
+     * {@link Response#CLIENT_HEADERS} are passed on from the upstream headers.
+     *
+     * @param compressor     null to send the body as it is
+     * @param acceptEncoding the request's {@code Accept-Encoding}, may be null
+     */
+    static void encode(Response response, boolean keepAlive, boolean head, ResponseCompressor compressor, String acceptEncoding,
+                       BufferPool pool, Queue<ByteBuffer> writes) {
+        int status = response.status();
+        boolean bodyless = status < 200 || status == 204 || status == 304;
+        Body body = bodyless ? Body.EMPTY : response.body();
+        List<ByteBuffer> bodyBuffers = List.of(body.asByteBuffer());
+        int length = body.length();
+        String contentEncoding = null;
+        boolean varies = false;
+        if (compressor != null && !bodyless) {
+            ResponseCompressor.Encoded encoded = compressor.encode(response.headers(), body, acceptEncoding, pool);
+            bodyBuffers = encoded.buffers();
+            length = encoded.length();
+            contentEncoding = encoded.contentEncoding();
+            varies = encoded.varies();
+        }
+        String reason = reason(status);
+        int headBytes = FIXED_HEAD_BYTES + reason.length() + (contentEncoding == null ? 0 : contentEncoding.length());
+        for (String header : Response.CLIENT_HEADERS) {
+            String value = response.headers().get(header);
+            if (value != null) {
+                headBytes += header.length() + value.length() + 4;
+            }
+        }
+        int bodyBytes = head ? 0 : length;
+        boolean inline = headBytes + bodyBytes <= pool.bufferBytes();
+        ByteBuffer buffer = headBytes <= pool.bufferBytes() ? pool.acquire() : ByteBuffer.allocate(headBytes);
+
+        put(buffer, "HTTP/1.1 ");
+        putDecimal(buffer, status);
+        buffer.put((byte) ' ');
+        put(buffer, reason);
+        put(buffer, "\r\n");
+        if (contentEncoding != null) {
+            put(buffer, "Content-Encoding: ");
+            put(buffer, contentEncoding);
+            put(buffer, "\r\n");
+        }
+        if (varies) {
+            put(buffer, "Vary: Accept-Encoding\r\n");
+        }
+        if (!bodyless) {
+            put(buffer, "Content-Length: ");
+            putDecimal(buffer, length);
+            put(buffer, "\r\n");
+        }
+        for (String header : Response.CLIENT_HEADERS) {
+            String value = response.headers().get(header);
+            if (value != null) {
+                put(buffer, header);
+                put(buffer, ": ");
+                put(buffer, value);
+                put(buffer, "\r\n");
+            }
+        }
+        if (!keepAlive) {
+            put(buffer, "Connection: close\r\n");
+        }
+        put(buffer, "\r\n");
+        if (inline && bodyBytes > 0) {
+            bodyBuffers.forEach(buffer::put);
+        }
+        writes.add(buffer.flip());
+        if (!inline && bodyBytes > 0) {
+            writes.addAll(bodyBuffers);
+        } else {
+            // views of the body are not the pool's and are ignored
+            bodyBuffers.forEach(pool::release);
+        }
+    }
+
+    /**
+     * Header text is ISO-8859-1, anything outside it is sent as {@code ?}.
+     */
+    private static void put(ByteBuffer buffer, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            buffer.put(c < 0x100 ? (byte) c : (byte) '?');
+        }
+    }
+
+    private static void putDecimal(ByteBuffer buffer, int value) {
+        int divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    static String reason(int status) {
+        return switch (status) {
+            case 200 -> "OK";
+            case 201 -> "Created";
+            case 202 -> "Accepted";
+            case 204 -> "No Content";
+            case 301 -> "Moved Permanently";
+            case 302 -> "Found";
+            case 304 -> "Not Modified";
+            case 400 -> "Bad Request";
+            case 401 -> "Unauthorized";
+            case 403 -> "Forbidden";
+            case 404 -> "Not Found";
+            case 405 -> "Method Not Allowed";
+            case 413 -> "Payload Too Large";
+            case 429 -> "Too Many Requests";
+            case 500 -> "Internal Server Error";
+            case 501 -> "Not Implemented";
+            case 502 -> "Bad Gateway";
+            case 503 -> "Service Unavailable";
+            case 504 -> "Gateway Timeout";
+            default -> "Unknown";
+        };
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.server;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.respond.ResponseCompressor;
+import org.example.service.RoutingService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-blocking HTTP/1.1 front end: one acceptor thread hands connections round robin to a few
+ * selector {@link EventLoop}s, which parse requests, pass them to the {@link RoutingService} and
+ * write responses back without blocking. Connections are persistent and pipelined requests are
+ * answered in order. Request bodies are buffered, up to {@code maxRequestBytes} per request.
+ */
+@Slf4j
+public class NioHttpServer {
+    public static final int DEFAULT_EVENT_LOOPS = Math.min(4, Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_MAX_REQUEST_BYTES = 1024 * 1024;
+
+    private final ServerSocketChannel serverChannel;
+    private final List<EventLoop> loops = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    /**
+     * @param compressor null to send bodies uncompressed
+     */
+    public NioHttpServer(InetSocketAddress address, Config config, RoutingService routingService, ResponseCompressor compressor) throws IOException {
+        this(address, config.getEventLoops(), config.getMaxRequestBytes(), routingService, compressor);
+    }
+
+    public NioHttpServer(InetSocketAddress address, int eventLoops, int maxRequestBytes, RoutingService routingService) throws IOException {
+        this(address, eventLoops, maxRequestBytes, routingService, null);
+    }
+
+    public NioHttpServer(InetSocketAddress address, int eventLoops, int maxRequestBytes, RoutingService routingService,
+                         ResponseCompressor compressor) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address);
+        for (int i = 0; i < eventLoops; i++) {
+            // the loops share the compressor's Deflaters, and compress into their own buffer pools
+            EventLoop loop = new EventLoop(routingService, maxRequestBytes, compressor);
+            loops.add(loop);
+            threads.add(new Thread(loop, "event-loop-" + (i + 1)));
+        }
+        threads.add(new Thread(this::accept, "acceptor"));
+    }
+
+    public void start() {
+        threads.forEach(Thread::start);
+    }
+
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public void stop() {
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            log.warn("Error closing server socket", e);
+        }
+        loops.forEach(EventLoop::stop);
+    }
+
+    private void accept() {
+        int next = 0;
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.socket().setTcpNoDelay(true);
+                loops.get(next).register(channel);
+                next = (next + 1) % loops.size();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.error("Error accepting connection", e);
+            }
+        }
+    }
+}
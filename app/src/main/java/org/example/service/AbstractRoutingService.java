@@ -0,0 +1,438 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.metrics.MetricsRegistry;
+import org.example.metrics.RequestMetrics;
+import org.example.request.Request;
+import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Failover, timeouts and health tracking shared by every strategy. Subclasses only decide which
+ * healthy adapter serves the next attempt.
+ */
+@Slf4j
+public abstract class AbstractRoutingService implements RoutingService {
+    public static final Response GATEWAY_TIMEOUT_RESPONSE = new Response(504, "Gateway timeout", Collections.emptyMap());
+    public static final Response OVERLOADED_RESPONSE = new Response(503, "Service unavailable", Map.of("retry-after", "1"));
+    private static final List<String> CONDITIONAL_HEADERS = List.of("If-None-Match", "If-Modified-Since");
+
+    protected final List<Adapter> adapters;
+
+    private final long timeoutMs;
+
+    private final ExecutorService executorService;
+
+    protected final RoundRobinSelector selector;
+    protected final HealthChecker healthChecker;
+    private final Hedger hedger;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker[] circuitBreakers;
+    private final List<CircuitBreaker.Listener> circuitBreakerListeners = new CopyOnWriteArrayList<>();
+    private final AtomicIntegerArray inFlight;
+    private final RequestMetrics[] metrics;
+    // null unless adaptive concurrency limits are on
+    private final AdaptiveLimiter[] limiters;
+
+    protected AbstractRoutingService(List<Adapter> adapters, Config config, ExecutorService executorService) {
+        if (adapters.isEmpty()) {
+            throw new IllegalArgumentException("Adapters cannot be empty.");
+        }
+        this.adapters = adapters;
+        this.timeoutMs = config.getTimeoutMs();
+        this.selector = new RoundRobinSelector(adapters.size());
+        this.inFlight = new AtomicIntegerArray(adapters.size());
+        this.metrics = new RequestMetrics[adapters.size()];
+        for (int index = 0; index < adapters.size(); index++) {
+            metrics[index] = new RequestMetrics();
+        }
+        this.executorService = executorService;
+        this.hedger = new Hedger(adapters.size(), config);
+        this.retryPolicy = new RetryPolicy(config);
+        this.circuitBreakers = new CircuitBreaker[adapters.size()];
+        for (int index = 0; index < adapters.size(); index++) {
+            circuitBreakers[index] = new CircuitBreaker(index, adapters.get(index).name(), config, circuitBreakerListeners);
+        }
+        this.limiters = config.isConcurrencyLimit() ? new AdaptiveLimiter[adapters.size()] : null;
+        for (int index = 0; limiters != null && index < adapters.size(); index++) {
+            limiters[index] = new AdaptiveLimiter(config);
+        }
+        this.healthChecker = new HealthChecker(adapters, selector, config, recovered -> circuitBreakers[recovered].halfOpen());
+        // an open breaker takes the adapter out of rotation until health checks pass again
+        circuitBreakerListeners.add((circuitBreaker, from, to) -> {
+            if (to == CircuitBreaker.State.OPEN) {
+                takeOffline(circuitBreaker.index());
+            }
+        });
+    }
+
+    /**
+     * @param request  the request being routed
+     * @param sequence one number per request, see {@link RoundRobinSelector#nextSequence()}
+     * @param attempt  0 for the first try, incremented on every failover
+     * @param tried    bit {@code i} set if adapter {@code i} was already picked for this request, see
+     *                 {@link #tried(long, int)}
+     * @return index of the adapter to call, or {@link RoundRobinSelector#NONE}
+     */
+    protected abstract int select(Request request, long sequence, int attempt, long tried);
+
+    /**
+     * Adds an adapter to a {@code tried} set. Only the first 64 adapters are tracked, the others
+     * never count as tried.
+     */
+    protected static long tried(long tried, int index) {
+        return index < Long.SIZE ? tried | 1L << index : tried;
+    }
+
+    protected static boolean isTried(long tried, int index) {
+        return index < Long.SIZE && (tried & 1L << index) != 0;
+    }
+
+    /**
+     * Healthy adapters not tried yet, or all of them if every one was, so the request can still be
+     * sent again as round robin would.
+     *
+     * @return the {@code tried} set to pass to {@link #untried(int[], long, int)}, 0 if nothing is left out
+     */
+    protected static long untriedSet(int[] healthy, long tried) {
+        return untriedCount(healthy, tried) == 0 ? 0 : tried;
+    }
+
+    protected static int untriedCount(int[] healthy, long tried) {
+        if (tried == 0) {
+            return healthy.length;
+        }
+        int count = 0;
+        for (int index : healthy) {
+            if (!isTried(tried, index)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The {@code n}th of the healthy adapters not in {@code tried}.
+     */
+    protected static int untried(int[] healthy, long tried, int n) {
+        if (tried == 0) {
+            return healthy[n];
+        }
+        for (int index : healthy) {
+            if (!isTried(tried, index) && n-- == 0) {
+                return index;
+            }
+        }
+        return RoundRobinSelector.NONE;
+    }
+
+    /**
+     * Called when an adapter finishes a call, successful or not, with the time it took.
+     */
+    protected void onComplete(int index, long latencyNanos, boolean success) {
+    }
+
+    public int inFlight(int index) {
+        return inFlight.get(index);
+    }
+
+    /**
+     * The adapter's responses and latency, counted per call so failovers and hedges show up too.
+     */
+    public RequestMetrics metrics(int index) {
+        return metrics[index];
+    }
+
+    public CircuitBreaker circuitBreaker(int index) {
+        return circuitBreakers[index];
+    }
+
+    /**
+     * @return the adapter's concurrency limit, or null if limits are off
+     */
+    public AdaptiveLimiter limiter(int index) {
+        return limiters == null ? null : limiters[index];
+    }
+
+    public Hedger hedger() {
+        return hedger;
+    }
+
+    public RetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
+    public void addCircuitBreakerListener(CircuitBreaker.Listener listener) {
+        circuitBreakerListeners.add(listener);
+    }
+
+    /**
+     * Exports every adapter's calls, latency, health, breaker and concurrency limit.
+     *
+     * @param labels identify this service, the adapter's name is added to them
+     */
+    public void registerMetrics(MetricsRegistry registry, String labels) {
+        for (int index = 0; index < adapters.size(); index++) {
+            int adapter = index;
+            String adapterLabels = MetricsRegistry.with(labels, "adapter", adapters.get(index).name());
+            metrics[index].register(registry, "proxy_upstream", "Upstream", adapterLabels);
+            registry.gauge("proxy_upstream_in_flight", "Upstream calls in flight", adapterLabels, () -> inFlight(adapter));
+            registry.gauge("proxy_upstream_healthy", "1 if the adapter is in rotation", adapterLabels,
+                    () -> selector.isHealthy(adapter) ? 1 : 0);
+            registry.gauge("proxy_circuit_breaker_open", "1 if the adapter's circuit breaker is open", adapterLabels,
+                    () -> circuitBreakers[adapter].state() == CircuitBreaker.State.OPEN ? 1 : 0);
+            registry.counter("proxy_circuit_breaker_rejected_total", "Calls the open circuit breaker turned away", adapterLabels,
+                    circuitBreakers[adapter]::rejected);
+            if (limiters != null) {
+                registry.gauge("proxy_upstream_concurrency_limit", "Adaptive concurrency limit of the adapter", adapterLabels,
+                        limiters[adapter]::limit);
+                registry.counter("proxy_upstream_concurrency_rejected_total", "Calls skipped because the adapter was at its limit",
+                        adapterLabels, limiters[adapter]::rejected);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        executorService.shutdown();
+        healthChecker.stop();
+        adapters.forEach(Adapter::close);
+    }
+
+    @Override
+    public CompletableFuture<Response> forwardRequestAsync(Request request) {
+        Exchange<Response> exchange = new Exchange<>(request, adapter -> getResponse(request, adapter), Response::status,
+                GATEWAY_TIMEOUT_RESPONSE, OVERLOADED_RESPONSE, true, selector.nextSequence());
+        if (hedger.enabled() && request.method().isSafe()) {
+            hedger.onRequest();
+            return hedge(exchange);
+        }
+        return forwardRequest(exchange, 0, 0, 0);
+    }
+
+    @Override
+    public CompletableFuture<StreamedResponse> streamRequestAsync(Request request, InputStream body) {
+        // a body that was already read from cannot be sent again
+        return forwardRequest(new Exchange<>(request,
+                adapter -> withTimeout(() -> adapter.streamAsync(request.method(), request.path(), body)),
+                StreamedResponse::status, StreamedResponse.of(GATEWAY_TIMEOUT_RESPONSE), StreamedResponse.of(OVERLOADED_RESPONSE),
+                body == null, selector.nextSequence()), 0, 0, 0);
+    }
+
+    private <T> CompletableFuture<T> forwardRequest(Exchange<T> exchange, int attempt, int retries, long tried) {
+        int index = attempt == adapters.size()
+                ? RoundRobinSelector.NONE
+                : select(exchange.request(), exchange.sequence(), attempt, tried);
+        if (index == RoundRobinSelector.NONE) {
+            if (atLimit()) {
+                return CompletableFuture.completedFuture(exchange.overloadedResponse());
+            }
+            log.info("No adapter could serve the request");
+            return CompletableFuture.completedFuture(exchange.noAdapterResponse());
+        }
+        return forwardTo(index, exchange, attempt, retries, tried(tried, index));
+    }
+
+    /**
+     * Cancelling the returned future aborts the upstream call without holding it against the adapter.
+     */
+    private <T> CompletableFuture<T> forwardTo(int index, Exchange<T> exchange, int attempt, int retries, long tried) {
+        CircuitBreaker circuitBreaker = circuitBreakers[index];
+        AdaptiveLimiter limiter = limiter(index);
+        if (limiter != null && !limiter.tryAcquire()) {
+            // nothing was sent, so moving on is not a retry
+            return forwardRequest(exchange, attempt + 1, retries, tried);
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            if (limiter != null) {
+                limiter.release();
+            }
+            return forwardRequest(exchange, attempt + 1, retries, tried);
+        }
+        long start = System.nanoTime();
+        inFlight.incrementAndGet(index);
+        CompletableFuture<T> upstream = exchange.call().apply(adapters.get(index));
+        CompletableFuture<T> response = upstream
+                .whenComplete((result, error) -> {
+                    inFlight.decrementAndGet(index);
+                    if (upstream.isCancelled()) {
+                        circuitBreaker.onCancelled();
+                        if (limiter != null) {
+                            limiter.release();
+                        }
+                        return;
+                    }
+                    long latencyNanos = System.nanoTime() - start;
+                    if (error != null) {
+                        metrics[index].onError(latencyNanos);
+                    } else {
+                        metrics[index].onResponse(exchange.status().applyAsInt(result), latencyNanos);
+                    }
+                    // 5xx still goes back to the client but counts against the adapter
+                    boolean success = error == null && exchange.status().applyAsInt(result) < 500;
+                    circuitBreaker.onResult(success, latencyNanos);
+                    if (limiter != null && success) {
+                        limiter.onSuccess(latencyNanos);
+                    } else if (limiter != null) {
+                        limiter.onDropped();
+                    }
+                    if (success) {
+                        hedger.record(index, latencyNanos);
+                        retryPolicy.onSuccess();
+                    }
+                    onComplete(index, latencyNanos, success);
+                })
+                .exceptionallyComposeAsync(e -> {
+                    if (upstream.isCancelled()) {
+                        return CompletableFuture.completedFuture(exchange.noAdapterResponse());
+                    }
+                    // counted by the breaker above, which takes the adapter offline once it opens
+                    log.error("Error calling adapter.", e);
+                    if (!exchange.retryable() || !retryPolicy.allows(exchange.request().method(), e, retries)) {
+                        return CompletableFuture.completedFuture(exchange.noAdapterResponse());
+                    }
+                    long backoffMs = retryPolicy.backoffMs(retries);
+                    Executor executor = backoffMs == 0
+                            ? executorService
+                            : CompletableFuture.delayedExecutor(backoffMs, TimeUnit.MILLISECONDS, executorService);
+                    return CompletableFuture.supplyAsync(() -> forwardRequest(exchange, attempt + 1, retries + 1, tried), executor)
+                            .thenCompose(Function.identity());
+                }, executorService);
+        response.whenComplete((ignored, error) -> {
+            if (response.isCancelled()) {
+                upstream.cancel(true);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Sends the request to a second adapter if the first one has not answered within the hedge delay.
+     * The first non-5xx response wins and the other call is cancelled.
+     */
+    private CompletableFuture<Response> hedge(Exchange<Response> exchange) {
+        int first = select(exchange.request(), exchange.sequence(), 0, 0);
+        if (first == RoundRobinSelector.NONE) {
+            return forwardRequest(exchange, 0, 0, 0);
+        }
+        CompletableFuture<Response> primary = forwardTo(first, exchange, 0, 0, tried(0, first));
+        long delayNanos = hedger.delayNanos(first);
+        if (delayNanos < 0 || primary.isDone()) {
+            return primary;
+        }
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        BiConsumer<Response, Throwable> complete = (response, error) -> {
+            Response outcome = error == null ? response : GATEWAY_TIMEOUT_RESPONSE;
+            if (outcome.status() < 500 || pending.decrementAndGet() == 0) {
+                result.complete(outcome);
+            }
+        };
+        primary.whenComplete(complete);
+        result.whenComplete((response, error) -> primary.cancel(true));
+        CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS, executorService).execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            int second = select(exchange.request(), exchange.sequence(), 1, tried(0, first));
+            if (second == RoundRobinSelector.NONE || second == first || !hedger.tryHedge()) {
+                return;
+            }
+            pending.incrementAndGet();
+            CompletableFuture<Response> hedge = forwardTo(second, exchange, 1, 0, tried(tried(0, first), second));
+            hedge.whenComplete(complete);
+            result.whenComplete((response, error) -> hedge.cancel(true));
+        });
+        return result;
+    }
+
+    /**
+     * True if every healthy adapter is at its concurrency limit, so the request is shed rather than
+     * counted as a failure.
+     */
+    private boolean atLimit() {
+        if (limiters == null) {
+            return false;
+        }
+        boolean limited = false;
+        for (int index = 0; index < limiters.length; index++) {
+            if (selector.isHealthy(index)) {
+                if (limiters[index].inFlight() < limiters[index].limit()) {
+                    return false;
+                }
+                limited = true;
+            }
+        }
+        return limited;
+    }
+
+    private void takeOffline(int index) {
+        if (selector.markUnhealthy(index)) {
+            healthChecker.watch(index);
+        }
+    }
+
+    private CompletableFuture<Response> getResponse(Request request, Adapter nextAdapter) {
+        return withTimeout(() -> switch (request.method()) {
+            case GET -> {
+                Map<String, String> validators = validators(request);
+                yield validators.isEmpty() ? nextAdapter.getAsync(request.path()) : nextAdapter.getAsync(request.path(), validators);
+            }
+            case POST -> nextAdapter.postAsync(request.path(), request.payload());
+            case DELETE -> nextAdapter.deleteAsync(request.path());
+            case HEAD -> nextAdapter.headAsync(request.path());
+            case PUT -> nextAdapter.putAsync(request.path(), request.payload());
+        });
+    }
+
+    /**
+     * Conditional request headers, passed on so the upstream can answer 304 Not Modified.
+     */
+    private static Map<String, String> validators(Request request) {
+        Map<String, String> validators = null;
+        for (String header : CONDITIONAL_HEADERS) {
+            String value = request.header(header);
+            if (value != null) {
+                if (validators == null) {
+                    validators = new HashMap<>();
+                }
+                validators.put(header, value);
+            }
+        }
+        // most requests have none, no need for a map each
+        return validators == null ? Collections.emptyMap() : validators;
+    }
+
+    private <T> CompletableFuture<T> withTimeout(Supplier<CompletableFuture<T>> call) {
+        try {
+            // orTimeout completes the adapter's own future, which aborts the upstream call
+            return call.get().orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Everything needed to send one client request, possibly several times.
+     *
+     * @param retryable false when the request cannot be sent again whatever its method
+     */
+    private record Exchange<T>(Request request, Function<Adapter, CompletableFuture<T>> call, ToIntFunction<T> status,
+                               T noAdapterResponse, T overloadedResponse, boolean retryable, long sequence) {
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.service;
+
+import org.example.log.AccessLog;
+import org.example.request.Request;
+import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hands every request the wrapped service answers to the {@link AccessLog}, rate limited and
+ * unrouted ones included. A failed call is logged with the 500 the front ends answer it with.
+ */
+public class AccessLoggingRoutingService implements RoutingService {
+    private final RoutingService delegate;
+    private final AccessLog accessLog;
+
+    public AccessLoggingRoutingService(RoutingService delegate, AccessLog accessLog) {
+        this.delegate = delegate;
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    public CompletableFuture<Response> forwardRequestAsync(Request request) {
+        long timeMs = System.currentTimeMillis();
+        long start = System.nanoTime();
+        CompletableFuture<Response> response = delegate.forwardRequestAsync(request);
+        response.whenComplete((result, error) -> {
+            if (error != null) {
+                log(request, timeMs, start, 500, -1, null);
+            } else {
+                log(request, timeMs, start, result.status(), result.body().length(), result.headers().get("x-server"));
+            }
+        });
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<StreamedResponse> streamRequestAsync(Request request, InputStream body) {
+        long timeMs = System.currentTimeMillis();
+        long start = System.nanoTime();
+        CompletableFuture<StreamedResponse> response = delegate.streamRequestAsync(request, body);
+        // the body is still to come, so its length is not known
+        response.whenComplete((result, error) -> {
+            if (error != null) {
+                log(request, timeMs, start, 500, -1, null);
+            } else {
+                log(request, timeMs, start, result.status(), -1, result.headers().get("x-server"));
+            }
+        });
+        return response;
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    private void log(Request request, long timeMs, long start, int status, long bytes, String upstream) {
+        accessLog.log(timeMs, request.clientAddress(), request.method(), request.path(), status, bytes, System.nanoTime() - start, upstream);
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.service;
+
+import org.example.Config;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that finds itself from latency, the way TCP Vegas finds a congestion window.
+ * The lowest latency seen stands for an idle backend; the more a sample exceeds it, the more
+ * requests are estimated to be queueing. Few queued requests grow the limit, many or a failed call
+ * shrink it. The lowest latency is forgotten every 30 to 60 times the limit in samples, so a
+ * backend that got slower for good is not mistaken for an overloaded one.
+ */
+public class AdaptiveLimiter {
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    public static final int DEFAULT_MAX_LIMIT = 1000;
+
+    static final int MIN_LIMIT = 1;
+    private static final int PROBE_MULTIPLIER = 30;
+
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+    // guarded by this
+    private double estimatedLimit;
+    private long noLoadNanos = Long.MAX_VALUE;
+    private int samplesToProbe;
+
+    public AdaptiveLimiter(Config config) {
+        this(config.getConcurrencyLimitInitial(), config.getConcurrencyLimitMax());
+    }
+
+    public AdaptiveLimiter(int initialLimit, int maxLimit) {
+        this.maxLimit = maxLimit;
+        this.limit = Math.min(initialLimit, maxLimit);
+        this.estimatedLimit = limit;
+        this.samplesToProbe = probeSamples();
+    }
+
+    /**
+     * Takes a slot, to be given back with exactly one of {@link #onSuccess}, {@link #onDropped} or
+     * {@link #release}.
+     *
+     * @return false if the limit is reached
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a slot whose call says nothing about the backend, e.g. because it was cancelled.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void onSuccess(long latencyNanos) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (--samplesToProbe <= 0) {
+                samplesToProbe = probeSamples();
+                noLoadNanos = latencyNanos;
+            }
+            noLoadNanos = Math.max(1, Math.min(noLoadNanos, latencyNanos));
+            // a limit that is not used up says nothing about how far it could grow
+            if (current * 2 < estimatedLimit) {
+                return;
+            }
+            double step = Math.max(1, Math.log10(estimatedLimit));
+            double queued = Math.ceil(estimatedLimit * (1 - (double) noLoadNanos / Math.max(latencyNanos, noLoadNanos)));
+            if (queued <= step) {
+                update(estimatedLimit + 6 * step);
+            } else if (queued < 3 * step) {
+                update(estimatedLimit + step);
+            } else if (queued > 6 * step) {
+                update(estimatedLimit - step);
+            }
+        }
+    }
+
+    /**
+     * The call failed or timed out, which is taken as the backend being overloaded.
+     */
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            update(estimatedLimit - Math.max(1, Math.log10(estimatedLimit)));
+        }
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Calls turned away because the limit was reached.
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private void update(double newLimit) {
+        estimatedLimit = Math.max(MIN_LIMIT, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    private int probeSamples() {
+        int samples = PROBE_MULTIPLIER * limit;
+        return samples + ThreadLocalRandom.current().nextInt(samples);
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.service;
+
+import java.util.Locale;
+
+/**
+ * The {@code Cache-Control} directives the response cache acts on. Ages are in seconds, -1 when absent.
+ */
+record CacheControl(boolean noStore, boolean noCache, boolean isPrivate, long maxAge, long sMaxAge) {
+    static final CacheControl NONE = new CacheControl(false, false, false, -1, -1);
+
+    static CacheControl parse(String header) {
+        if (header == null || header.isBlank()) {
+            return NONE;
+        }
+        boolean noStore = false;
+        boolean noCache = false;
+        boolean isPrivate = false;
+        long maxAge = -1;
+        long sMaxAge = -1;
+        for (String directive : header.split(",")) {
+            String name = directive.trim().toLowerCase(Locale.ROOT);
+            String value = null;
+            int separator = name.indexOf('=');
+            if (separator >= 0) {
+                value = name.substring(separator + 1).trim().replace("\"", "");
+                name = name.substring(0, separator).trim();
+            }
+            switch (name) {
+                case "no-store" -> noStore = true;
+                case "no-cache" -> noCache = true;
+                case "private" -> isPrivate = true;
+                case "max-age" -> maxAge = seconds(value);
+                case "s-maxage" -> sMaxAge = seconds(value);
+                default -> {
+                }
+            }
+        }
+        return new CacheControl(noStore, noCache, isPrivate, maxAge, sMaxAge);
+    }
+
+    static long seconds(String value) {
+        // an invalid age makes the response stale rather than cached forever
+        return value != null && value.matches("^[0-9]{1,10}$") ? Long.parseLong(value) : 0;
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.service;
+
+import org.example.Config;
+import org.example.request.Method;
+import org.example.request.Request;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers repeated GETs from a {@link ResponseCache} in front of another routing service. What is
+ * stored and for how long follows the upstream's {@code Cache-Control}, {@code Expires} and
+ * {@code Age} headers; a stale entry with an {@code ETag} or {@code Last-Modified} is revalidated
+ * with a conditional request, and a 304 answer serves the stored body again. Responses are keyed
+ * on the path alone, so anything carrying {@code Vary} or meant for one client is not stored.
+ */
+public class CachingRoutingService implements RoutingService {
+    private final RoutingService delegate;
+    private final ResponseCache cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+
+    public CachingRoutingService(RoutingService delegate, Config config) {
+        this(delegate, new ResponseCache(config.getCacheMaxBytes()));
+    }
+
+    public CachingRoutingService(RoutingService delegate, ResponseCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public ResponseCache cache() {
+        return cache;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Stale entries the upstream confirmed with a 304.
+     */
+    public long revalidated() {
+        return revalidated.sum();
+    }
+
+    @Override
+    public CompletableFuture<Response> forwardRequestAsync(Request request) {
+        if (request.method() != Method.GET) {
+            CompletableFuture<Response> response = delegate.forwardRequestAsync(request);
+            if (request.method().isSafe()) {
+                return response;
+            }
+            // a successful write makes what we stored for the path outdated
+            return response.thenApply(result -> {
+                if (result.status() < 400) {
+                    cache.invalidate(request.path());
+                }
+                return result;
+            });
+        }
+        CacheControl requested = CacheControl.parse(request.header("Cache-Control"));
+        if (requested.noStore() || request.header("Authorization") != null
+                || request.header("If-None-Match") != null || request.header("If-Modified-Since") != null) {
+            // the client's own conditional request is answered by the upstream
+            return delegate.forwardRequestAsync(request);
+        }
+        String key = request.path();
+        ResponseCache.Entry cached = cache.get(key);
+        if (cached != null && !requested.noCache() && cached.isFresh(System.currentTimeMillis())) {
+            hits.increment();
+            return CompletableFuture.completedFuture(cached.response());
+        }
+        if (cached != null && (cached.etag() != null || cached.lastModified() != null)) {
+            return revalidate(key, cached);
+        }
+        misses.increment();
+        return delegate.forwardRequestAsync(request).thenApply(response -> store(key, response));
+    }
+
+    @Override
+    public CompletableFuture<StreamedResponse> streamRequestAsync(Request request, InputStream body) {
+        return delegate.streamRequestAsync(request, body);
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    private CompletableFuture<Response> revalidate(String key, ResponseCache.Entry cached) {
+        Map<String, List<String>> validators = new HashMap<>();
+        if (cached.etag() != null) {
+            validators.put("If-None-Match", List.of(cached.etag()));
+        }
+        if (cached.lastModified() != null) {
+            validators.put("If-Modified-Since", List.of(cached.lastModified()));
+        }
+        return delegate.forwardRequestAsync(new RequestImpl(Method.GET, key, "", validators)).thenApply(response -> {
+            if (response.status() != 304) {
+                misses.increment();
+                return store(key, response);
+            }
+            revalidated.increment();
+            // the 304 carries the new freshness information for the body we already have
+            Map<String, String> headers = new HashMap<>(cached.response().headers());
+            headers.putAll(response.headers());
+            return store(key, new Response(cached.response().status(), cached.response().body(), headers));
+        });
+    }
+
+    private Response store(String key, Response response) {
+        long nowMs = System.currentTimeMillis();
+        long freshForMs = freshForMs(response, nowMs);
+        if (freshForMs >= 0) {
+            cache.put(key, new ResponseCache.Entry(response, nowMs, freshForMs, weight(key, response)));
+        }
+        return response;
+    }
+
+    /**
+     * @return how long the response may be served without revalidation, or -1 if it must not be stored
+     */
+    static long freshForMs(Response response, long nowMs) {
+        Map<String, String> headers = response.headers();
+        CacheControl cacheControl = CacheControl.parse(headers.get("cache-control"));
+        if (response.status() != 200 || cacheControl.noStore() || cacheControl.isPrivate() || headers.containsKey("vary")) {
+            return -1;
+        }
+        boolean validators = headers.containsKey("etag") || headers.containsKey("last-modified");
+        if (cacheControl.noCache()) {
+            return validators ? 0 : -1;
+        }
+        long lifetimeMs;
+        if (cacheControl.sMaxAge() >= 0) {
+            lifetimeMs = TimeUnit.SECONDS.toMillis(cacheControl.sMaxAge());
+        } else if (cacheControl.maxAge() >= 0) {
+            lifetimeMs = TimeUnit.SECONDS.toMillis(cacheControl.maxAge());
+        } else if (headers.containsKey("expires")) {
+            long dateMs = httpDate(headers.get("date"), nowMs);
+            // an invalid date means already expired
+            lifetimeMs = Math.max(0, httpDate(headers.get("expires"), dateMs) - dateMs);
+        } else {
+            // no heuristic freshness, only what can be revalidated is kept
+            return validators ? 0 : -1;
+        }
+        // time the response already spent in other caches
+        long ageMs = headers.containsKey("age") ? TimeUnit.SECONDS.toMillis(CacheControl.seconds(headers.get("age"))) : 0;
+        return Math.max(0, lifetimeMs - ageMs);
+    }
+
+    private static long httpDate(String value, long defaultMs) {
+        if (value == null) {
+            return defaultMs;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return defaultMs;
+        }
+    }
+
+    private static int weight(String key, Response response) {
+        int weight = key.length() + response.body().length();
+        for (Map.Entry<String, String> header : response.headers().entrySet()) {
+            weight += header.getKey().length() + header.getValue().length();
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,242 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-adapter breaker fed by every call outcome. It opens when the failure rate or the slow call
+ * rate over a sliding time window crosses its threshold, and after the adapter recovers lets a few
+ * trial calls through in {@link State#HALF_OPEN} before trusting it with all traffic again.
+ * Recording and admitting calls only touch atomics; a couple of calls racing a bucket rollover may
+ * go uncounted, which the rate thresholds tolerate.
+ */
+@Slf4j
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    public static final int DEFAULT_SLOW_CALL_RATE_THRESHOLD = 100;
+    public static final long DEFAULT_SLOW_CALL_DURATION_MS = 1000;
+    public static final int DEFAULT_MINIMUM_CALLS = 20;
+    public static final long DEFAULT_WINDOW_MS = 10_000;
+    public static final int DEFAULT_HALF_OPEN_CALLS = 3;
+
+    private static final int BUCKETS = 10;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public interface Listener {
+        void onStateChange(CircuitBreaker circuitBreaker, State from, State to);
+    }
+
+    private final int index;
+    private final String name;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final int minimumCalls;
+    private final int halfOpenCalls;
+    private final long bucketNanos;
+    private final List<Listener> listeners;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicLongArray epochs = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray calls = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray failures = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray slowCalls = new AtomicLongArray(BUCKETS);
+    private final AtomicInteger trialPermits = new AtomicInteger();
+    private final AtomicInteger trialSuccesses = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    public CircuitBreaker(int index, String name, Config config, List<Listener> listeners) {
+        this.index = index;
+        this.name = name;
+        this.failureRateThreshold = config.getBreakerFailureRateThreshold();
+        this.slowCallRateThreshold = config.getBreakerSlowCallRateThreshold();
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(config.getBreakerSlowCallDurationMs());
+        this.minimumCalls = config.getBreakerMinimumCalls();
+        this.halfOpenCalls = config.getBreakerHalfOpenCalls();
+        this.bucketNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(config.getBreakerWindowMs()) / BUCKETS);
+        this.listeners = listeners;
+        resetWindow();
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public State state() {
+        return state.get();
+    }
+
+    /**
+     * Calls turned away while open or while every half-open trial was taken.
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Number of times this breaker opened.
+     */
+    public long opened() {
+        return opened.sum();
+    }
+
+    public int failureRate() {
+        return rate(failures, System.nanoTime());
+    }
+
+    public int slowCallRate() {
+        return rate(slowCalls, System.nanoTime());
+    }
+
+    /**
+     * @return false if the call must not be sent to this adapter
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.HALF_OPEN && trialPermits.getAndDecrement() > 0) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void onResult(boolean success, long latencyNanos) {
+        boolean slow = latencyNanos >= slowCallNanos;
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            if (!success || slow) {
+                transition(State.HALF_OPEN, State.OPEN);
+            } else if (trialSuccesses.incrementAndGet() >= halfOpenCalls) {
+                transition(State.HALF_OPEN, State.CLOSED);
+            }
+            return;
+        }
+        if (current == State.OPEN) {
+            return;
+        }
+        long now = System.nanoTime();
+        int bucket = bucket(now);
+        calls.incrementAndGet(bucket);
+        if (!success) {
+            failures.incrementAndGet(bucket);
+        }
+        if (slow) {
+            slowCalls.incrementAndGet(bucket);
+        }
+        if (total(calls, now) >= minimumCalls
+                && (rate(failures, now) >= failureRateThreshold || rate(slowCalls, now) >= slowCallRateThreshold)) {
+            transition(State.CLOSED, State.OPEN);
+        }
+    }
+
+    /**
+     * Called instead of {@link #onResult} when a call let through is cancelled before it completes,
+     * like a hedge that lost: gives a half-open trial back, since the call says nothing about the
+     * adapter. Otherwise trials that all lose hedges would keep the breaker half open for good.
+     */
+    public void onCancelled() {
+        while (state.get() == State.HALF_OPEN) {
+            // permits go below zero while calls are turned away
+            int permits = trialPermits.get();
+            int returned = Math.min(Math.max(permits, 0) + 1, halfOpenCalls);
+            if (trialPermits.compareAndSet(permits, returned)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Opens the breaker right away, e.g. when the adapter could not be reached at all.
+     */
+    public void trip() {
+        if (!transition(State.CLOSED, State.OPEN)) {
+            transition(State.HALF_OPEN, State.OPEN);
+        }
+    }
+
+    /**
+     * Called once the adapter answers health checks again: starts letting trial calls through.
+     */
+    public void halfOpen() {
+        transition(State.OPEN, State.HALF_OPEN);
+    }
+
+    private boolean transition(State from, State to) {
+        if (to == State.HALF_OPEN) {
+            // set up the trials before other threads can see the new state
+            trialSuccesses.set(0);
+            trialPermits.set(halfOpenCalls);
+        }
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        if (to == State.OPEN) {
+            opened.increment();
+        } else if (to == State.CLOSED) {
+            resetWindow();
+        }
+        log.info("circuit breaker of {} went from {} to {}", name, from, to);
+        for (Listener listener : listeners) {
+            try {
+                listener.onStateChange(this, from, to);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        return true;
+    }
+
+    private int bucket(long now) {
+        long epoch = now / bucketNanos;
+        int bucket = (int) Long.remainderUnsigned(epoch, BUCKETS);
+        long seen = epochs.get(bucket);
+        if (seen != epoch && epochs.compareAndSet(bucket, seen, epoch)) {
+            calls.set(bucket, 0);
+            failures.set(bucket, 0);
+            slowCalls.set(bucket, 0);
+        }
+        return bucket;
+    }
+
+    private long total(AtomicLongArray counters, long now) {
+        long oldest = now / bucketNanos - BUCKETS + 1;
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (epochs.get(bucket) >= oldest) {
+                total += counters.get(bucket);
+            }
+        }
+        return total;
+    }
+
+    private int rate(AtomicLongArray counters, long now) {
+        long total = total(calls, now);
+        return total == 0 ? 0 : (int) (total(counters, now) * 100 / total);
+    }
+
+    private void resetWindow() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            epochs.set(bucket, Long.MIN_VALUE);
+        }
+    }
+}
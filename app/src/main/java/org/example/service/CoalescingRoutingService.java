@@ -0,0 +1,147 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.request.Request;
+import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collapses identical concurrent GET and HEAD requests into one upstream call. The first request
+ * for a key leads, later ones wait for its response instead of reaching a backend themselves. A
+ * waiter gives up on the leader after {@code waitMs}, or as soon as the leader's call fails. The
+ * first waiter to give up then sends the request again as the new leader and the others wait for it,
+ * so a slow or failed call does not turn into one upstream call per waiter.
+ */
+@Slf4j
+public class CoalescingRoutingService implements RoutingService {
+    public static final long DEFAULT_WAIT_MS = 1000;
+
+    private final RoutingService delegate;
+    private final long waitMs;
+    private final Map<Key, Flight> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public CoalescingRoutingService(RoutingService delegate, Config config) {
+        this(delegate, config.getCoalesceWaitMs());
+    }
+
+    public CoalescingRoutingService(RoutingService delegate, long waitMs) {
+        this.delegate = delegate;
+        this.waitMs = waitMs;
+    }
+
+    /**
+     * Requests that were sent upstream on behalf of their waiters.
+     */
+    public long leaders() {
+        return leaders.sum();
+    }
+
+    /**
+     * Requests that waited for a leader instead of calling upstream.
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Waiters that gave up on their leader because it failed or took too long.
+     */
+    public long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public CompletableFuture<Response> forwardRequestAsync(Request request) {
+        if (!request.method().isSafe()) {
+            return delegate.forwardRequestAsync(request);
+        }
+        // the validators are the only request headers passed upstream, see AbstractRoutingService
+        Key key = new Key(request.method().name(), request.path(), request.header("If-None-Match"), request.header("If-Modified-Since"));
+        Flight flight = new Flight();
+        Flight leader = inFlight.putIfAbsent(key, flight);
+        if (leader == null) {
+            leaders.increment();
+            lead(key, request, flight);
+            // callers get a copy, so one of them timing out or cancelling does not affect the others
+            return flight.response.copy();
+        }
+        coalesced.increment();
+        return leader.response.copy()
+                .orTimeout(waitMs, TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(e -> {
+                    log.info("Sending {} {} alone after waiting for another request failed: {}", request.method(), request.path(), e.toString());
+                    fallbacks.increment();
+                    return retry(key, request, leader);
+                });
+    }
+
+    @Override
+    public CompletableFuture<StreamedResponse> streamRequestAsync(Request request, InputStream body) {
+        return delegate.streamRequestAsync(request, body);
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    /**
+     * Sends the request again for every waiter that gave up on {@code stale}: the first one to get
+     * here leads, the others wait for it, this time for as long as its call takes.
+     */
+    private CompletableFuture<Response> retry(Key key, Request request, Flight stale) {
+        Flight flight = new Flight();
+        if (!stale.retry.compareAndSet(null, flight)) {
+            return stale.retry.get().response.copy();
+        }
+        leaders.increment();
+        // requests arriving from now on wait for the new call; a failed leader is gone from the map
+        // already, a slow one is still there
+        if (!inFlight.replace(key, stale, flight)) {
+            inFlight.putIfAbsent(key, flight);
+        }
+        lead(key, request, flight);
+        return flight.response.copy();
+    }
+
+    private void lead(Key key, Request request, Flight flight) {
+        CompletableFuture<Response> response;
+        try {
+            response = delegate.forwardRequestAsync(request);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((result, error) -> {
+            // later requests start a new call rather than reuse this response
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.response.completeExceptionally(error);
+            } else {
+                flight.response.complete(result);
+            }
+        });
+    }
+
+    /**
+     * One upstream call and the one that replaced it, if its waiters gave up on it.
+     */
+    private static final class Flight {
+        final CompletableFuture<Response> response = new CompletableFuture<>();
+        final AtomicReference<Flight> retry = new AtomicReference<>();
+    }
+
+    private record Key(String method, String path, String ifNoneMatch, String ifModifiedSince) {
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.service;
+
+import org.example.request.Request;
+import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToIntFunction;
+
+/**
+ * Sheds load before it queues up: past the {@link AdaptiveLimiter}'s limit requests are answered
+ * with {@link AbstractRoutingService#OVERLOADED_RESPONSE} right away instead of waiting for a
+ * backend that is already slow. Every instance group shares one limiter, so it caps the upstream
+ * work of the whole proxy.
+ */
+public class ConcurrencyLimitingRoutingService implements RoutingService {
+    private final RoutingService delegate;
+    private final AdaptiveLimiter limiter;
+
+    public ConcurrencyLimitingRoutingService(RoutingService delegate, AdaptiveLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+
+    public AdaptiveLimiter limiter() {
+        return limiter;
+    }
+
+    @Override
+    public CompletableFuture<Response> forwardRequestAsync(Request request) {
+        if (!limiter.tryAcquire()) {
+            return CompletableFuture.completedFuture(AbstractRoutingService.OVERLOADED_RESPONSE);
+        }
+        return sample(System.nanoTime(), delegate.forwardRequestAsync(request), Response::status);
+    }
+
+    @Override
+    public CompletableFuture<StreamedResponse> streamRequestAsync(Request request, InputStream body) {
+        if (!limiter.tryAcquire()) {
+            return CompletableFuture.completedFuture(StreamedResponse.of(AbstractRoutingService.OVERLOADED_RESPONSE));
+        }
+        return sample(System.nanoTime(), delegate.streamRequestAsync(request, body), StreamedResponse::status);
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    private <T> CompletableFuture<T> sample(long start, CompletableFuture<T> response, ToIntFunction<T> status) {
+        response.whenComplete((result, error) -> {
+            if (response.isCancelled()) {
+                limiter.release();
+            } else if (error != null || isOverloaded(status.applyAsInt(result))) {
+                limiter.onDropped();
+            } else {
+                limiter.onSuccess(System.nanoTime() - start);
+            }
+        });
+        return response;
+    }
+
+    private static boolean isOverloaded(int status) {
+        return status == 503 || status == 504;
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.service;
+
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Request;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * Sends requests with the same key to the same adapter so backend-local caches stay warm. Each
+ * adapter owns {@code virtualNodes} points on a hash ring built once from the adapter names;
+ * removing one adapter only moves the keys it owned. Unhealthy owners are skipped by walking the
+ * ring clockwise, and requests without a key fall back to round robin.
+ */
+public class ConsistentHashRoutingServiceImpl extends AbstractRoutingService {
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final HashKey hashKey;
+    private final long[] points;
+    private final int[] owners;
+
+    public ConsistentHashRoutingServiceImpl(List<Adapter> adapters, long timeoutMs, HashKey hashKey) {
+        this(adapters, timeoutMs, Executors.newSingleThreadExecutor(), hashKey, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ConsistentHashRoutingServiceImpl(List<Adapter> adapters, long timeoutMs, ExecutorService executorService,
+                                            HashKey hashKey, int virtualNodes) {
+        this(adapters, Config.builder().instances(Map.of()).timeoutMs(timeoutMs).hashKey(hashKey).build(), executorService,
+                virtualNodes);
+    }
+
+    public ConsistentHashRoutingServiceImpl(List<Adapter> adapters, Config config, ExecutorService executorService,
+                                            int virtualNodes) {
+        super(adapters, config, executorService);
+        this.hashKey = config.getHashKey();
+        int size = adapters.size() * virtualNodes;
+        long[] hashes = new long[size];
+        int[] nodeOwners = new int[size];
+        for (int index = 0; index < adapters.size(); index++) {
+            String name = adapters.get(index).name() == null ? "adapter-" + index : adapters.get(index).name();
+            for (int node = 0; node < virtualNodes; node++) {
+                String point = name + "#" + node;
+                hashes[index * virtualNodes + node] = Hashing.hash(point, 0, point.length());
+                nodeOwners[index * virtualNodes + node] = index;
+            }
+        }
+        Integer[] order = IntStream.range(0, size).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.<Integer>comparingLong(i -> hashes[i]).thenComparingInt(i -> nodeOwners[i]));
+        this.points = new long[size];
+        this.owners = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = nodeOwners[order[i]];
+        }
+    }
+
+    @Override
+    protected int select(Request request, long sequence, int attempt, long tried) {
+        long hash = hashKey.hash(request);
+        if (hash == HashKey.NO_KEY) {
+            return selector.pick(sequence + attempt);
+        }
+        return attempt == 0 ? ownerOf(hash) : nextOwnerOf(hash, attempt);
+    }
+
+    int ownerOf(long hash) {
+        int position = position(hash);
+        for (int step = 0; step < points.length; step++) {
+            int owner = owners[(position + step) % points.length];
+            if (selector.isHealthy(owner)) {
+                return owner;
+            }
+        }
+        return RoundRobinSelector.NONE;
+    }
+
+    /**
+     * First healthy owner clockwise after skipping the first {@code skip} distinct owners, healthy or
+     * not, so a retry or hedge goes to the key's next owner even while the first one is still healthy.
+     * Owners seen are tracked in a long, only groups of more than 64 adapters need an array.
+     */
+    int nextOwnerOf(long hash, int skip) {
+        int position = position(hash);
+        long seenBits = 0;
+        boolean[] seen = adapters.size() > Long.SIZE ? new boolean[adapters.size()] : null;
+        int distinct = 0;
+        for (int step = 0; step < points.length; step++) {
+            int owner = owners[(position + step) % points.length];
+            if (seen == null ? (seenBits & 1L << owner) != 0 : seen[owner]) {
+                continue;
+            }
+            if (seen == null) {
+                seenBits |= 1L << owner;
+            } else {
+                seen[owner] = true;
+            }
+            if (distinct++ >= skip && selector.isHealthy(owner)) {
+                return owner;
+            }
+        }
+        return RoundRobinSelector.NONE;
+    }
+
+    private int position(long hash) {
+        int position = Arrays.binarySearch(points, hash);
+        return position < 0 ? -position - 1 : position;
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.service;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often a key was asked for recently. All
+ * counters are halved once enough increments were seen, so the estimate follows changes in
+ * popularity. Not thread-safe, callers serialize access.
+ */
+class FrequencySketch {
+    private static final long[] SEEDS = {0x97cb3127L, 0xab8a2d1fL, 0xc0d3f5a9L, 0x5bd1e995L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedKeys roughly how many keys are tracked at once
+     */
+    FrequencySketch(int expectedKeys) {
+        // 16 counters per long, so this gives about 16 counters per key
+        int length = Integer.highestOneBit(Math.max(256, Math.min(expectedKeys, 1 << 20)) - 1) << 1;
+        this.table = new long[length];
+        this.counterMask = length * 16 - 1;
+        this.sampleSize = 10 * length;
+    }
+
+    int frequency(Object key) {
+        int hash = key.hashCode();
+        int frequency = MAX_COUNT;
+        for (long seed : SEEDS) {
+            int counter = counter(hash, seed);
+            frequency = Math.min(frequency, (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 0xF));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = key.hashCode();
+        boolean added = false;
+        for (long seed : SEEDS) {
+            int counter = counter(hash, seed);
+            int index = counter >>> 4;
+            int offset = (counter & 15) << 2;
+            if (((table[index] >>> offset) & 0xF) < MAX_COUNT) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int counter(int hash, long seed) {
+        long mixed = (hash + seed) * 0x9e3779b97f4a7c15L;
+        return (int) (mixed ^ (mixed >>> 32)) & counterMask;
+    }
+}
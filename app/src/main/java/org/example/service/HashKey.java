@@ -0,0 +1,77 @@
+package org.example.service;
+
+import org.example.request.Request;
+
+import java.util.Locale;
+
+/**
+ * Which part of a request {@link ConsistentHashRoutingServiceImpl} hashes: {@code path},
+ * {@code client} (the client's IP address), {@code header:<name>} or {@code query:<name>}.
+ */
+public record HashKey(Source source, String name) {
+    public static final HashKey PATH = new HashKey(Source.PATH, null);
+    public static final HashKey CLIENT = new HashKey(Source.CLIENT, null);
+    public static final long NO_KEY = 0;
+
+    public enum Source {
+        PATH, CLIENT, HEADER, QUERY
+    }
+
+    public static HashKey parse(String value) {
+        int separator = value.indexOf(':');
+        String source = (separator < 0 ? value : value.substring(0, separator)).trim().toUpperCase(Locale.ROOT);
+        String name = separator < 0 ? null : value.substring(separator + 1).trim();
+        try {
+            HashKey hashKey = new HashKey(Source.valueOf(source), name);
+            boolean named = hashKey.source == Source.HEADER || hashKey.source == Source.QUERY;
+            if (named && (name == null || name.isEmpty())) {
+                throw new IllegalArgumentException("Hash key " + value + " needs a name.");
+            }
+            return hashKey;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Hash key is invalid: " + value, e);
+        }
+    }
+
+    /**
+     * @return 64 bit hash of the key, or {@link #NO_KEY} when the request does not carry it
+     */
+    public long hash(Request request) {
+        String path = request.path() == null ? "" : request.path();
+        return switch (source) {
+            case PATH -> {
+                int query = path.indexOf('?');
+                yield Hashing.hash(path, 0, query < 0 ? path.length() : query);
+            }
+            case CLIENT -> {
+                String address = request.clientAddress();
+                yield address == null ? NO_KEY : Hashing.hash(address, 0, address.length());
+            }
+            case HEADER -> {
+                String header = request.header(name);
+                yield header == null ? NO_KEY : Hashing.hash(header, 0, header.length());
+            }
+            case QUERY -> queryHash(path);
+        };
+    }
+
+    private long queryHash(String path) {
+        int start = path.indexOf('?') + 1;
+        if (start == 0) {
+            return NO_KEY;
+        }
+        while (start < path.length()) {
+            int end = path.indexOf('&', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            int equals = path.indexOf('=', start);
+            int nameEnd = equals < 0 || equals > end ? end : equals;
+            if (nameEnd - start == name.length() && path.startsWith(name, start)) {
+                return nameEnd == end ? NO_KEY : Hashing.hash(path, nameEnd + 1, end);
+            }
+            start = end + 1;
+        }
+        return NO_KEY;
+    }
+}
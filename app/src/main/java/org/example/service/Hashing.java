@@ -0,0 +1,24 @@
+package org.example.service;
+
+final class Hashing {
+    private Hashing() {
+    }
+
+    /**
+     * FNV-1a over the chars followed by the murmur3 finalizer, so short similar keys still spread
+     * over the whole 64 bit space. Never returns 0, which callers use as "no key".
+     */
+    static long hash(CharSequence value, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Method;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Actively probes adapters that were taken out of rotation until they answer with a 2xx again.
+ * Every unhealthy adapter has its own probe on a {@link TimingWheel}, so a dead or hanging backend
+ * never delays the recovery of another one. Probes time out on their own, back off exponentially
+ * while an adapter keeps failing, and are jittered so a pool that went down together is not probed
+ * in lockstep.
+ */
+@Slf4j
+public class HealthChecker {
+    public static final Method DEFAULT_METHOD = Method.GET;
+    public static final String DEFAULT_PATH = "/";
+    public static final long DEFAULT_INTERVAL_MS = 1000;
+    public static final long DEFAULT_TIMEOUT_MS = 1000;
+    public static final long DEFAULT_MAX_BACKOFF_MS = 30_000;
+
+    static final double JITTER = 0.2;
+    private static final long TICK_MS = 50;
+    private static final int WHEEL_SIZE = 512;
+
+    private final List<Adapter> adapters;
+    private final RoundRobinSelector selector;
+    private final Method method;
+    private final String path;
+    private final long intervalMs;
+    private final long timeoutMs;
+    private final long maxBackoffMs;
+    private final IntConsumer onRecovered;
+    private final AtomicIntegerArray failures;
+    private final AtomicIntegerArray probing;
+    private final TimingWheel wheel = new TimingWheel(TICK_MS, WHEEL_SIZE);
+
+    public HealthChecker(List<Adapter> adapters, RoundRobinSelector selector, Config config) {
+        this(adapters, selector, config, index -> {
+        });
+    }
+
+    /**
+     * @param onRecovered called with the adapter index after a probe put it back into rotation
+     */
+    public HealthChecker(List<Adapter> adapters, RoundRobinSelector selector, Config config, IntConsumer onRecovered) {
+        this.adapters = adapters;
+        this.onRecovered = onRecovered;
+        this.selector = selector;
+        this.method = config.getHealthCheckMethod();
+        this.path = config.getHealthCheckPath();
+        this.intervalMs = config.getHealthCheckIntervalMs();
+        this.timeoutMs = config.getHealthCheckTimeoutMs();
+        this.maxBackoffMs = config.getHealthCheckMaxBackoffMs();
+        this.failures = new AtomicIntegerArray(adapters.size());
+        this.probing = new AtomicIntegerArray(adapters.size());
+    }
+
+    /**
+     * Starts probing the adapter unless it is already being probed.
+     */
+    public void watch(int index) {
+        if (probing.compareAndSet(index, 0, 1)) {
+            wheel.schedule(() -> probe(index), delayMs(0));
+        }
+    }
+
+    public int failures(int index) {
+        return failures.get(index);
+    }
+
+    public void stop() {
+        wheel.stop();
+    }
+
+    private void probe(int index) {
+        CompletableFuture<Boolean> check;
+        try {
+            // orTimeout completes the adapter's own future, which aborts the probe
+            check = adapters.get(index).healthcheckAsync(method, path).orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            check = CompletableFuture.failedFuture(e);
+        }
+        check.whenComplete((healthy, error) -> {
+            if (error == null && Boolean.TRUE.equals(healthy)) {
+                failures.set(index, 0);
+                probing.set(index, 0);
+                if (selector.markHealthy(index)) {
+                    log.info("instance {} recovered", index);
+                }
+                onRecovered.accept(index);
+            } else {
+                int failed = failures.incrementAndGet(index);
+                log.info("instance {} still failing after {} probes", index, failed);
+                wheel.schedule(() -> probe(index), delayMs(failed));
+            }
+        });
+    }
+
+    long delayMs(int failed) {
+        int shift = Math.min(failed, 20);
+        long backoff = intervalMs > maxBackoffMs >> shift ? maxBackoffMs : intervalMs << shift;
+        double jitter = 1 + JITTER * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return (long) (backoff * jitter);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.service;
+
+import org.example.Config;
+import org.example.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides when a second copy of a safe request goes out. The delay is the configured percentile of
+ * the first adapter's recent latency once enough samples are in, otherwise the fixed delay, and
+ * hedges are paid for from a budget that grows by {@code budgetPercent}% of a token per request.
+ */
+public class Hedger {
+    public static final long DEFAULT_DELAY_MS = 0;
+    public static final double DEFAULT_PERCENTILE = 0;
+    public static final int DEFAULT_BUDGET_PERCENT = 5;
+
+    static final int MIN_SAMPLES = 100;
+    static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final double MAX_BURST = 10;
+
+    private final long delayNanos;
+    private final double percentile;
+    private final double tokensPerRequest;
+    private final TokenBucket budget = new TokenBucket(MAX_BURST);
+    // two rolling windows per adapter: the current one and the one before
+    private final LatencyHistogram[] windows;
+    private final AtomicLongArray windowEpochs;
+    private final LongAdder hedged = new LongAdder();
+
+    public Hedger(int adapters, Config config) {
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(config.getHedgeDelayMs());
+        this.percentile = config.getHedgePercentile();
+        this.tokensPerRequest = config.getHedgeBudgetPercent() / 100.0;
+        this.windows = new LatencyHistogram[adapters * 2];
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = new LatencyHistogram();
+        }
+        this.windowEpochs = new AtomicLongArray(adapters * 2);
+    }
+
+    public boolean enabled() {
+        return delayNanos > 0 || percentile > 0;
+    }
+
+    public long hedged() {
+        return hedged.sum();
+    }
+
+    void onRequest() {
+        budget.deposit(tokensPerRequest);
+    }
+
+    boolean tryHedge() {
+        if (budget.tryAcquire()) {
+            hedged.increment();
+            return true;
+        }
+        return false;
+    }
+
+    void record(int index, long latencyNanos) {
+        long epoch = System.nanoTime() / WINDOW_NANOS;
+        int window = index * 2 + (int) (epoch & 1);
+        long seen = windowEpochs.get(window);
+        if (seen != epoch && windowEpochs.compareAndSet(window, seen, epoch)) {
+            windows[window].reset();
+        }
+        windows[window].record(latencyNanos);
+    }
+
+    /**
+     * @return how long to wait for {@code index} before hedging, or -1 to not hedge
+     */
+    long delayNanos(int index) {
+        if (percentile > 0) {
+            long epoch = System.nanoTime() / WINDOW_NANOS;
+            LatencyHistogram first = recent(index * 2, epoch);
+            LatencyHistogram second = recent(index * 2 + 1, epoch);
+            if (first == null) {
+                first = second;
+                second = null;
+            }
+            if (first != null && first.count() + (second == null ? 0 : second.count()) >= MIN_SAMPLES) {
+                return LatencyHistogram.percentile(percentile, first, second);
+            }
+        }
+        return delayNanos > 0 ? delayNanos : -1;
+    }
+
+    private LatencyHistogram recent(int window, long epoch) {
+        return windowEpochs.get(window) >= epoch - 1 ? windows[window] : null;
+    }
+}
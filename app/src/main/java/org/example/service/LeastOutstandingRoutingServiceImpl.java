@@ -0,0 +1,52 @@
+package org.example.service;
+
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Request;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Sends each request to the healthy adapter with the fewest requests in flight. The scan starts at
+ * the round robin position so ties are spread instead of always landing on the first adapter.
+ */
+public class LeastOutstandingRoutingServiceImpl extends AbstractRoutingService {
+    public LeastOutstandingRoutingServiceImpl(List<Adapter> adapters, long timeoutMs) {
+        this(adapters, timeoutMs, Executors.newSingleThreadExecutor());
+    }
+
+    public LeastOutstandingRoutingServiceImpl(List<Adapter> adapters, long timeoutMs, ExecutorService executorService) {
+        this(adapters, Config.withTimeout(timeoutMs), executorService);
+    }
+
+    public LeastOutstandingRoutingServiceImpl(List<Adapter> adapters, Config config, ExecutorService executorService) {
+        super(adapters, config, executorService);
+    }
+
+    @Override
+    protected int select(Request request, long sequence, int attempt, long tried) {
+        int[] healthy = selector.healthy();
+        if (healthy.length == 0) {
+            return RoundRobinSelector.NONE;
+        }
+        // a failover skips the adapters this request has been turned away from
+        long skip = untriedSet(healthy, tried);
+        int offset = (int) Long.remainderUnsigned(sequence + attempt, healthy.length);
+        int best = RoundRobinSelector.NONE;
+        int bestInFlight = Integer.MAX_VALUE;
+        for (int i = 0; i < healthy.length && bestInFlight > 0; i++) {
+            int candidate = healthy[(offset + i) % healthy.length];
+            if (isTried(skip, candidate)) {
+                continue;
+            }
+            int candidateInFlight = inFlight(candidate);
+            if (candidateInFlight < bestInFlight) {
+                best = candidate;
+                bestInFlight = candidateInFlight;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.service;
+
+import org.example.metrics.RequestMetrics;
+import org.example.request.Request;
+import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToIntFunction;
+
+/**
+ * Counts the responses of the wrapped service by status class and records how long they took,
+ * cache hits and shed requests included, i.e. what clients of one route see.
+ */
+public class MeteredRoutingService implements RoutingService {
+    private final RoutingService delegate;
+    private final RequestMetrics metrics;
+
+    public MeteredRoutingService(RoutingService delegate, RequestMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    public RequestMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public CompletableFuture<Response> forwardRequestAsync(Request request) {
+        return record(System.nanoTime(), delegate.forwardRequestAsync(request), Response::status);
+    }
+
+    @Override
+    public CompletableFuture<StreamedResponse> streamRequestAsync(Request request, InputStream body) {
+        // until the headers are in, the body is streamed after that
+        return record(System.nanoTime(), delegate.streamRequestAsync(request, body), StreamedResponse::status);
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    private <T> CompletableFuture<T> record(long start, CompletableFuture<T> response, ToIntFunction<T> status) {
+        response.whenComplete((result, error) -> {
+            long latencyNanos = System.nanoTime() - start;
+            if (error != null) {
+                metrics.onError(latencyNanos);
+            } else {
+                metrics.onResponse(status.applyAsInt(result), latencyNanos);
+            }
+        });
+        return response;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.service;
+
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Request;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Power of two choices scored by peak-EWMA latency times (in flight + 1). A slower observation
+ * replaces the average immediately and faster ones decay it with time constant {@code decay}, so
+ * traffic leaves a backend as soon as it starts slowing down rather than when it starts failing.
+ * A failed call counts as a slow one, otherwise a backend answering 5xx right away would look like
+ * the fastest and draw even more traffic.
+ */
+public class PeakEwmaRoutingServiceImpl extends AbstractRoutingService {
+    public static final long DEFAULT_DECAY_MS = 10_000;
+
+    // a backend with requests in flight but no latency sample yet should not look free, and one that
+    // fails is charged this much for the call however quickly it failed
+    private static final double PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double decayNanos;
+    private final AtomicLongArray costBits;
+    private final AtomicLongArray stamps;
+
+    public PeakEwmaRoutingServiceImpl(List<Adapter> adapters, long timeoutMs) {
+        this(adapters, timeoutMs, Executors.newSingleThreadExecutor(), DEFAULT_DECAY_MS);
+    }
+
+    public PeakEwmaRoutingServiceImpl(List<Adapter> adapters, long timeoutMs, ExecutorService executorService, long decayMs) {
+        this(adapters, Config.builder().instances(Map.of()).timeoutMs(timeoutMs).ewmaDecayMs(decayMs).build(), executorService);
+    }
+
+    public PeakEwmaRoutingServiceImpl(List<Adapter> adapters, Config config, ExecutorService executorService) {
+        super(adapters, config, executorService);
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(config.getEwmaDecayMs());
+        this.costBits = new AtomicLongArray(adapters.size());
+        this.stamps = new AtomicLongArray(adapters.size());
+        long now = System.nanoTime();
+        for (int i = 0; i < adapters.size(); i++) {
+            stamps.set(i, now);
+        }
+    }
+
+    @Override
+    protected int select(Request request, long sequence, int attempt, long tried) {
+        int[] healthy = selector.healthy();
+        // a failover samples among the adapters this request has not been turned away from yet
+        long skip = untriedSet(healthy, tried);
+        int candidates = untriedCount(healthy, skip);
+        if (candidates < 2) {
+            return candidates == 0 ? RoundRobinSelector.NONE : untried(healthy, skip, 0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates);
+        int second = random.nextInt(candidates - 1);
+        if (second >= first) {
+            second++;
+        }
+        int a = untried(healthy, skip, first);
+        int b = untried(healthy, skip, second);
+        return score(b) < score(a) ? b : a;
+    }
+
+    @Override
+    protected void onComplete(int index, long latencyNanos, boolean success) {
+        observe(index, success ? latencyNanos : Math.max(latencyNanos, (long) PENALTY_NANOS), System.nanoTime());
+    }
+
+    double score(int index) {
+        int pending = inFlight(index);
+        double cost = cost(index, System.nanoTime());
+        if (cost == 0 && pending > 0) {
+            return PENALTY_NANOS + pending;
+        }
+        return cost * (pending + 1);
+    }
+
+    double cost(int index, long now) {
+        double cost = Double.longBitsToDouble(costBits.get(index));
+        long elapsed = Math.max(0, now - stamps.get(index));
+        // decay towards zero while idle so a past spike does not exile the backend forever
+        return cost * Math.exp(-elapsed / decayNanos);
+    }
+
+    void observe(int index, long latencyNanos, long now) {
+        while (true) {
+            long currentBits = costBits.get(index);
+            long stamp = stamps.get(index);
+            double current = Double.longBitsToDouble(currentBits);
+            double updated;
+            if (latencyNanos > current) {
+                updated = latencyNanos;
+            } else {
+                double weight = Math.exp(-Math.max(0, now - stamp) / decayNanos);
+                updated = current * weight + latencyNanos * (1 - weight);
+            }
+            if (costBits.compareAndSet(index, currentBits, Double.doubleToRawLongBits(updated))) {
+                stamps.set(index, Math.max(stamp, now));
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.service;
+
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Request;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples two distinct healthy adapters at random and sends the request to the one with fewer
+ * requests in flight. Constant time regardless of pool size, unlike the full scan of
+ * {@link LeastOutstandingRoutingServiceImpl}.
+ */
+public class PowerOfTwoChoicesRoutingServiceImpl extends AbstractRoutingService {
+    public PowerOfTwoChoicesRoutingServiceImpl(List<Adapter> adapters, long timeoutMs) {
+        this(adapters, timeoutMs, Executors.newSingleThreadExecutor());
+    }
+
+    public PowerOfTwoChoicesRoutingServiceImpl(List<Adapter> adapters, long timeoutMs, ExecutorService executorService) {
+        this(adapters, Config.withTimeout(timeoutMs), executorService);
+    }
+
+    public PowerOfTwoChoicesRoutingServiceImpl(List<Adapter> adapters, Config config, ExecutorService executorService) {
+        super(adapters, config, executorService);
+    }
+
+    @Override
+    protected int select(Request request, long sequence, int attempt, long tried) {
+        int[] healthy = selector.healthy();
+        // a failover samples among the adapters this request has not been turned away from yet
+        long skip = untriedSet(healthy, tried);
+        int candidates = untriedCount(healthy, skip);
+        if (candidates < 2) {
+            return candidates == 0 ? RoundRobinSelector.NONE : untried(healthy, skip, 0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates);
+        int second = random.nextInt(candidates - 1);
+        if (second >= first) {
+            second++;
+        }
+        int a = untried(healthy, skip, first);
+        int b = untried(healthy, skip, second);
+        return inFlight(b) < inFlight(a) ? b : a;
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.service;
+
+import org.example.Config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One token bucket per key, e.g. per client. A bucket is kept as the single time at which it will
+ * be full again (the generic cell rate algorithm), so a full bucket and a missing one are the same
+ * thing: buckets are dropped simply by reusing their slot once they filled up, with no sweeping.
+ * <p>
+ * Keys are 64 bit hashes in striped open-addressing tables of primitive arrays, so hundreds of
+ * thousands of clients cost a few megabytes and no garbage per request. Each stripe has its own
+ * lock and only grows, up to {@code maxKeys} in total, while its buckets are all in use; past that
+ * the bucket closest to full is dropped, giving that client a fresh one.
+ */
+public class RateLimiter {
+    public static final long DEFAULT_RATE = 0;
+    public static final int DEFAULT_MAX_KEYS = 1 << 20;
+
+    static final int STRIPES = 64;
+    private static final int PROBES = 16;
+    private static final int INITIAL_STRIPE_CAPACITY = 256;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxStripeCapacity;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder limited = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RateLimiter(Config config) {
+        this(config.getRateLimit(), config.getRateLimitBurst(), config.getRateLimitMaxKeys());
+    }
+
+    /**
+     * @param rate  tokens added per second
+     * @param burst bucket capacity, 0 for one second worth of tokens
+     */
+    public RateLimiter(long rate, int burst, int maxKeys) {
+        this.intervalNanos = Math.max(1, TimeUnit.SECONDS.toNanos(1) / rate);
+        this.burstNanos = intervalNanos * (burst > 0 ? burst : rate);
+        int stripeKeys = Math.max(INITIAL_STRIPE_CAPACITY, maxKeys / STRIPES);
+        this.maxStripeCapacity = Integer.highestOneBit(stripeKeys - 1) << 1;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(INITIAL_STRIPE_CAPACITY);
+        }
+    }
+
+    /**
+     * Takes a token from the key's bucket.
+     *
+     * @param key a non-zero hash, see {@link HashKey#hash}
+     * @return 0 if a token was taken, otherwise how long until the bucket has one
+     */
+    public long acquire(long key, long nowNanos) {
+        long waitNanos = stripes[(int) (key >>> 58)].acquire(key, nowNanos);
+        if (waitNanos > 0) {
+            limited.increment();
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Requests turned away because their bucket was empty.
+     */
+    public long limited() {
+        return limited.sum();
+    }
+
+    /**
+     * Buckets dropped while not yet full because there was no room for a new key.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Keys whose bucket is not full at {@code nowNanos}.
+     */
+    public int size(long nowNanos) {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size(nowNanos);
+        }
+        return size;
+    }
+
+    private final class Stripe {
+        private long[] keys;
+        // when each bucket is full again
+        private long[] fullAt;
+
+        private Stripe(int capacity) {
+            keys = new long[capacity];
+            fullAt = new long[capacity];
+        }
+
+        private synchronized long acquire(long key, long now) {
+            int slot = slot(key, now);
+            if (slot < 0) {
+                grow(now);
+                slot = slot(key, now);
+            }
+            if (slot < 0) {
+                slot = closestToFull(key);
+                evictions.increment();
+                keys[slot] = 0;
+            }
+            // empty at fullAt - burst, every request moves it one interval further
+            long start = keys[slot] == key && fullAt[slot] - now > 0 ? fullAt[slot] : now;
+            long waitNanos = start + intervalNanos - burstNanos - now;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            keys[slot] = key;
+            fullAt[slot] = start + intervalNanos;
+            return 0;
+        }
+
+        /**
+         * @return the key's slot, else the first free one within the probe window, else -1
+         */
+        private int slot(long key, long now) {
+            int mask = keys.length - 1;
+            int free = -1;
+            for (int i = 0, slot = (int) key & mask; i < PROBES; i++, slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                if (free < 0 && (keys[slot] == 0 || fullAt[slot] - now <= 0)) {
+                    free = slot;
+                }
+            }
+            return free;
+        }
+
+        private int closestToFull(long key) {
+            int mask = keys.length - 1;
+            int closest = (int) key & mask;
+            for (int i = 1, slot = (closest + 1) & mask; i < PROBES; i++, slot = (slot + 1) & mask) {
+                if (fullAt[slot] - fullAt[closest] < 0) {
+                    closest = slot;
+                }
+            }
+            return closest;
+        }
+
+        private void grow(long now) {
+            long[] oldKeys = keys;
+            long[] oldFullAt = fullAt;
+            for (int capacity = oldKeys.length * 2; capacity <= maxStripeCapacity; capacity *= 2) {
+                if (rehash(oldKeys, oldFullAt, capacity, now)) {
+                    return;
+                }
+            }
+            keys = oldKeys;
+            fullAt = oldFullAt;
+        }
+
+        /**
+         * @return false if a bucket in use did not fit
+         */
+        private boolean rehash(long[] oldKeys, long[] oldFullAt, int capacity, long now) {
+            keys = new long[capacity];
+            fullAt = new long[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                // buckets that are full again are not worth keeping
+                if (oldKeys[i] != 0 && oldFullAt[i] - now > 0) {
+                    int slot = slot(oldKeys[i], now);
+                    if (slot < 0) {
+                        return false;
+                    }
+                    keys[slot] = oldKeys[i];
+                    fullAt[slot] = oldFullAt[i];
+                }
+            }
+            return true;
+        }
+
+        private synchronized int size(long now) {
+            int size = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0 && fullAt[i] - now > 0) {
+                    size++;
+                }
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.service;
+
+import org.example.request.Request;
+import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers clients that use up their {@link RateLimiter} bucket with a 429 before anything else in
+ * the proxy sees the request. Requests are keyed by the configured {@link HashKey}, falling back to
+ * the client's address when they do not carry it, so leaving out the header does not get a client
+ * around its limit.
+ */
+public class RateLimitingRoutingService implements RoutingService {
+    private final RoutingService delegate;
+    private final RateLimiter limiter;
+    private final HashKey key;
+
+    public RateLimitingRoutingService(RoutingService delegate, RateLimiter limiter, HashKey key) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+        this.key = key;
+    }
+
+    public RateLimiter limiter() {
+        return limiter;
+    }
+
+    @Override
+    public CompletableFuture<Response> forwardRequestAsync(Request request) {
+        long waitNanos = waitNanos(request);
+        if (waitNanos > 0) {
+            return CompletableFuture.completedFuture(tooManyRequests(waitNanos));
+        }
+        return delegate.forwardRequestAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<StreamedResponse> streamRequestAsync(Request request, InputStream body) {
+        long waitNanos = waitNanos(request);
+        if (waitNanos > 0) {
+            return CompletableFuture.completedFuture(StreamedResponse.of(tooManyRequests(waitNanos)));
+        }
+        return delegate.streamRequestAsync(request, body);
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    private long waitNanos(Request request) {
+        long hash = key.hash(request);
+        if (hash == HashKey.NO_KEY) {
+            hash = HashKey.CLIENT.hash(request);
+        }
+        // requests from an unknown client are not limited
+        return hash == HashKey.NO_KEY ? 0 : limiter.acquire(hash, System.nanoTime());
+    }
+
+    private static Response tooManyRequests(long waitNanos) {
+        long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        return new Response(429, "Too many requests", Map.of("retry-after", String.valueOf(retryAfter)));
+    }
+}
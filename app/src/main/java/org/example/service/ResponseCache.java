@@ -0,0 +1,176 @@
+package org.example.service;
+
+import org.example.respond.Response;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Byte-bounded store of upstream responses. Entries are evicted in LRU order, but a new key only
+ * gets in if it was asked for more often than the entry it would push out (TinyLFU admission), so
+ * a scan over many one-off paths cannot flush the popular ones. Lookups go straight to a
+ * concurrent map and only leave their key in a lossy buffer; the buffer is replayed into the LRU
+ * order and the frequency sketch under a lock that readers never wait for.
+ */
+public class ResponseCache {
+    public static final long DEFAULT_MAX_BYTES = 0;
+
+    private static final int READ_BUFFER_SIZE = 128;
+    private static final int DRAIN_THRESHOLD = 32;
+    // used to size the frequency sketch
+    private static final int AVERAGE_ENTRY_BYTES = 1024;
+
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<String> readBuffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    // guarded by evictionLock
+    private final LinkedHashMap<String, Entry> accessOrder = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private volatile long weightedSize;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ResponseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, maxBytes / AVERAGE_ENTRY_BYTES));
+    }
+
+    /**
+     * @param storedAtMs   when the response was received
+     * @param freshForMs   how long it may be served without asking the upstream
+     * @param weight       approximate size in bytes
+     */
+    record Entry(Response response, long storedAtMs, long freshForMs, int weight) {
+        boolean isFresh(long nowMs) {
+            return nowMs - storedAtMs < freshForMs;
+        }
+
+        String etag() {
+            return response.headers().get("etag");
+        }
+
+        String lastModified() {
+            return response.headers().get("last-modified");
+        }
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * New entries turned away because they were asked for less often than the eviction victim.
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Misses are recorded too, so a key that keeps being asked for is eventually admitted.
+     */
+    Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (buffered.incrementAndGet() <= READ_BUFFER_SIZE) {
+            readBuffer.add(key);
+        } else {
+            // dropping a few reads only makes the LRU order slightly less exact
+            buffered.decrementAndGet();
+        }
+        if (buffered.get() >= DRAIN_THRESHOLD && evictionLock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * @return false if the entry was not admitted
+     */
+    boolean put(String key, Entry entry) {
+        if (entry.weight() > maxBytes) {
+            rejected.increment();
+            return false;
+        }
+        evictionLock.lock();
+        try {
+            drainReads();
+            sketch.increment(key);
+            Entry previous = accessOrder.put(key, entry);
+            entries.put(key, entry);
+            weightedSize += entry.weight() - (previous == null ? 0 : previous.weight());
+            return evict(key, previous == null);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    void invalidate(String key) {
+        evictionLock.lock();
+        try {
+            Entry removed = accessOrder.remove(key);
+            if (removed != null) {
+                entries.remove(key);
+                weightedSize -= removed.weight();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean evict(String candidate, boolean isNew) {
+        int candidateFrequency = sketch.frequency(candidate);
+        while (weightedSize > maxBytes) {
+            Iterator<Map.Entry<String, Entry>> eldest = accessOrder.entrySet().iterator();
+            Map.Entry<String, Entry> victim = eldest.next();
+            if (isNew && !victim.getKey().equals(candidate) && candidateFrequency <= sketch.frequency(victim.getKey())) {
+                remove(candidate);
+                rejected.increment();
+                return false;
+            }
+            eldest.remove();
+            entries.remove(victim.getKey());
+            weightedSize -= victim.getValue().weight();
+            evictions.increment();
+        }
+        return true;
+    }
+
+    private void remove(String key) {
+        Entry removed = accessOrder.remove(key);
+        entries.remove(key);
+        weightedSize -= removed.weight();
+    }
+
+    private void drainReads() {
+        for (String key = readBuffer.poll(); key != null; key = readBuffer.poll()) {
+            buffered.decrementAndGet();
+            sketch.increment(key);
+            // moves the entry to the most recently used end
+            accessOrder.get(key);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.service;
+
+import org.example.Config;
+import org.example.request.Method;
+
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a failed call is sent to another adapter. Only idempotent methods are retried,
+ * unless the request never reached the upstream, and every retry is paid for from a budget that
+ * grows by {@code budgetPercent}% of a token per successful call, so a partial outage cannot
+ * multiply the load on the instances that are left.
+ */
+public class RetryPolicy {
+    public static final int DEFAULT_MAX_RETRIES = 2;
+    public static final long DEFAULT_BACKOFF_MS = 10;
+    public static final long DEFAULT_MAX_BACKOFF_MS = 100;
+    public static final int DEFAULT_BUDGET_PERCENT = 20;
+
+    private static final double MAX_BURST = 10;
+
+    private final int maxRetries;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final double tokensPerSuccess;
+    private final TokenBucket budget = new TokenBucket(MAX_BURST);
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public RetryPolicy(Config config) {
+        this.maxRetries = config.getRetryMaxRetries();
+        this.backoffMs = config.getRetryBackoffMs();
+        this.maxBackoffMs = config.getRetryMaxBackoffMs();
+        this.tokensPerSuccess = config.getRetryBudgetPercent() / 100.0;
+    }
+
+    public long retried() {
+        return retried.sum();
+    }
+
+    /**
+     * Retries that were allowed by the method and the retry limit but not by the budget.
+     */
+    public long exhausted() {
+        return exhausted.sum();
+    }
+
+    void onSuccess() {
+        budget.deposit(tokensPerSuccess);
+    }
+
+    /**
+     * @param retries how many times this request was retried already
+     */
+    boolean allows(Method method, Throwable error, int retries) {
+        if (retries >= maxRetries || !(method.isIdempotent() || neverSent(error))) {
+            return false;
+        }
+        if (!budget.tryAcquire()) {
+            exhausted.increment();
+            return false;
+        }
+        retried.increment();
+        return true;
+    }
+
+    /**
+     * Exponential backoff with full jitter: a random delay up to {@code backoff * 2^retries}, capped.
+     */
+    long backoffMs(int retries) {
+        int shift = Math.min(retries, 20);
+        long ceiling = backoffMs > maxBackoffMs >> shift ? maxBackoffMs : backoffMs << shift;
+        return ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static boolean neverSent(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+    }
+}
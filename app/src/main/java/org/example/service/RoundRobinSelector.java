@@ -0,0 +1,100 @@
+package org.example.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free round robin over the adapters that are currently healthy. Picking reads an immutable
+ * snapshot of healthy indexes and bumps one atomic counter, so it never allocates; the snapshot is
+ * copied only when an adapter changes health.
+ */
+public class RoundRobinSelector {
+    public static final int NONE = -1;
+
+    private final int size;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicReference<int[]> healthy;
+
+    public RoundRobinSelector(int size) {
+        this.size = size;
+        int[] all = new int[size];
+        Arrays.setAll(all, index -> index);
+        this.healthy = new AtomicReference<>(all);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * One sequence number per request; retries for the same request use {@code sequence + attempt}
+     * so failing over does not skew the rotation for everybody else.
+     */
+    public long nextSequence() {
+        return sequence.getAndIncrement();
+    }
+
+    public int pick(long sequence) {
+        int[] snapshot = healthy.get();
+        if (snapshot.length == 0) {
+            return NONE;
+        }
+        return snapshot[(int) Long.remainderUnsigned(sequence, snapshot.length)];
+    }
+
+    /**
+     * Current healthy indexes in ascending order. The array is shared, callers must not modify it.
+     */
+    public int[] healthy() {
+        return healthy.get();
+    }
+
+    public boolean isHealthy(int index) {
+        return Arrays.binarySearch(healthy.get(), index) >= 0;
+    }
+
+    public int healthyCount() {
+        return healthy.get().length;
+    }
+
+    /**
+     * @return true if this call changed the adapter's state
+     */
+    public boolean markUnhealthy(int index) {
+        while (true) {
+            int[] current = healthy.get();
+            int position = Arrays.binarySearch(current, index);
+            if (position < 0) {
+                return false;
+            }
+            int[] updated = new int[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, position);
+            System.arraycopy(current, position + 1, updated, position, current.length - position - 1);
+            if (healthy.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return true if this call changed the adapter's state
+     */
+    public boolean markHealthy(int index) {
+        while (true) {
+            int[] current = healthy.get();
+            int position = Arrays.binarySearch(current, index);
+            if (position >= 0) {
+                return false;
+            }
+            int insertAt = -position - 1;
+            int[] updated = new int[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insertAt);
+            updated[insertAt] = index;
+            System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            if (healthy.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.service;
+
+import java.util.Locale;
+
+/**
+ * Sends requests for {@code host} (any host when null) whose path starts with {@code prefix} to the
+ * instance group {@code group}. Written as {@code [host]/prefix=group}, e.g. {@code /api=api} or
+ * {@code static.example.com/=web}, optionally followed by the group's retry limits, e.g.
+ * {@code /api=api;retry-max=3;retry-budget-percent=10}.
+ *
+ * @param retryMax           retries per request for the group, {@link #DEFAULT} for {@code --retry-max}
+ * @param retryBudgetPercent retry budget of the group, {@link #DEFAULT} for {@code --retry-budget-percent}
+ */
+public record Route(String host, String prefix, String group, int retryMax, int retryBudgetPercent) {
+    public static final int DEFAULT = -1;
+
+    public Route(String host, String prefix, String group) {
+        this(host, prefix, group, DEFAULT, DEFAULT);
+    }
+
+    public static Route parse(String value) {
+        String[] parts = value.split(";");
+        int separator = parts[0].lastIndexOf('=');
+        String target = separator < 0 ? "" : parts[0].substring(0, separator).trim();
+        String group = separator < 0 ? "" : parts[0].substring(separator + 1).trim();
+        int slash = target.indexOf('/');
+        if (group.isEmpty() || slash < 0) {
+            throw new IllegalArgumentException("Route is invalid: " + value);
+        }
+        int retryMax = DEFAULT;
+        int retryBudgetPercent = DEFAULT;
+        for (int i = 1; i < parts.length; i++) {
+            String[] setting = parts[i].split("=", 2);
+            String name = setting[0].trim();
+            if (setting.length < 2 || !setting[1].trim().matches("^[0-9]+$")) {
+                throw new IllegalArgumentException("Route setting is invalid: " + parts[i]);
+            }
+            int number = Integer.parseInt(setting[1].trim());
+            switch (name) {
+                case "retry-max" -> retryMax = number;
+                case "retry-budget-percent" -> {
+                    if (number > 100) {
+                        throw new IllegalArgumentException("Route setting is invalid: " + parts[i]);
+                    }
+                    retryBudgetPercent = number;
+                }
+                default -> throw new IllegalArgumentException("Unknown route setting: " + name);
+            }
+        }
+        String host = slash == 0 ? null : target.substring(0, slash).toLowerCase(Locale.ROOT);
+        return new Route(host, target.substring(slash), group, retryMax, retryBudgetPercent);
+    }
+
+    /**
+     * True if the route gives its group retry limits of its own.
+     */
+    public boolean hasRetryLimits() {
+        return retryMax != DEFAULT || retryBudgetPercent != DEFAULT;
+    }
+
+    @Override
+    public String toString() {
+        return (host == null ? "" : host) + prefix + "=" + group
+                + (retryMax == DEFAULT ? "" : ";retry-max=" + retryMax)
+                + (retryBudgetPercent == DEFAULT ? "" : ";retry-budget-percent=" + retryBudgetPercent);
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Longest-prefix match of request paths, compiled into one trie of path segments per host plus one
+ * for routes that apply to any host. A lookup walks the request path once, so its cost depends on
+ * the path length and not on the number of routes. Prefixes match whole segments: {@code /api}
+ * covers {@code /api} and {@code /api/users} but not {@code /apis}. Read-only once compiled.
+ */
+public class RouteTable<T> {
+    private final Map<String, Node<T>> hosts;
+    private final Node<T> anyHost;
+
+    private RouteTable(Map<String, Node<T>> hosts, Node<T> anyHost) {
+        this.hosts = hosts;
+        this.anyHost = anyHost;
+    }
+
+    private static final class Node<T> {
+        private final Map<String, Node<T>> children = new HashMap<>();
+        private T target;
+    }
+
+    /**
+     * @param targets what each route's group resolves to
+     */
+    public static <T> RouteTable<T> compile(List<Route> routes, Map<String, T> targets) {
+        Map<String, Node<T>> hosts = new HashMap<>();
+        Node<T> anyHost = new Node<>();
+        for (Route route : routes) {
+            T target = targets.get(route.group());
+            if (target == null) {
+                throw new IllegalArgumentException("Route " + route + " refers to an unknown group.");
+            }
+            Node<T> node = route.host() == null ? anyHost : hosts.computeIfAbsent(hostname(route.host()), host -> new Node<>());
+            for (String segment : route.prefix().split("/")) {
+                if (!segment.isEmpty()) {
+                    node = node.children.computeIfAbsent(segment, key -> new Node<>());
+                }
+            }
+            if (node.target != null) {
+                throw new IllegalArgumentException("Route " + route + " is defined twice.");
+            }
+            node.target = target;
+        }
+        return new RouteTable<>(hosts, anyHost);
+    }
+
+    /**
+     * @param host value of the Host header, may carry a port or be null
+     * @param path request target, may carry a query
+     * @return target of the longest matching prefix, routes for the host first, or null
+     */
+    public T match(String host, String path) {
+        if (host != null && !hosts.isEmpty()) {
+            Node<T> root = hosts.get(hostname(host));
+            T target = root == null ? null : match(root, path);
+            if (target != null) {
+                return target;
+            }
+        }
+        return match(anyHost, path);
+    }
+
+    private T match(Node<T> root, String path) {
+        T best = root.target;
+        Node<T> node = root;
+        int query = path.indexOf('?');
+        int end = query < 0 ? path.length() : query;
+        int start = 0;
+        while (start < end) {
+            int slash = path.indexOf('/', start);
+            int segmentEnd = slash < 0 || slash > end ? end : slash;
+            if (segmentEnd > start) {
+                node = node.children.get(path.substring(start, segmentEnd));
+                if (node == null) {
+                    break;
+                }
+                if (node.target != null) {
+                    best = node.target;
+                }
+            }
+            start = segmentEnd + 1;
+        }
+        return best;
+    }
+
+    private static String hostname(String host) {
+        int port = host.lastIndexOf(':');
+        // an IPv6 literal ends with ']' unless a port follows
+        String name = port < 0 || host.endsWith("]") ? host : host.substring(0, port);
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
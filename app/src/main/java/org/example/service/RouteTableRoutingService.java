@@ -0,0 +1,58 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.request.Request;
+import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hands each request to the routing service of the instance group its Host and path map to. Every
+ * group balances, retries and trips breakers on its own.
+ */
+@Slf4j
+public class RouteTableRoutingService implements RoutingService {
+    public static final Response NOT_FOUND_RESPONSE = new Response(404, "Not found", Collections.emptyMap());
+
+    private final RouteTable<RoutingService> routeTable;
+    private final Collection<RoutingService> groups;
+
+    /**
+     * @param groups every routing service in the table, stopped together with it
+     */
+    public RouteTableRoutingService(RouteTable<RoutingService> routeTable, Collection<RoutingService> groups) {
+        this.routeTable = routeTable;
+        this.groups = groups;
+    }
+
+    @Override
+    public CompletableFuture<Response> forwardRequestAsync(Request request) {
+        RoutingService group = match(request);
+        return group == null ? CompletableFuture.completedFuture(NOT_FOUND_RESPONSE) : group.forwardRequestAsync(request);
+    }
+
+    @Override
+    public CompletableFuture<StreamedResponse> streamRequestAsync(Request request, InputStream body) {
+        RoutingService group = match(request);
+        return group == null
+                ? CompletableFuture.completedFuture(StreamedResponse.of(NOT_FOUND_RESPONSE))
+                : group.streamRequestAsync(request, body);
+    }
+
+    @Override
+    public void stop() {
+        groups.forEach(RoutingService::stop);
+    }
+
+    private RoutingService match(Request request) {
+        RoutingService group = routeTable.match(request.header("Host"), request.path());
+        if (group == null) {
+            log.info("No route for {} {}", request.header("Host"), request.path());
+        }
+        return group;
+    }
+}
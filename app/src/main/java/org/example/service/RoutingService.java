@@ -2,9 +2,23 @@ package org.example.service;
 
 import org.example.request.Request;
 import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 
 public interface RoutingService {
-    Response forwardRequest(Request request);
+    CompletableFuture<Response> forwardRequestAsync(Request request);
+
+    default Response forwardRequest(Request request) {
+        return forwardRequestAsync(request).join();
+    }
+
+    /**
+     * Streams {@code body} to a single upstream and hands back its response unbuffered. A request
+     * body can only be sent once, so requests carrying one are not retried on another adapter.
+     */
+    CompletableFuture<StreamedResponse> streamRequestAsync(Request request, InputStream body);
 
     void stop();
 }
@@ -0,0 +1,42 @@
+package org.example.service;
+
+import org.example.Config;
+import org.example.adapter.Adapter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+public enum RoutingStrategy {
+    ROUND_ROBIN,
+    LEAST_OUTSTANDING,
+    POWER_OF_TWO_CHOICES,
+    PEAK_EWMA,
+    SMOOTH_WEIGHTED,
+    CONSISTENT_HASH;
+
+    public RoutingService create(List<Adapter> adapters, long timeoutMs, ExecutorService executorService) {
+        return create(adapters, Config.withTimeout(timeoutMs), executorService);
+    }
+
+    public RoutingService create(List<Adapter> adapters, Config config, ExecutorService executorService) {
+        int[] weights = new int[adapters.size()];
+        Arrays.fill(weights, 1);
+        return create(adapters, weights, config, executorService);
+    }
+
+    /**
+     * @param weights one per adapter, only used by {@link #SMOOTH_WEIGHTED}
+     */
+    public RoutingService create(List<Adapter> adapters, int[] weights, Config config, ExecutorService executorService) {
+        return switch (this) {
+            case ROUND_ROBIN -> new RoundRobinRoutingServiceImpl(adapters, config, executorService);
+            case LEAST_OUTSTANDING -> new LeastOutstandingRoutingServiceImpl(adapters, config, executorService);
+            case POWER_OF_TWO_CHOICES -> new PowerOfTwoChoicesRoutingServiceImpl(adapters, config, executorService);
+            case PEAK_EWMA -> new PeakEwmaRoutingServiceImpl(adapters, config, executorService);
+            case SMOOTH_WEIGHTED -> new SmoothWeightedRoutingServiceImpl(adapters, weights, config, executorService);
+            case CONSISTENT_HASH -> new ConsistentHashRoutingServiceImpl(adapters, config, executorService,
+                    ConsistentHashRoutingServiceImpl.DEFAULT_VIRTUAL_NODES);
+        };
+    }
+}
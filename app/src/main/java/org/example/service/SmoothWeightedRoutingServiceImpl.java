@@ -0,0 +1,135 @@
+package org.example.service;
+
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Request;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * nginx-style smooth weighted round robin: with weights {5, 1, 1} the picks go a a b a c a a instead
+ * of five a's in a row. One full cycle of picks is precomputed whenever weights or health change, so
+ * a pick is a single array read like {@link RoundRobinSelector}.
+ */
+public class SmoothWeightedRoutingServiceImpl extends AbstractRoutingService {
+    private final AtomicIntegerArray weights;
+    private final AtomicReference<Schedule> schedule = new AtomicReference<>();
+    private final AtomicInteger weightsVersion = new AtomicInteger();
+
+    public SmoothWeightedRoutingServiceImpl(List<Adapter> adapters, int[] weights, long timeoutMs) {
+        this(adapters, weights, timeoutMs, Executors.newSingleThreadExecutor());
+    }
+
+    public SmoothWeightedRoutingServiceImpl(List<Adapter> adapters, int[] weights, long timeoutMs, ExecutorService executorService) {
+        this(adapters, weights, Config.withTimeout(timeoutMs), executorService);
+    }
+
+    public SmoothWeightedRoutingServiceImpl(List<Adapter> adapters, int[] weights, Config config, ExecutorService executorService) {
+        super(adapters, config, executorService);
+        if (weights.length != adapters.size()) {
+            throw new IllegalArgumentException("Need one weight per adapter.");
+        }
+        for (int weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weights cannot be negative.");
+            }
+        }
+        this.weights = new AtomicIntegerArray(weights);
+    }
+
+    /**
+     * Takes effect on the next pick. A weight of 0 drains the adapter without marking it unhealthy.
+     */
+    public void setWeight(int index, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weights cannot be negative.");
+        }
+        weights.set(index, weight);
+        weightsVersion.incrementAndGet();
+    }
+
+    public int getWeight(int index) {
+        return weights.get(index);
+    }
+
+    /**
+     * Neighbouring picks are often the same adapter, so a failover walks on through the cycle to
+     * the first adapter the request has not tried.
+     */
+    @Override
+    protected int select(Request request, long sequence, int attempt, long tried) {
+        Schedule current = schedule();
+        int[] order = current.order;
+        if (order.length == 0) {
+            return RoundRobinSelector.NONE;
+        }
+        int start = (int) Long.remainderUnsigned(sequence + attempt, order.length);
+        if (untriedSet(current.healthy, tried) != 0) {
+            for (int i = 0; i < order.length; i++) {
+                int index = order[(start + i) % order.length];
+                if (!isTried(tried, index)) {
+                    return index;
+                }
+            }
+        }
+        // every adapter with a weight was tried
+        return order[start];
+    }
+
+    private Schedule schedule() {
+        int[] healthy = selector.healthy();
+        int version = weightsVersion.get();
+        Schedule current = schedule.get();
+        if (current != null && current.healthy == healthy && current.version == version) {
+            return current;
+        }
+        Schedule rebuilt = new Schedule(healthy, version, buildOrder(healthy));
+        schedule.compareAndSet(current, rebuilt);
+        return rebuilt;
+    }
+
+    private int[] buildOrder(int[] healthy) {
+        int[] effective = new int[healthy.length];
+        int total = 0;
+        int gcd = 0;
+        for (int i = 0; i < healthy.length; i++) {
+            effective[i] = weights.get(healthy[i]);
+            total += effective[i];
+            gcd = gcd(gcd, effective[i]);
+        }
+        if (total == 0) {
+            return new int[0];
+        }
+        total /= gcd;
+        for (int i = 0; i < effective.length; i++) {
+            effective[i] /= gcd;
+        }
+
+        int[] order = new int[total];
+        int[] current = new int[healthy.length];
+        for (int pick = 0; pick < total; pick++) {
+            int best = -1;
+            for (int i = 0; i < healthy.length; i++) {
+                current[i] += effective[i];
+                if (effective[i] > 0 && (best < 0 || current[i] > current[best])) {
+                    best = i;
+                }
+            }
+            current[best] -= total;
+            order[pick] = healthy[best];
+        }
+        return order;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private record Schedule(int[] healthy, int version, int[] order) {
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel: scheduling is a lock-free enqueue and every tick only looks at one bucket, so
+ * the cost does not grow with the number of pending timers the way a priority queue does. Timers fire
+ * on the ticker thread up to one tick late and must not block.
+ */
+@Slf4j
+class TimingWheel {
+    private final long tickNanos;
+    private final long startNanos;
+    private final Queue<Timer>[] buckets;
+    private final Queue<Timer> pending = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService ticker;
+    // only touched by the ticker thread
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMs, int size) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.startNanos = System.nanoTime();
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor();
+        ticker.scheduleAtFixedRate(this::advance, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    void schedule(Runnable task, long delayMs) {
+        long deadline = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        pending.add(new Timer((deadline + tickNanos - 1) / tickNanos, task));
+    }
+
+    void stop() {
+        ticker.shutdownNow();
+    }
+
+    private void advance() {
+        long target = (System.nanoTime() - startNanos) / tickNanos;
+        for (Timer timer = pending.poll(); timer != null; timer = pending.poll()) {
+            // a timer that is already due goes into the bucket processed next
+            buckets[(int) (Math.max(tick, timer.deadlineTick) % buckets.length)].add(timer);
+        }
+        while (tick <= target) {
+            Queue<Timer> bucket = buckets[(int) (tick % buckets.length)];
+            for (int remaining = bucket.size(); remaining > 0; remaining--) {
+                Timer timer = bucket.poll();
+                if (timer.deadlineTick > tick) {
+                    // due in a later revolution
+                    bucket.add(timer);
+                    continue;
+                }
+                try {
+                    timer.task.run();
+                } catch (Exception e) {
+                    // catching all exceptions so the ticker wont die
+                    log.error(e.getMessage(), e);
+                }
+            }
+            tick++;
+        }
+    }
+
+    private record Timer(long deadlineTick, Runnable task) {
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free bucket of fractional tokens that is filled explicitly, e.g. with a fraction of a token
+ * for every request, rather than by a clock. Used to cap extra load such as hedges or retries to a
+ * share of normal traffic.
+ */
+public class TokenBucket {
+    private static final long SCALE = 1000;
+
+    private final long capacity;
+    private final AtomicLong tokens;
+
+    public TokenBucket(double capacity) {
+        this.capacity = (long) (capacity * SCALE);
+        this.tokens = new AtomicLong(this.capacity);
+    }
+
+    public void deposit(double amount) {
+        long scaled = (long) (amount * SCALE);
+        while (true) {
+            long current = tokens.get();
+            long updated = Math.min(capacity, current + scaled);
+            if (updated == current || tokens.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if a whole token was taken
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long current = tokens.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    public double available() {
+        return (double) tokens.get() / SCALE;
+    }
+}
@@ -3,24 +3,128 @@ package org.example.utils;
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
 import org.example.Config;
+import org.example.ExecutionMode;
+import org.example.FrontEnd;
+import org.example.adapter.ConnectionPool;
+import org.example.log.AccessLog;
+import org.example.metrics.AdminServer;
+import org.example.request.Method;
+import org.example.respond.ResponseCompressor;
+import org.example.server.NioHttpServer;
+import org.example.service.AdaptiveLimiter;
+import org.example.service.CircuitBreaker;
+import org.example.service.CoalescingRoutingService;
+import org.example.service.HashKey;
+import org.example.service.HealthChecker;
+import org.example.service.Hedger;
+import org.example.service.PeakEwmaRoutingServiceImpl;
+import org.example.service.RateLimiter;
+import org.example.service.ResponseCache;
+import org.example.service.RetryPolicy;
+import org.example.service.Route;
+import org.example.service.RoutingStrategy;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @UtilityClass
 @Slf4j
 public class ConfigParser {
+    private static final String OPTION_PREFIX = "--";
+
     public Config parse(String[] arguments) {
-        if (arguments.length == 0) {
+        String[] positional = Arrays.stream(arguments).filter(arg -> !arg.startsWith(OPTION_PREFIX)).toArray(String[]::new);
+        Map<String, String> options = parseOptions(arguments);
+        if (positional.length == 0) {
             throw new IllegalArgumentException("Need at least one argument for instance configuration.");
         }
-        String instanceArg = arguments[0];
-        String hostname = arguments.length > 1 ? arguments[1] : Config.DEFAULT_HOSTNAME;
-        int port = getPortFromArgOrDefault(arguments, Config.DEFAULT_PORT);
-        long timeoutMs = getTimeoutMsFromArgOrDefault(arguments, Config.DEFAULT_TIMEOUT_MILLIS);
+        String instanceArg = positional[0];
+        String hostname = positional.length > 1 ? positional[1] : Config.DEFAULT_HOSTNAME;
+        int port = getPortFromArgOrDefault(positional, Config.DEFAULT_PORT);
+        long timeoutMs = getTimeoutMsFromArgOrDefault(positional, Config.DEFAULT_TIMEOUT_MILLIS);
         Map<String, List<String>> instance = parseStringIntoMap(instanceArg);
-        return new Config(instance, timeoutMs, hostname, port);
+        FrontEnd frontEnd = getEnumOrDefault(options, "front-end", FrontEnd.class, Config.DEFAULT_FRONT_END);
+        boolean streaming = Boolean.parseBoolean(options.getOrDefault("streaming", "false"));
+        if (streaming && frontEnd == FrontEnd.NIO) {
+            throw new IllegalArgumentException("The nio front end buffers bodies and cannot be combined with streaming.");
+        }
+        return Config.builder()
+                .instances(instance)
+                .weights(parseWeights(instanceArg))
+                .routes(parseRoutes(options, instance))
+                .timeoutMs(timeoutMs)
+                .hostname(hostname)
+                .port(port)
+                .adminPort(getIntOrDefault(options, "admin-port", 0, AdminServer.DEFAULT_PORT))
+                .accessLog(options.get("access-log"))
+                .accessLogCapacity(getIntOrDefault(options, "access-log-capacity", 1, AccessLog.DEFAULT_CAPACITY))
+                .accessLogMaxBytes(getLongOrDefault(options, "access-log-max-bytes", AccessLog.DEFAULT_MAX_FILE_BYTES))
+                .accessLogMaxFiles(getIntOrDefault(options, "access-log-max-files", 1, AccessLog.DEFAULT_MAX_FILES))
+                .executionMode(getEnumOrDefault(options, "execution-mode", ExecutionMode.class, Config.DEFAULT_EXECUTION_MODE))
+                .routingStrategy(getEnumOrDefault(options, "routing-strategy", RoutingStrategy.class, Config.DEFAULT_ROUTING_STRATEGY))
+                .ewmaDecayMs(getLongOrDefault(options, "ewma-decay-ms", PeakEwmaRoutingServiceImpl.DEFAULT_DECAY_MS))
+                .hashKey(HashKey.parse(options.getOrDefault("hash-key", "path")))
+                .healthCheckMethod(getEnumOrDefault(options, "health-check-method", Method.class, HealthChecker.DEFAULT_METHOD))
+                .healthCheckPath(getPathOrDefault(options, "health-check-path", HealthChecker.DEFAULT_PATH))
+                .healthCheckIntervalMs(getLongOrDefault(options, "health-check-interval-ms", HealthChecker.DEFAULT_INTERVAL_MS))
+                .healthCheckTimeoutMs(getLongOrDefault(options, "health-check-timeout-ms", HealthChecker.DEFAULT_TIMEOUT_MS))
+                .healthCheckMaxBackoffMs(getLongOrDefault(options, "health-check-max-backoff-ms", HealthChecker.DEFAULT_MAX_BACKOFF_MS))
+                .breakerFailureRateThreshold(getPercentOrDefault(options, "breaker-failure-rate", CircuitBreaker.DEFAULT_FAILURE_RATE_THRESHOLD))
+                .breakerSlowCallRateThreshold(getPercentOrDefault(options, "breaker-slow-call-rate", CircuitBreaker.DEFAULT_SLOW_CALL_RATE_THRESHOLD))
+                .breakerSlowCallDurationMs(getLongOrDefault(options, "breaker-slow-call-ms", CircuitBreaker.DEFAULT_SLOW_CALL_DURATION_MS))
+                .breakerMinimumCalls(getIntOrDefault(options, "breaker-minimum-calls", 1, CircuitBreaker.DEFAULT_MINIMUM_CALLS))
+                .breakerWindowMs(getLongOrDefault(options, "breaker-window-ms", CircuitBreaker.DEFAULT_WINDOW_MS))
+                .breakerHalfOpenCalls(getIntOrDefault(options, "breaker-half-open-calls", 1, CircuitBreaker.DEFAULT_HALF_OPEN_CALLS))
+                .hedgeDelayMs(getLongOrDefault(options, "hedge-delay-ms", Hedger.DEFAULT_DELAY_MS))
+                .hedgePercentile(getPercentileOrDefault(options, "hedge-percentile", Hedger.DEFAULT_PERCENTILE))
+                .hedgeBudgetPercent(getPercentOrDefault(options, "hedge-budget-percent", Hedger.DEFAULT_BUDGET_PERCENT))
+                .retryMaxRetries(getIntOrDefault(options, "retry-max", 0, RetryPolicy.DEFAULT_MAX_RETRIES))
+                .retryBackoffMs(getLongOrDefault(options, "retry-backoff-ms", RetryPolicy.DEFAULT_BACKOFF_MS))
+                .retryMaxBackoffMs(getLongOrDefault(options, "retry-max-backoff-ms", RetryPolicy.DEFAULT_MAX_BACKOFF_MS))
+                .retryBudgetPercent(getPercentOrDefault(options, "retry-budget-percent", RetryPolicy.DEFAULT_BUDGET_PERCENT))
+                .cacheMaxBytes(getLongOrDefault(options, "cache-max-bytes", ResponseCache.DEFAULT_MAX_BYTES))
+                .coalesce(Boolean.parseBoolean(options.getOrDefault("coalesce", "false")))
+                .coalesceWaitMs(getLongOrDefault(options, "coalesce-wait-ms", CoalescingRoutingService.DEFAULT_WAIT_MS))
+                .concurrencyLimit(Boolean.parseBoolean(options.getOrDefault("concurrency-limit", "false")))
+                .concurrencyLimitInitial(getIntOrDefault(options, "concurrency-limit-initial", 1, AdaptiveLimiter.DEFAULT_INITIAL_LIMIT))
+                .concurrencyLimitMax(getIntOrDefault(options, "concurrency-limit-max", 1, AdaptiveLimiter.DEFAULT_MAX_LIMIT))
+                .rateLimit(getLongOrDefault(options, "rate-limit", RateLimiter.DEFAULT_RATE))
+                .rateLimitBurst(getIntOrDefault(options, "rate-limit-burst", 0, 0))
+                .rateLimitKey(HashKey.parse(options.getOrDefault("rate-limit-key", "client")))
+                .rateLimitMaxKeys(getIntOrDefault(options, "rate-limit-max-keys", 1, RateLimiter.DEFAULT_MAX_KEYS))
+                .poolMaxConnections(getIntOrDefault(options, "pool-max-connections", 0, ConnectionPool.DEFAULT_MAX_CONNECTIONS))
+                .poolMinConnections(getIntOrDefault(options, "pool-min-connections", 0, ConnectionPool.DEFAULT_MIN_CONNECTIONS))
+                .poolIdleTimeoutMs(getIntOrDefault(options, "pool-idle-timeout-ms", 1000, (int) ConnectionPool.DEFAULT_IDLE_TIMEOUT_MS))
+                .poolMaxLifetimeMs(getLongOrDefault(options, "pool-max-lifetime-ms", ConnectionPool.DEFAULT_MAX_LIFETIME_MS))
+                .poolKeepAliveMs(getLongOrDefault(options, "pool-keep-alive-ms", ConnectionPool.DEFAULT_KEEP_ALIVE_MS))
+                .streaming(streaming)
+                .frontEnd(frontEnd)
+                .eventLoops(getIntOrDefault(options, "event-loops", 1, NioHttpServer.DEFAULT_EVENT_LOOPS))
+                .maxRequestBytes(getIntOrDefault(options, "max-request-bytes", 1024, NioHttpServer.DEFAULT_MAX_REQUEST_BYTES))
+                .compress(Boolean.parseBoolean(options.getOrDefault("compress", "false")))
+                .compressMinBytes(getIntOrDefault(options, "compress-min-bytes", 0, ResponseCompressor.DEFAULT_MIN_BYTES))
+                .compressTypes(getListOrDefault(options, "compress-types", ResponseCompressor.DEFAULT_CONTENT_TYPES))
+                .build();
+    }
+
+    private static Map<String, String> parseOptions(String[] arguments) {
+        Map<String, String> options = new HashMap<>();
+        for (String argument : arguments) {
+            if (!argument.startsWith(OPTION_PREFIX)) {
+                continue;
+            }
+            int separator = argument.indexOf('=');
+            if (separator < 0) {
+                options.put(argument.substring(OPTION_PREFIX.length()), "true");
+            } else {
+                options.put(argument.substring(OPTION_PREFIX.length(), separator), argument.substring(separator + 1));
+            }
+        }
+        return options;
     }
 
     private static int getPortFromArgOrDefault(String[] arguments, int defaultPort) {
@@ -34,20 +138,75 @@ public class ConfigParser {
         return defaultPort;
     }
 
+    /**
+     * Several instance groups are separated by {@code ;}, e.g. {@code api[http://localhost:8001];web[http://localhost:9001]}.
+     */
     private static Map<String, List<String>> parseStringIntoMap(String instanceArgs) {
-        if (instanceArgs.matches("^[\\w\\d-]*\\[(http\\:\\/\\/[\\w\\d\\:\\,]*)*\\]")) {
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        for (String group : instanceArgs.split(";")) {
+            Map.Entry<String, List<String>> instances = parseGroup(group.trim());
+            if (groups.put(instances.getKey(), instances.getValue()) != null) {
+                throw new IllegalArgumentException("Instance group " + instances.getKey() + " is defined twice.");
+            }
+        }
+        return groups;
+    }
+
+    private static Map.Entry<String, List<String>> parseGroup(String instanceArgs) {
+        if (instanceArgs.matches("^[\\w\\d-]*\\[(http\\:\\/\\/[\\w\\d\\:\\,=]*)*\\]")) {
             String name = instanceArgs.substring(0, instanceArgs.indexOf("["));
             String instanceValue = instanceArgs.substring(instanceArgs.indexOf("[") + 1, instanceArgs.indexOf("]"));
             if (instanceValue.trim().length() == 0) {
                 throw new IllegalArgumentException("Need at least one instance value.");
             }
-            List<String> instances = Arrays.stream(instanceValue.split(",")).map(String::trim).toList();
-            return Map.of(name, instances);
+            List<String> instances = Arrays.stream(instanceValue.split(",")).map(String::trim)
+                    .map(instance -> instance.contains("=") ? instance.substring(0, instance.indexOf('=')) : instance)
+                    .toList();
+            return Map.entry(name, instances);
         } else {
             throw new IllegalArgumentException("Instance argument format is invalid.");
         }
     }
 
+    private static Map<String, Integer> parseWeights(String instanceArgs) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String group : instanceArgs.split(";")) {
+            String instanceValue = group.substring(group.indexOf("[") + 1, group.indexOf("]"));
+            for (String instance : instanceValue.split(",")) {
+                int separator = instance.indexOf('=');
+                if (separator < 0) {
+                    continue;
+                }
+                String weight = instance.substring(separator + 1).trim();
+                if (!weight.matches("^[0-9]+$")) {
+                    throw new IllegalArgumentException("Instance weight is invalid: " + instance);
+                }
+                weights.put(instance.substring(0, separator).trim(), Integer.parseInt(weight));
+            }
+        }
+        return weights;
+    }
+
+    private static List<Route> parseRoutes(Map<String, String> options, Map<String, List<String>> groups) {
+        String value = options.get("routes");
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        List<Route> routes = Arrays.stream(value.split(",")).map(String::trim).map(Route::parse).toList();
+        Map<String, Route> limitsByGroup = new HashMap<>();
+        for (Route route : routes) {
+            if (!groups.containsKey(route.group())) {
+                throw new IllegalArgumentException("Route " + route + " refers to an unknown instance group.");
+            }
+            // the limits apply to the group, so every route to it has to give the same ones
+            Route first = limitsByGroup.putIfAbsent(route.group(), route);
+            if (first != null && (first.retryMax() != route.retryMax() || first.retryBudgetPercent() != route.retryBudgetPercent())) {
+                throw new IllegalArgumentException("Routes " + first + " and " + route + " give their group different retry limits.");
+            }
+        }
+        return routes;
+    }
+
     private static long getTimeoutMsFromArgOrDefault(String[] arguments, long defaultTimeoutMillis) {
         if (arguments.length > 3) {
             if (arguments[3].matches("^[0-9]*$")) {
@@ -58,4 +217,80 @@ public class ConfigParser {
         log.info("Timeout is invalid or not set, will fallback to default at {}", defaultTimeoutMillis);
         return defaultTimeoutMillis;
     }
+
+    private static long getLongOrDefault(Map<String, String> options, String option, long defaultValue) {
+        String value = options.get(option);
+        if (value != null) {
+            if (value.matches("^[0-9]+$")) {
+                return Long.parseLong(value);
+            }
+            throw new IllegalArgumentException("Option " + option + " is invalid: " + value);
+        }
+        return defaultValue;
+    }
+
+    private static int getIntOrDefault(Map<String, String> options, String option, int min, int defaultValue) {
+        long value = getLongOrDefault(options, option, defaultValue);
+        if (value < min || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Option " + option + " is invalid: " + value);
+        }
+        return (int) value;
+    }
+
+    private static List<String> getListOrDefault(Map<String, String> options, String option, List<String> defaultValue) {
+        String value = options.get(option);
+        if (value == null) {
+            return defaultValue;
+        }
+        List<String> values = Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(element -> !element.isEmpty())
+                .toList();
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("Option " + option + " is invalid: " + value);
+        }
+        return values;
+    }
+
+    private static int getPercentOrDefault(Map<String, String> options, String option, int defaultValue) {
+        long value = getLongOrDefault(options, option, defaultValue);
+        if (value > 100) {
+            throw new IllegalArgumentException("Option " + option + " is invalid: " + value);
+        }
+        return (int) value;
+    }
+
+    private static double getPercentileOrDefault(Map<String, String> options, String option, double defaultValue) {
+        String value = options.get(option);
+        if (value != null) {
+            if (value.matches("^[0-9]+(\\.[0-9]+)?$") && Double.parseDouble(value) < 100) {
+                return Double.parseDouble(value);
+            }
+            throw new IllegalArgumentException("Option " + option + " is invalid: " + value);
+        }
+        return defaultValue;
+    }
+
+    private static String getPathOrDefault(Map<String, String> options, String option, String defaultValue) {
+        String value = options.get(option);
+        if (value != null) {
+            if (value.startsWith("/")) {
+                return value;
+            }
+            throw new IllegalArgumentException("Option " + option + " is invalid: " + value);
+        }
+        return defaultValue;
+    }
+
+    private static <E extends Enum<E>> E getEnumOrDefault(Map<String, String> options, String option, Class<E> type, E defaultValue) {
+        String value = options.get(option);
+        if (value != null) {
+            try {
+                return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Option " + option + " is invalid: " + value);
+            }
+        }
+        return defaultValue;
+    }
 }
@@ -109,6 +109,26 @@ public class AppTest {
         app.stop();
     }
 
+    @Test
+    public void testUnsupportedMethodIsAnswered() throws IOException, InterruptedException {
+        String instance = "http://" + address2 + ":" + port2;
+        for (String streaming : new String[]{"--streaming=false", "--streaming=true"}) {
+            Config config = ConfigParser.parse(new String[]{"instance[" + instance + "]", "localhost", "8000", "500", streaming});
+            App app = new App(config);
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:8000"))
+                    .PUT(HttpRequest.BodyPublishers.ofString("payload"))
+                    .timeout(Duration.ofSeconds(5))
+                    .build();
+            try {
+                HttpResponse<String> response = HttpClient.newHttpClient()
+                        .send(request, HttpResponse.BodyHandlers.ofString());
+                assertEquals(501, response.statusCode());
+            } finally {
+                app.stop();
+            }
+        }
+    }
+
     @Test
     public void testAppCreateAndOneInstanceFailing() throws IOException {
         proxy1.toxics().timeout("timeout", ToxicDirection.DOWNSTREAM, 800);
@@ -0,0 +1,163 @@
+package org.example.adapter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private final List<CompletableFuture<String>> calls = new ArrayList<>();
+    private final AtomicInteger probes = new AtomicInteger();
+    private ConnectionPool pool;
+
+    private ConnectionPool pool(int maxConnections, int minConnections, long maxLifetimeMs, long keepAliveMs) {
+        pool = new ConnectionPool("instance-1", () -> CLIENT, client -> {
+            probes.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }, maxConnections, minConnections, maxLifetimeMs, keepAliveMs, 1000);
+        return pool;
+    }
+
+    private CompletableFuture<String> call() {
+        return pool.execute(client -> {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            synchronized (calls) {
+                calls.add(call);
+            }
+            return call;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void testExchangesOverTheLimitWaitForAConnection() {
+        pool(2, 0, 0, 0);
+        CompletableFuture<String> first = call();
+        CompletableFuture<String> second = call();
+        CompletableFuture<String> third = call();
+        assertEquals(2, calls.size());
+        assertEquals(2, pool.active());
+        assertEquals(1, pool.waiting());
+
+        calls.get(0).complete("first");
+        assertEquals("first", first.join());
+        assertEquals(3, calls.size());
+        assertEquals(0, pool.waiting());
+
+        calls.get(1).complete("second");
+        calls.get(2).complete("third");
+        assertEquals("second", second.join());
+        assertEquals("third", third.join());
+        assertEquals(0, pool.active());
+        assertEquals(2, pool.peakConnections());
+        assertEquals(3, pool.queueTime().count());
+    }
+
+    @Test
+    void testLongQueueDrainsWithoutRecursing() {
+        pool(1, 0, 0, 0);
+        CompletableFuture<String> running = call();
+        List<CompletableFuture<String>> queued = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            // every other waiter timed out, the others complete as soon as they start
+            CompletableFuture<String> waiter = i % 2 == 0
+                    ? call()
+                    : pool.execute(client -> CompletableFuture.completedFuture("inline"));
+            if (i % 2 == 0) {
+                waiter.cancel(true);
+            }
+            queued.add(waiter);
+        }
+        assertEquals(50_000, pool.waiting());
+
+        calls.get(0).complete("first");
+        assertEquals("first", running.join());
+        assertEquals(0, pool.waiting());
+        assertEquals(0, pool.active());
+        assertEquals(1, calls.size());
+        assertEquals("inline", queued.get(queued.size() - 1).join());
+    }
+
+    @Test
+    void testAbandonedExchangesAreDroppedOrAborted() {
+        pool(1, 0, 0, 0);
+        CompletableFuture<String> running = call();
+        CompletableFuture<String> waiting = call();
+        waiting.cancel(true);
+        running.completeExceptionally(new IllegalStateException("timeout"));
+
+        assertTrue(calls.get(0).isCancelled());
+        assertEquals(1, calls.size());
+        assertEquals(0, pool.active());
+        assertEquals(0, pool.waiting());
+        call();
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void testUnboundedPoolNeverWaits() {
+        pool(0, 0, 0, 0);
+        for (int i = 0; i < 100; i++) {
+            call();
+        }
+        assertEquals(100, calls.size());
+        assertEquals(0, pool.waiting());
+    }
+
+    @Test
+    void testClientIsRecycledAfterItsMaxLifetime() throws InterruptedException {
+        AtomicInteger created = new AtomicInteger();
+        pool = new ConnectionPool("instance-1", () -> {
+            created.incrementAndGet();
+            return HttpClient.newBuilder().connectTimeout(Duration.ofMillis(100)).build();
+        }, client -> CompletableFuture.completedFuture(null), 0, 0, 20, 0, 1000);
+        HttpClient first = pool.client();
+        assertSame(first, pool.client());
+
+        Thread.sleep(50);
+        HttpClient second = pool.client();
+        assertNotSame(first, second);
+        assertSame(second, pool.client());
+        assertEquals(2, created.get());
+        assertEquals(1, pool.recycles());
+    }
+
+    @Test
+    void testWarmUpOpensTheMinimumConnectionsAtOnce() {
+        pool(3, 5, 0, 0);
+        pool.warmUp().join();
+        assertEquals(3, probes.get());
+
+        pool(0, 4, 0, 0);
+        pool.warmUp().join();
+        assertEquals(7, probes.get());
+    }
+
+    @Test
+    void testWarmUpFailsWhenAProbeFails() {
+        pool = new ConnectionPool("instance-1", () -> CLIENT, client -> CompletableFuture.failedFuture(new IllegalStateException("refused")),
+                0, 2, 0, 0, 1000);
+        assertTrue(pool.warmUp().isCompletedExceptionally());
+        assertEquals(0, pool.active());
+    }
+
+    @Test
+    void testIdlePoolIsProbed() {
+        pool(0, 2, 0, 20);
+        await().atMost(Duration.ofSeconds(2)).until(() -> probes.get() >= 4);
+    }
+}
@@ -1,21 +1,35 @@
 package org.example.adapter;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.buffer.Body;
+import org.example.request.Method;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import javax.net.ssl.SSLSession;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
@@ -27,60 +41,158 @@ public class HttpAdapterTest {
 
     @Test
     void testCallingGetMethod() throws IOException, InterruptedException {
-        when(httpClient.send(any(), any(HttpResponse.BodyHandlers.ofString().getClass())))
-                .thenReturn(createDummyResponse(200, "ok"));
+        when(httpClient.send(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenReturn(createDummyResponse(200, "ok".getBytes()));
         var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
         var response = httpAdapter.get("/");
         assertEquals(200, response.status());
-        assertEquals("ok", response.body());
+        assertEquals("ok", response.body().asString());
         assertEquals("instance-1", response.headers().get("x-server"));
     }
 
     @Test
     void testCallingPostMethod() throws IOException, InterruptedException {
-        when(httpClient.send(any(), any(HttpResponse.BodyHandlers.ofString().getClass())))
-                .thenReturn(createDummyResponse(200, "this is a test"));
+        when(httpClient.send(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenReturn(createDummyResponse(200, "this is a test".getBytes()));
         var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
-        var response = httpAdapter.post("/", "this is a test");
+        var response = httpAdapter.post("/", Body.of("this is a test"));
         assertEquals(200, response.status());
-        assertEquals("this is a test", response.body());
+        assertEquals("this is a test", response.body().asString());
         assertEquals("instance-1", response.headers().get("x-server"));
     }
 
     @Test
     void testCallingPutMethod() throws IOException, InterruptedException {
-        when(httpClient.send(any(), any(HttpResponse.BodyHandlers.ofString().getClass())))
-                .thenReturn(createDummyResponse(200, "this is a test"));
+        when(httpClient.send(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenReturn(createDummyResponse(200, "this is a test".getBytes()));
         var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
-        var response = httpAdapter.put("/", "this is a test");
+        var response = httpAdapter.put("/", Body.of("this is a test"));
         assertEquals(200, response.status());
-        assertEquals("this is a test", response.body());
+        assertEquals("this is a test", response.body().asString());
         assertEquals("instance-1", response.headers().get("x-server"));
     }
 
     @Test
     void testCallingHeadMethod() throws IOException, InterruptedException {
-        when(httpClient.send(any(), any(HttpResponse.BodyHandlers.ofString().getClass())))
-                .thenReturn(createDummyResponse(200, null));
+        when(httpClient.send(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenReturn(createDummyResponse(200, (byte[]) null));
         var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
         var response = httpAdapter.head("/");
         assertEquals(200, response.status());
-        assertEquals(null, response.body());
+        assertEquals(Body.EMPTY, response.body());
         assertEquals("instance-1", response.headers().get("x-server"));
     }
 
     @Test
     void testCallingDeleteMethod() throws IOException, InterruptedException {
-        when(httpClient.send(any(), any(HttpResponse.BodyHandlers.ofString().getClass())))
-                .thenReturn(createDummyResponse(200, null));
+        when(httpClient.send(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenReturn(createDummyResponse(200, (byte[]) null));
         var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
         var response = httpAdapter.delete("/");
         assertEquals(200, response.status());
-        assertEquals(null, response.body());
+        assertEquals(Body.EMPTY, response.body());
         assertEquals("instance-1", response.headers().get("x-server"));
     }
 
-    HttpResponse<String> createDummyResponse(int statusCode, String body) {
+    @Test
+    void testCallingGetAsyncMethod() {
+        when(httpClient.sendAsync(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenReturn(CompletableFuture.completedFuture(createDummyResponse(200, "ok".getBytes())));
+        var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
+        var response = httpAdapter.getAsync("/").join();
+        assertEquals(200, response.status());
+        assertEquals("ok", response.body().asString());
+        assertEquals("instance-1", response.headers().get("x-server"));
+    }
+
+    @Test
+    void testCallingPostAsyncMethod() {
+        when(httpClient.sendAsync(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenReturn(CompletableFuture.completedFuture(createDummyResponse(200, "this is a test".getBytes())));
+        var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
+        var response = httpAdapter.postAsync("/", Body.of("this is a test")).join();
+        assertEquals(200, response.status());
+        assertEquals("this is a test", response.body().asString());
+        assertEquals("instance-1", response.headers().get("x-server"));
+    }
+
+    @Test
+    void testTimedOutAsyncCallCancelsExchange() {
+        CompletableFuture<HttpResponse<byte[]>> exchange = new CompletableFuture<>();
+        when(httpClient.sendAsync(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenReturn(exchange);
+        var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
+        var response = httpAdapter.getAsync("/").orTimeout(50, TimeUnit.MILLISECONDS);
+        assertThrows(CompletionException.class, response::join);
+        await().atMost(Duration.ofSeconds(1)).until(exchange::isCancelled);
+    }
+
+    @Test
+    void testConditionalGetSendsValidatorsAndKeepsCacheHeaders() {
+        when(httpClient.sendAsync(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenAnswer(invocation -> {
+                    HttpRequest request = invocation.getArgument(0);
+                    assertEquals(Optional.of("\"v1\""), request.headers().firstValue("If-None-Match"));
+                    return CompletableFuture.completedFuture(createDummyResponse(304, "".getBytes(),
+                            Map.of("ETag", List.of("\"v1\""), "Cache-Control", List.of("max-age=60"), "Set-Cookie", List.of("id=1"))));
+                });
+        var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
+        var response = httpAdapter.getAsync("/", Map.of("If-None-Match", "\"v1\"")).join();
+        assertEquals(304, response.status());
+        assertEquals("\"v1\"", response.headers().get("etag"));
+        assertEquals("max-age=60", response.headers().get("cache-control"));
+        assertEquals("instance-1", response.headers().get("x-server"));
+        assertFalse(response.headers().containsKey("set-cookie"));
+    }
+
+    @Test
+    void testStreamingBodyIsPassedThrough() throws IOException {
+        when(httpClient.sendAsync(any(), any(HttpResponse.BodyHandlers.ofInputStream().getClass())))
+                .thenReturn(CompletableFuture.completedFuture(createDummyResponse(200, (InputStream) new ByteArrayInputStream("streamed".getBytes()))));
+        var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
+        var response = httpAdapter.streamAsync(Method.POST, "/", new ByteArrayInputStream("payload".getBytes())).join();
+        assertEquals(200, response.status());
+        assertEquals("streamed", new String(response.body().readAllBytes()));
+        assertEquals("instance-1", response.headers().get("x-server"));
+    }
+
+    @Test
+    void testHealthcheckProbeUsesConfiguredMethodAndPath() {
+        when(httpClient.sendAsync(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenAnswer(invocation -> {
+                    HttpRequest request = invocation.getArgument(0);
+                    assertEquals("HEAD", request.method());
+                    assertEquals(URI.create("http://localhost/health"), request.uri());
+                    return CompletableFuture.completedFuture(createDummyResponse(204, "".getBytes()));
+                });
+        var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
+        assertTrue(httpAdapter.healthcheckAsync(Method.HEAD, "/health").join());
+    }
+
+    @Test
+    void testHealthcheckProbeFailsOnErrorStatus() {
+        when(httpClient.sendAsync(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenReturn(CompletableFuture.completedFuture(createDummyResponse(503, "down".getBytes())));
+        var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
+        assertFalse(httpAdapter.healthcheckAsync(Method.GET, "/").join());
+    }
+
+    @Test
+    void testTimedOutHealthcheckProbeCancelsExchange() {
+        CompletableFuture<HttpResponse<byte[]>> exchange = new CompletableFuture<>();
+        when(httpClient.sendAsync(any(), any(HttpResponse.BodyHandlers.ofByteArray().getClass())))
+                .thenReturn(exchange);
+        var httpAdapter = new HttpAdapter("instance-1", "http://localhost", httpClient);
+        var probe = httpAdapter.healthcheckAsync(Method.HEAD, "/").orTimeout(50, TimeUnit.MILLISECONDS);
+        assertThrows(CompletionException.class, probe::join);
+        await().atMost(Duration.ofSeconds(1)).until(exchange::isCancelled);
+    }
+
+    <T> HttpResponse<T> createDummyResponse(int statusCode, T body) {
+        return createDummyResponse(statusCode, body, Map.of());
+    }
+
+    <T> HttpResponse<T> createDummyResponse(int statusCode, T body, Map<String, List<String>> headers) {
         return new HttpResponse<>() {
             @Override
             public int statusCode() {
@@ -93,17 +205,17 @@ public class HttpAdapterTest {
             }
 
             @Override
-            public Optional<HttpResponse<String>> previousResponse() {
+            public Optional<HttpResponse<T>> previousResponse() {
                 return Optional.empty();
             }
 
             @Override
             public HttpHeaders headers() {
-                return null;
+                return HttpHeaders.of(headers, (name, value) -> true);
             }
 
             @Override
-            public String body() {
+            public T body() {
                 return body;
             }
 
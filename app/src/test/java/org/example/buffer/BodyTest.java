@@ -0,0 +1,64 @@
+package org.example.buffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BodyTest {
+    @Test
+    void testSlicesCompareByContent() throws IOException {
+        byte[] bytes = "[gr\u00fc\u00dfe]".getBytes(StandardCharsets.UTF_8);
+        Body slice = Body.wrap(bytes, 1, bytes.length - 2);
+        assertEquals(Body.of("gr\u00fc\u00dfe"), slice);
+        assertEquals(Body.of("gr\u00fc\u00dfe").hashCode(), slice.hashCode());
+        assertEquals(7, slice.length());
+        assertEquals("gr\u00fc\u00dfe", slice.asString());
+        assertArrayEquals("gr\u00fc\u00dfe".getBytes(StandardCharsets.UTF_8), slice.toByteArray());
+        assertArrayEquals(slice.toByteArray(), slice.newInputStream().readAllBytes());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        slice.writeTo(out);
+        assertArrayEquals(slice.toByteArray(), out.toByteArray());
+        assertEquals(7, slice.asByteBuffer().remaining());
+
+        assertNotEquals(Body.of("gr\u00fc\u00df"), slice);
+        assertSame(Body.EMPTY, Body.of(null));
+        assertSame(Body.EMPTY, Body.wrap(bytes, 3, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> Body.wrap(bytes, 3, bytes.length));
+    }
+
+    @Test
+    void testCopyLeavesTheBufferAlone() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16).put("GET hello".getBytes(StandardCharsets.US_ASCII)).flip();
+        Body body = Body.copyOf(buffer, 4, 5);
+        assertEquals(0, buffer.position());
+        buffer.clear().put("overwritten".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("hello", body.asString());
+    }
+
+    @Test
+    void testPoolHandsOutReleasedBuffers() {
+        BufferPool pool = new BufferPool(64, 1);
+        ByteBuffer first = pool.acquire();
+        assertTrue(first.isDirect());
+        assertEquals(64, first.capacity());
+        first.put((byte) 1);
+        pool.release(first);
+        ByteBuffer again = pool.acquire();
+        assertSame(first, again);
+        assertEquals(0, again.position());
+        assertEquals(64, again.limit());
+
+        // only its own buffers, and no more than it keeps
+        pool.release(ByteBuffer.allocate(64));
+        pool.release(ByteBuffer.allocateDirect(128));
+        assertEquals(0, pool.pooled());
+        pool.release(again);
+        pool.release(ByteBuffer.allocateDirect(64));
+        assertEquals(1, pool.pooled());
+    }
+}
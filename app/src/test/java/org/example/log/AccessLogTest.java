@@ -0,0 +1,140 @@
+package org.example.log;
+
+import org.example.request.Method;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessLogTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testWritesOneJsonLinePerRequest() throws IOException {
+        Path file = directory.resolve("access.log");
+        AccessLog accessLog = new AccessLog(file, 16, AccessLog.DEFAULT_MAX_FILE_BYTES, 1);
+        accessLog.start();
+        accessLog.log(1234, "10.0.0.1", Method.GET, "/items?q=1", 200, 42, TimeUnit.MILLISECONDS.toNanos(3), "api[http://localhost:8001]");
+        accessLog.log(0, null, Method.POST, "/say \"h\u00e9\"\\", 503, -1, 999, null);
+        accessLog.stop();
+
+        assertEquals(List.of(
+                "{\"time\":\"1970-01-01T00:00:01.234Z\",\"client\":\"10.0.0.1\",\"method\":\"GET\",\"path\":\"/items?q=1\",\"status\":200,"
+                        + "\"bytes\":42,\"duration_us\":3000,\"upstream\":\"api[http://localhost:8001]\"}",
+                "{\"time\":\"1970-01-01T00:00:00Z\",\"client\":null,\"method\":\"POST\",\"path\":\"/say \\\"h\\u00e9\\\"\\\\\",\"status\":503,"
+                        + "\"bytes\":null,\"duration_us\":0,\"upstream\":null}"),
+                Files.readAllLines(file));
+        assertEquals(2, accessLog.written());
+        assertEquals(0, accessLog.dropped());
+    }
+
+    @Test
+    void testDropsRecordsWhileTheRingIsFull() throws IOException {
+        Path file = directory.resolve("access.log");
+        AccessLog accessLog = new AccessLog(file, 4, AccessLog.DEFAULT_MAX_FILE_BYTES, 1);
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i < 4, accessLog.log(0, "10.0.0.1", Method.GET, "/" + i, 200, 0, 0, null));
+        }
+        assertEquals(2, accessLog.dropped());
+
+        accessLog.start();
+        accessLog.stop();
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(3).contains("\"path\":\"/3\""));
+    }
+
+    @Test
+    void testRotatesOnceAFileIsFull() throws IOException {
+        Path file = directory.resolve("access.log");
+        AccessLog accessLog = new AccessLog(file, 64, 1000, 2);
+        accessLog.start();
+        for (int round = 1; round <= 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                accessLog.log(0, "10.0.0.1", Method.GET, "/" + round + "/" + i, 200, 0, 0, "api");
+            }
+            long written = 10L * round;
+            await().atMost(Duration.ofSeconds(2)).until(() -> accessLog.written() == written);
+        }
+        accessLog.stop();
+
+        assertTrue(Files.exists(directory.resolve("access.log.1")));
+        assertTrue(Files.exists(directory.resolve("access.log.2")));
+        assertFalse(Files.exists(directory.resolve("access.log.3")));
+        assertTrue(Files.readAllLines(file).stream().allMatch(line -> line.contains("\"path\":\"/5/")));
+    }
+
+    @Test
+    void testKeepsWritingWhenRotationFails() throws IOException {
+        Path file = directory.resolve("access.log");
+        Path rotated = directory.resolve("access.log.1");
+        // a non-empty directory in the way of the move
+        Files.createDirectories(rotated.resolve("blocked"));
+        AccessLog accessLog = new AccessLog(file, 64, 1000, 1);
+        accessLog.start();
+        for (int round = 1; round <= 3; round++) {
+            for (int i = 0; i < 10; i++) {
+                accessLog.log(0, "10.0.0.1", Method.GET, "/" + round + "/" + i, 200, 0, 0, "api");
+            }
+            long written = 10L * round;
+            await().atMost(Duration.ofSeconds(2)).until(() -> accessLog.written() == written);
+        }
+        assertEquals(0, accessLog.dropped());
+        assertEquals(30, Files.readAllLines(file).size());
+
+        Files.delete(rotated.resolve("blocked"));
+        Files.delete(rotated);
+        for (int i = 0; i < 10; i++) {
+            accessLog.log(0, "10.0.0.1", Method.GET, "/4/" + i, 200, 0, 0, "api");
+        }
+        await().atMost(Duration.ofSeconds(2)).until(() -> accessLog.written() == 40);
+        accessLog.stop();
+
+        assertEquals(0, accessLog.dropped());
+        assertEquals(30, Files.readAllLines(rotated).size());
+        assertTrue(Files.readAllLines(file).stream().allMatch(line -> line.contains("\"path\":\"/4/")));
+    }
+
+    @Test
+    void testEveryRecordIsWrittenOrCountedAsDropped() throws Exception {
+        Path file = directory.resolve("access.log");
+        AccessLog accessLog = new AccessLog(file, 1024, AccessLog.DEFAULT_MAX_FILE_BYTES, 1);
+        accessLog.start();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                String client = "10.0.0." + t;
+                results.add(executorService.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        accessLog.log(i, client, Method.GET, "/", 200, i, 0, "api");
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        accessLog.stop();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(40_000, lines.size() + accessLog.dropped());
+        assertEquals(lines.size(), accessLog.written());
+        assertTrue(lines.stream().allMatch(line -> line.startsWith("{\"time\":") && line.endsWith("\"upstream\":\"api\"}")));
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdminServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private AdminServer adminServer;
+
+    @AfterEach
+    void tearDown() {
+        adminServer.stop();
+    }
+
+    @Test
+    void testMetricsAreScrapedOverHttp() throws IOException, InterruptedException {
+        MetricsRegistry registry = new MetricsRegistry();
+        AtomicLong requests = new AtomicLong();
+        registry.counter("proxy_requests_total", "Requests", "", requests::get);
+        adminServer = new AdminServer(new InetSocketAddress("localhost", 0), registry);
+        adminServer.start();
+        URI uri = URI.create("http://localhost:" + adminServer.address().getPort() + "/metrics");
+
+        requests.set(42);
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(MetricsRegistry.CONTENT_TYPE, response.headers().firstValue("content-type").orElseThrow());
+        assertTrue(response.body().contains("proxy_requests_total 42\n"));
+
+        HttpResponse<String> post = client.send(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, post.statusCode());
+    }
+}
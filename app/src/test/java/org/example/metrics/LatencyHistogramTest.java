@@ -0,0 +1,69 @@
+package org.example.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+public class LatencyHistogramTest {
+    @Test
+    void testBucketsKeepRelativeErrorSmall() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong(Long.MAX_VALUE / 2);
+            long upperBound = LatencyHistogram.upperBound(LatencyHistogram.bucket(value));
+            assertTrue(upperBound >= value, value + " above " + upperBound);
+            assertTrue(upperBound - value <= value / 8, value + " too far from " + upperBound);
+        }
+        for (long value = 0; value < 1000; value++) {
+            assertTrue(LatencyHistogram.upperBound(LatencyHistogram.bucket(value)) >= value);
+        }
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(value));
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(500_500, TimeUnit.NANOSECONDS.toMillis(histogram.sum()));
+        assertEquals(500, TimeUnit.NANOSECONDS.toMillis(histogram.percentile(50)), 500 / 8);
+        assertEquals(990, TimeUnit.NANOSECONDS.toMillis(histogram.percentile(99)), 990 / 8);
+        assertEquals(1000, TimeUnit.NANOSECONDS.toMillis(histogram.percentile(100)), 1000 / 8);
+
+        LatencyHistogram other = new LatencyHistogram();
+        for (int i = 0; i < 1000; i++) {
+            other.record(TimeUnit.SECONDS.toNanos(10));
+        }
+        // half of the merged values are 10s
+        assertEquals(10_000, TimeUnit.NANOSECONDS.toMillis(LatencyHistogram.percentile(75, histogram, other)), 10_000 / 8);
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.sum());
+    }
+
+    @Test
+    void testConcurrentRecordsAreNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executorService.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(800_000, histogram.count());
+    }
+}
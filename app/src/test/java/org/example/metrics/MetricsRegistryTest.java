@@ -0,0 +1,73 @@
+package org.example.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+    @Test
+    void testLabels() {
+        assertEquals("", MetricsRegistry.labels());
+        assertEquals("{group=\"api\"}", MetricsRegistry.labels("group", "api"));
+        assertEquals("{group=\"api\",adapter=\"a\\\"[b]\\\\\"}",
+                MetricsRegistry.with(MetricsRegistry.labels("group", "api"), "adapter", "a\"[b]\\"));
+        assertEquals("{code=\"2xx\"}", MetricsRegistry.with("", "code", "2xx"));
+    }
+
+    @Test
+    void testScrapeReadsCurrentValues() {
+        MetricsRegistry registry = new MetricsRegistry();
+        AtomicLong requests = new AtomicLong();
+        registry.counter("requests_total", "Requests", MetricsRegistry.labels("group", "a"), requests::get);
+        registry.gauge("in_flight", "In flight", "", () -> 2.5);
+        registry.counter("requests_total", "Requests", MetricsRegistry.labels("group", "b"), () -> 7);
+        requests.set(3);
+
+        assertEquals("""
+                # HELP requests_total Requests
+                # TYPE requests_total counter
+                requests_total{group="a"} 3
+                requests_total{group="b"} 7
+                # HELP in_flight In flight
+                # TYPE in_flight gauge
+                in_flight 2.5
+                """, registry.scrape());
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("requests_total", "Requests", "", () -> 1));
+    }
+
+    @Test
+    void testRequestMetricsAreExportedInSeconds() {
+        MetricsRegistry registry = new MetricsRegistry();
+        RequestMetrics metrics = new RequestMetrics();
+        metrics.register(registry, "proxy_upstream", "Upstream", MetricsRegistry.labels("adapter", "a"));
+        for (int i = 0; i < 99; i++) {
+            metrics.onResponse(200, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        metrics.onResponse(503, TimeUnit.SECONDS.toNanos(2));
+        metrics.onError(TimeUnit.SECONDS.toNanos(1));
+
+        List<String> lines = registry.scrape().lines().toList();
+        assertTrue(lines.contains("proxy_upstream_responses_total{adapter=\"a\",code=\"2xx\"} 99"));
+        assertTrue(lines.contains("proxy_upstream_responses_total{adapter=\"a\",code=\"5xx\"} 1"));
+        assertTrue(lines.contains("proxy_upstream_responses_total{adapter=\"a\",code=\"4xx\"} 0"));
+        assertTrue(lines.contains("proxy_upstream_errors_total{adapter=\"a\"} 1"));
+        assertTrue(lines.contains("# TYPE proxy_upstream_latency_seconds summary"));
+        assertTrue(lines.contains("proxy_upstream_latency_seconds_count{adapter=\"a\"} 101"));
+        assertEquals(3.99, value(lines, "proxy_upstream_latency_seconds_sum{adapter=\"a\"}"), 1e-9);
+        assertEquals(0.01, value(lines, "proxy_upstream_latency_seconds{adapter=\"a\",quantile=\"0.5\"}"), 0.01 / 8);
+        assertEquals(2, value(lines, "proxy_upstream_latency_seconds{adapter=\"a\",quantile=\"0.999\"}"), 2.0 / 8);
+        assertEquals(101, metrics.requests());
+    }
+
+    private static double value(List<String> lines, String sample) {
+        return lines.stream()
+                .filter(line -> line.startsWith(sample + " "))
+                .mapToDouble(line -> Double.parseDouble(line.substring(sample.length() + 1)))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.respond;
+
+import org.example.buffer.Body;
+import org.example.buffer.BufferPool;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCompressorTest {
+    private static final Map<String, String> JSON = Map.of("content-type", "application/json; charset=utf-8");
+
+    private final ResponseCompressor compressor = new ResponseCompressor(ResponseCompressor.DEFAULT_MIN_BYTES,
+            ResponseCompressor.DEFAULT_CONTENT_TYPES);
+
+    private static Body json(int items) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            builder.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"item ").append(i).append("\"}");
+        }
+        return Body.wrap(builder.append(']').toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static InputStream bytes(ResponseCompressor.Encoded encoded) {
+        byte[] bytes = new byte[encoded.length()];
+        int offset = 0;
+        for (ByteBuffer buffer : encoded.buffers()) {
+            int length = buffer.remaining();
+            buffer.duplicate().get(bytes, offset, length);
+            offset += length;
+        }
+        assertEquals(encoded.length(), offset);
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private static byte[] decompress(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void testNegotiatesByQuality() {
+        assertNull(ResponseCompressor.negotiate(null));
+        assertNull(ResponseCompressor.negotiate("identity"));
+        assertNull(ResponseCompressor.negotiate("gzip;q=0, deflate;q=0"));
+        assertEquals(ResponseCompressor.Encoding.GZIP, ResponseCompressor.negotiate("gzip, deflate, br"));
+        assertEquals(ResponseCompressor.Encoding.GZIP, ResponseCompressor.negotiate("deflate, gzip"));
+        assertEquals(ResponseCompressor.Encoding.DEFLATE, ResponseCompressor.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(ResponseCompressor.Encoding.DEFLATE, ResponseCompressor.negotiate("deflate"));
+        assertEquals(ResponseCompressor.Encoding.GZIP, ResponseCompressor.negotiate("*"));
+        assertEquals(ResponseCompressor.Encoding.DEFLATE, ResponseCompressor.negotiate("gzip;q=0, *"));
+    }
+
+    @Test
+    void testGzipAndDeflateRoundTrip() throws IOException {
+        Body body = json(1000);
+        ResponseCompressor.Encoded gzip = compressor.encode(JSON, body, "gzip", null);
+        assertEquals("gzip", gzip.contentEncoding());
+        assertTrue(gzip.varies());
+        assertTrue(gzip.length() < body.length() / 4, "only " + body.length() + " -> " + gzip.length());
+        assertArrayEquals(body.toByteArray(), decompress(new GZIPInputStream(bytes(gzip))));
+
+        ResponseCompressor.Encoded deflate = compressor.encode(JSON, body, "deflate", null);
+        assertEquals("deflate", deflate.contentEncoding());
+        assertArrayEquals(body.toByteArray(), decompress(new InflaterInputStream(bytes(deflate))));
+
+        // the pooled Deflaters start over for every body
+        Body small = json(100);
+        assertArrayEquals(small.toByteArray(), decompress(new GZIPInputStream(bytes(compressor.encode(JSON, small, "gzip", null)))));
+    }
+
+    @Test
+    void testLeavesSmallUnknownAndEncodedBodiesAlone() {
+        Body body = json(1000);
+        ResponseCompressor.Encoded small = compressor.encode(JSON, json(10), "gzip", null);
+        assertNull(small.contentEncoding());
+        assertTrue(small.varies());
+
+        ResponseCompressor.Encoded image = compressor.encode(Map.of("content-type", "image/png"), body, "gzip", null);
+        assertNull(image.contentEncoding());
+        assertFalse(image.varies());
+        assertEquals(List.of(body.asByteBuffer()), image.buffers());
+
+        ResponseCompressor.Encoded encoded = compressor.encode(Map.of("content-type", "text/html", "content-encoding", "br"), body, "gzip", null);
+        assertNull(encoded.contentEncoding());
+        assertEquals(List.of(body.asByteBuffer()), encoded.buffers());
+
+        ResponseCompressor.Encoded notAccepted = compressor.encode(JSON, body, null, null);
+        assertNull(notAccepted.contentEncoding());
+        assertTrue(notAccepted.varies());
+
+        byte[] bytes = new byte[4096];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        Body random = Body.wrap(bytes);
+        BufferPool pool = new BufferPool(1024, 16);
+        ResponseCompressor.Encoded dense = compressor.encode(Map.of("content-type", "text/plain"), random, "gzip", pool);
+        assertNull(dense.contentEncoding());
+        assertEquals(List.of(random.asByteBuffer()), dense.buffers());
+        // the buffers compressed into are taken back
+        assertTrue(pool.pooled() > 0);
+    }
+
+    @Test
+    void testCompressesIntoBuffersFromThePool() throws IOException {
+        BufferPool pool = new BufferPool(256, 64);
+        for (int items = 500; items < 520; items++) {
+            Body body = json(items);
+            for (String acceptEncoding : List.of("gzip", "deflate")) {
+                ResponseCompressor.Encoded encoded = compressor.encode(JSON, body, acceptEncoding, pool);
+                assertTrue(encoded.buffers().size() > 1);
+                assertTrue(encoded.buffers().stream().allMatch(buffer -> buffer.isDirect() && buffer.capacity() == 256));
+                InputStream in = bytes(encoded);
+                assertArrayEquals(body.toByteArray(), decompress("gzip".equals(acceptEncoding) ? new GZIPInputStream(in) : new InflaterInputStream(in)));
+                encoded.buffers().forEach(pool::release);
+            }
+        }
+    }
+
+    @Test
+    void testContentTypes() {
+        ResponseCompressor custom = new ResponseCompressor(0, List.of("application/json", "text/*", " Application/X-NDJSON "));
+        assertTrue(custom.isCompressible("application/json"));
+        assertTrue(custom.isCompressible("Application/JSON;charset=utf-8"));
+        assertTrue(custom.isCompressible("text/csv"));
+        assertTrue(custom.isCompressible("application/x-ndjson"));
+        assertFalse(custom.isCompressible("application/jsonp"));
+        assertFalse(custom.isCompressible("textual/plain"));
+        assertFalse(custom.isCompressible(null));
+    }
+
+    @Test
+    void testThreadsCompressConcurrently() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int items = 500 + t * 100;
+                results.add(executorService.submit(() -> {
+                    Body body = json(items);
+                    for (int i = 0; i < 200; i++) {
+                        InputStream compressed = bytes(compressor.encode(JSON, body, i % 2 == 0 ? "gzip" : "deflate", null));
+                        InputStream in = i % 2 == 0 ? new GZIPInputStream(compressed) : new InflaterInputStream(compressed);
+                        assertArrayEquals(body.toByteArray(), decompress(in));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        // Deflaters beyond the pool's bound were ended instead of kept
+        assertTrue(compressor.pooledCodecs() <= ResponseCompressor.DEFAULT_MAX_POOLED_CODECS);
+    }
+
+    @Test
+    void testCodecsAreSharedBetweenThreads() throws Exception {
+        ResponseCompressor shared = new ResponseCompressor(0, ResponseCompressor.DEFAULT_CONTENT_TYPES, 2);
+        Body body = json(100);
+        for (int t = 0; t < 10; t++) {
+            Thread thread = new Thread(() -> shared.encode(JSON, body, "gzip", null));
+            thread.start();
+            thread.join();
+        }
+        // one after another the threads borrowed the same Deflaters rather than each keeping its own
+        assertEquals(1, shared.pooledCodecs());
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.server;
+
+import org.example.request.Method;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpRequestParserTest {
+    private static ByteBuffer buffer(String request) {
+        return ByteBuffer.wrap(request.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static int status(String request) {
+        return assertThrows(HttpRequestParser.BadRequestException.class, () -> HttpRequestParser.parse(buffer(request))).status();
+    }
+
+    @Test
+    void testParsesPipelinedRequests() {
+        ByteBuffer buffer = buffer("GET /a HTTP/1.1\r\nHost: proxy\r\n\r\n"
+                + "POST /b HTTP/1.1\r\nhost: proxy\r\ncontent-length: 5\r\nConnection: close\r\n\r\nhello");
+
+        HttpRequestParser.ParsedRequest first = HttpRequestParser.parse(buffer);
+        assertEquals(Method.GET, first.request().method());
+        assertEquals("/a", first.request().path());
+        assertEquals("", first.request().payload().asString());
+        assertEquals("proxy", first.request().header("HOST"));
+        assertTrue(first.keepAlive());
+
+        HttpRequestParser.ParsedRequest second = HttpRequestParser.parse(buffer);
+        assertEquals(Method.POST, second.request().method());
+        assertEquals("hello", second.request().payload().asString());
+        assertFalse(second.keepAlive());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testWaitsForTheWholeRequest() {
+        ByteBuffer buffer = buffer("POST /b HTTP/1.1\r\nHost: proxy\r\nContent-Length: 5\r\n\r\nhel");
+        assertNull(HttpRequestParser.parse(buffer));
+        assertEquals(0, buffer.position());
+        assertNull(HttpRequestParser.parse(buffer("GET /a HTTP/1.1\r\nHost: pro")));
+    }
+
+    @Test
+    void testDecodesChunkedBodies() {
+        String request = "POST /b HTTP/1.1\r\nHost: proxy\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5\r\nhello\r\n7;ext=1\r\n, world\r\n0\r\nX-Trailer: 1\r\n\r\n";
+        assertNull(HttpRequestParser.parse(buffer(request.substring(0, request.length() - 2))));
+        ByteBuffer buffer = buffer(request);
+        assertEquals("hello, world", HttpRequestParser.parse(buffer).request().payload().asString());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testKeepAliveDefaultsPerVersion() {
+        assertFalse(HttpRequestParser.parse(buffer("GET / HTTP/1.0\r\n\r\n")).keepAlive());
+        assertTrue(HttpRequestParser.parse(buffer("GET / HTTP/1.0\r\nConnection: keep-alive\r\n\r\n")).keepAlive());
+    }
+
+    @Test
+    void testRejectsMalformedRequests() {
+        assertEquals(400, status("GET /\r\n\r\n"));
+        assertEquals(400, status("GET / HTTP/1.1\r\n\r\n"));
+        assertEquals(400, status("GET / HTTP/1.1\r\nHost : proxy\r\n\r\n"));
+        assertEquals(400, status("POST / HTTP/1.1\r\nHost: proxy\r\nContent-Length: -1\r\n\r\n"));
+        assertEquals(400, status("POST / HTTP/1.1\r\nHost: proxy\r\nContent-Length: 1\r\nContent-Length: 2\r\n\r\n"));
+        assertEquals(400, status("POST / HTTP/1.1\r\nHost: proxy\r\nContent-Length: 1\r\nTransfer-Encoding: chunked\r\n\r\n"));
+        assertEquals(400, status("POST / HTTP/1.1\r\nHost: proxy\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n"));
+        assertEquals(501, status("BREW / HTTP/1.1\r\nHost: proxy\r\n\r\n"));
+        assertEquals(501, status("POST / HTTP/1.1\r\nHost: proxy\r\nTransfer-Encoding: gzip\r\n\r\n"));
+    }
+
+    @Test
+    void testDetectsExpectContinue() {
+        assertTrue(HttpRequestParser.expectsContinue(buffer("POST / HTTP/1.1\r\nHost: proxy\r\nContent-Length: 5\r\nExpect: 100-continue\r\n\r\n")));
+        assertFalse(HttpRequestParser.expectsContinue(buffer("POST / HTTP/1.1\r\nHost: proxy\r\nContent-Length: 5\r\n\r\n")));
+    }
+}
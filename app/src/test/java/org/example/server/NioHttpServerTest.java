@@ -0,0 +1,249 @@
+package org.example.server;
+
+import org.example.request.Method;
+import org.example.request.Request;
+import org.example.respond.Response;
+import org.example.respond.ResponseCompressor;
+import org.example.service.RoutingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NioHttpServerTest {
+    private RoutingService routingService;
+    private NioHttpServer server;
+
+    private record Reply(int status, Map<String, String> headers, String body) {
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        routingService = mock(RoutingService.class);
+        when(routingService.forwardRequestAsync(any())).thenAnswer(invocation -> {
+            Request request = invocation.getArgument(0);
+            return completedFuture(new Response(200, request.method() + " " + request.path() + " " + request.payload(), Map.of("x-server", "server-1")));
+        });
+        server = new NioHttpServer(new InetSocketAddress("localhost", 0), 2, 4096, routingService);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", server.port());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String data) throws IOException {
+        socket.getOutputStream().write(data.getBytes(StandardCharsets.ISO_8859_1));
+        socket.getOutputStream().flush();
+    }
+
+    private static String line(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int previous = -1;
+        for (int b = in.read(); b != -1; b = in.read()) {
+            if (previous == '\r' && b == '\n') {
+                byte[] bytes = line.toByteArray();
+                return new String(bytes, 0, bytes.length - 1, StandardCharsets.ISO_8859_1);
+            }
+            line.write(b);
+            previous = b;
+        }
+        return null;
+    }
+
+    private static Reply read(Socket socket, boolean head) throws IOException {
+        InputStream in = socket.getInputStream();
+        String statusLine = line(in);
+        assertNotNull(statusLine);
+        Map<String, String> headers = new HashMap<>();
+        for (String line = line(in); !line.isEmpty(); line = line(in)) {
+            int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+        int length = head ? 0 : Integer.parseInt(headers.getOrDefault("content-length", "0"));
+        String body = new String(in.readNBytes(length), StandardCharsets.UTF_8);
+        return new Reply(Integer.parseInt(statusLine.split(" ")[1]), headers, body);
+    }
+
+    private static Reply read(Socket socket) throws IOException {
+        return read(socket, false);
+    }
+
+    @Test
+    void testKeepsConnectionsAliveAcrossRequests() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /a HTTP/1.1\r\nHost: proxy\r\n\r\n");
+            Reply first = read(socket);
+            assertEquals(200, first.status());
+            assertEquals("GET /a ", first.body());
+            assertEquals("server-1", first.headers().get("x-server"));
+            assertNull(first.headers().get("connection"));
+
+            send(socket, "POST /b HTTP/1.1\r\nHost: proxy\r\nContent-Length: 5\r\n\r\nhello");
+            assertEquals("POST /b hello", read(socket).body());
+        }
+        verify(routingService, times(2)).forwardRequestAsync(argThat(request -> request != null && "127.0.0.1".equals(request.clientAddress())));
+    }
+
+    @Test
+    void testAnswersPipelinedRequestsInOrder() throws IOException {
+        CompletableFuture<Response> slow = new CompletableFuture<>();
+        doReturn(slow).when(routingService).forwardRequestAsync(argThat(request -> request != null && request.path().equals("/slow")));
+        try (Socket socket = connect()) {
+            send(socket, "GET /slow HTTP/1.1\r\nHost: proxy\r\n\r\nGET /fast HTTP/1.1\r\nHost: proxy\r\n\r\n");
+            verify(routingService, timeout(5000).times(2)).forwardRequestAsync(any());
+            slow.complete(new Response(200, "slow", Map.of()));
+            assertEquals("slow", read(socket).body());
+            assertEquals("GET /fast ", read(socket).body());
+        }
+    }
+
+    @Test
+    void testClosesAfterConnectionClose() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /a HTTP/1.1\r\nHost: proxy\r\nConnection: close\r\n\r\n");
+            Reply reply = read(socket);
+            assertEquals("close", reply.headers().get("connection"));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    void testDecodesChunkedRequests() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "PUT /c HTTP/1.1\r\nHost: proxy\r\nTransfer-Encoding: chunked\r\n\r\n3\r\nabc\r\n");
+            send(socket, "2\r\nde\r\n0\r\n\r\n");
+            assertEquals("PUT /c abcde", read(socket).body());
+        }
+    }
+
+    @Test
+    void testSendsContinueBeforeTheBody() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "POST /b HTTP/1.1\r\nHost: proxy\r\nContent-Length: 2\r\nExpect: 100-continue\r\n\r\n");
+            assertEquals(100, read(socket, true).status());
+            send(socket, "ok");
+            assertEquals("POST /b ok", read(socket).body());
+        }
+    }
+
+    @Test
+    void testPassesBodiesOnByteForByte() throws IOException {
+        try (Socket socket = connect()) {
+            byte[] body = "gr\u00fc\u00dfe".getBytes(StandardCharsets.UTF_8);
+            send(socket, "POST /b HTTP/1.1\r\nHost: proxy\r\nContent-Length: " + body.length + "\r\n\r\n");
+            socket.getOutputStream().write(body);
+            Reply reply = read(socket);
+            assertEquals("POST /b gr\u00fc\u00dfe", reply.body());
+            assertEquals(String.valueOf("POST /b gr\u00fc\u00dfe".getBytes(StandardCharsets.UTF_8).length), reply.headers().get("content-length"));
+        }
+    }
+
+    @Test
+    void testWritesBodiesLargerThanABuffer() throws IOException {
+        String large = "d\u00fcnn ".repeat(4000);
+        doReturn(completedFuture(new Response(200, large, Map.of("x-server", "server-1")))).when(routingService).forwardRequestAsync(any());
+        try (Socket socket = connect()) {
+            send(socket, "GET /a HTTP/1.1\r\nHost: proxy\r\n\r\nGET /b HTTP/1.1\r\nHost: proxy\r\n\r\n");
+            assertEquals(large, read(socket).body());
+            assertEquals(large, read(socket).body());
+        }
+    }
+
+    @Test
+    void testHeadResponsesHaveNoBody() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "HEAD /a HTTP/1.1\r\nHost: proxy\r\n\r\nGET /b HTTP/1.1\r\nHost: proxy\r\n\r\n");
+            Reply head = read(socket, true);
+            assertEquals(String.valueOf("HEAD /a ".length()), head.headers().get("content-length"));
+            assertEquals("GET /b ", read(socket).body());
+        }
+        verify(routingService).forwardRequestAsync(argThat(request -> request != null && request.method() == Method.HEAD));
+    }
+
+    @Test
+    void testRejectsMalformedRequests() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "GET /a\r\n\r\n");
+            Reply reply = read(socket);
+            assertEquals(400, reply.status());
+            assertEquals("close", reply.headers().get("connection"));
+            assertEquals(-1, socket.getInputStream().read());
+        }
+        verify(routingService, never()).forwardRequestAsync(any());
+    }
+
+    @Test
+    void testRejectsRequestsOverTheSizeLimit() throws IOException {
+        try (Socket socket = connect()) {
+            send(socket, "POST /b HTTP/1.1\r\nHost: proxy\r\nContent-Length: 8192\r\n\r\n" + "x".repeat(8192));
+            assertEquals(413, read(socket).status());
+        }
+        verify(routingService, never()).forwardRequestAsync(any());
+    }
+
+    @Test
+    void testUpstreamFailureIsAnInternalError() throws IOException {
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("boom"))).when(routingService).forwardRequestAsync(any());
+        try (Socket socket = connect()) {
+            send(socket, "GET /a HTTP/1.1\r\nHost: proxy\r\n\r\n");
+            assertEquals(500, read(socket).status());
+        }
+    }
+
+    @Test
+    void testCompressesWhenTheClientAcceptsIt() throws IOException, InterruptedException {
+        String json = "{\"items\":[" + "{\"name\":\"item\"},".repeat(200) + "{}]}";
+        doReturn(completedFuture(new Response(200, json, Map.of("x-server", "server-1", "content-type", "application/json"))))
+                .when(routingService).forwardRequestAsync(any());
+        NioHttpServer compressing = new NioHttpServer(new InetSocketAddress("localhost", 0), 1, 4096, routingService,
+                new ResponseCompressor(ResponseCompressor.DEFAULT_MIN_BYTES, ResponseCompressor.DEFAULT_CONTENT_TYPES));
+        compressing.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            URI uri = URI.create("http://localhost:" + compressing.port() + "/items");
+            HttpResponse<byte[]> gzip = client.send(HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip, deflate").build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals("gzip", gzip.headers().firstValue("content-encoding").orElseThrow());
+            assertEquals("Accept-Encoding", gzip.headers().firstValue("vary").orElseThrow());
+            assertEquals("application/json", gzip.headers().firstValue("content-type").orElseThrow());
+            assertTrue(gzip.body().length < json.length());
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+                assertEquals(json, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+
+            HttpResponse<String> plain = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+            assertTrue(plain.headers().firstValue("content-encoding").isEmpty());
+            assertEquals(json, plain.body());
+        } finally {
+            compressing.stop();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.service;
+
+import org.example.log.AccessLog;
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AccessLoggingRoutingServiceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void testResponsesAndFailuresAreLogged() throws IOException {
+        Path file = directory.resolve("access.log");
+        AccessLog accessLog = new AccessLog(file, 16, AccessLog.DEFAULT_MAX_FILE_BYTES, 1);
+        accessLog.start();
+        RoutingService delegate = mock(RoutingService.class);
+        AccessLoggingRoutingService routingService = new AccessLoggingRoutingService(delegate, accessLog);
+
+        when(delegate.forwardRequestAsync(any())).thenReturn(CompletableFuture.completedFuture(new Response(200, "ok", Map.of("x-server", "server-1"))));
+        routingService.forwardRequestAsync(new RequestImpl(Method.GET, "/a", "", Map.of(), "10.0.0.1")).join();
+        when(delegate.forwardRequestAsync(any())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")));
+        assertTrue(routingService.forwardRequestAsync(new RequestImpl(Method.POST, "/b", "body")).isCompletedExceptionally());
+        accessLog.stop();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"client\":\"10.0.0.1\",\"method\":\"GET\",\"path\":\"/a\",\"status\":200,\"bytes\":2,"), lines.get(0));
+        assertTrue(lines.get(0).endsWith("\"upstream\":\"server-1\"}"), lines.get(0));
+        assertTrue(lines.get(1).contains("\"method\":\"POST\",\"path\":\"/b\",\"status\":500,\"bytes\":null,"), lines.get(1));
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveLimiterTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(20);
+
+    /**
+     * Fills the limit and completes every call with the given latency.
+     */
+    private static void saturate(AdaptiveLimiter limiter, long latencyNanos, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.onSuccess(latencyNanos);
+            }
+        }
+    }
+
+    @Test
+    void testRejectsPastTheLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 100);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.rejected());
+
+        limiter.release();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.inFlight());
+    }
+
+    @Test
+    void testGrowsWhileLatencyStaysLow() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 200);
+        saturate(limiter, FAST, 20);
+        assertEquals(200, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void testDoesNotGrowWhenTheLimitIsNotUsed() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 200);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onSuccess(FAST);
+        }
+        assertEquals(10, limiter.limit());
+    }
+
+    @Test
+    void testShrinksWhenRequestsQueue() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 200);
+        saturate(limiter, FAST, 20);
+        saturate(limiter, SLOW, 3);
+        // at twenty times the idle latency nearly every admitted request is taken to be queueing
+        assertTrue(limiter.limit() <= 10, "limit " + limiter.limit());
+        assertTrue(limiter.limit() >= AdaptiveLimiter.MIN_LIMIT);
+
+        saturate(limiter, FAST, 20);
+        assertEquals(200, limiter.limit());
+    }
+
+    @Test
+    void testShrinksOnFailures() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(100, 200);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onDropped();
+        }
+        assertTrue(limiter.limit() < 100);
+        for (int i = 0; i < 500; i++) {
+            limiter.tryAcquire();
+            limiter.onDropped();
+        }
+        assertEquals(AdaptiveLimiter.MIN_LIMIT, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+public class CachingRoutingServiceTest {
+    private static final Config CONFIG = Config.builder().instances(Map.of()).cacheMaxBytes(10_000).build();
+
+    private static RequestImpl get(String path) {
+        return new RequestImpl(Method.GET, path, "");
+    }
+
+    private static Response ok(String body, Map<String, String> headers) {
+        return new Response(200, body, headers);
+    }
+
+    @Test
+    void testFreshResponseIsServedFromCache() {
+        RoutingService upstream = mock(RoutingService.class);
+        when(upstream.forwardRequestAsync(any())).thenReturn(completedFuture(ok("cached", Map.of("cache-control", "max-age=60"))));
+        CachingRoutingService routingService = new CachingRoutingService(upstream, CONFIG);
+
+        assertEquals("cached", routingService.forwardRequest(get("/")).body().asString());
+        assertEquals("cached", routingService.forwardRequest(get("/")).body().asString());
+        verify(upstream, times(1)).forwardRequestAsync(any());
+        assertEquals(1, routingService.hits());
+        assertEquals(1, routingService.misses());
+    }
+
+    @Test
+    void testResponsesThatMustNotBeSharedAreNotStored() {
+        for (Map<String, String> headers : List.of(Map.of("cache-control", "no-store"),
+                Map.of("cache-control", "private, max-age=60"), Map.of("cache-control", "max-age=60", "vary", "Cookie"), Map.<String, String>of())) {
+            RoutingService upstream = mock(RoutingService.class);
+            when(upstream.forwardRequestAsync(any())).thenReturn(completedFuture(ok("ok", headers)));
+            CachingRoutingService routingService = new CachingRoutingService(upstream, CONFIG);
+
+            routingService.forwardRequest(get("/"));
+            routingService.forwardRequest(get("/"));
+            verify(upstream, times(2)).forwardRequestAsync(any());
+            assertEquals(0, routingService.cache().size());
+        }
+    }
+
+    @Test
+    void testClientCanBypassTheCache() {
+        RoutingService upstream = mock(RoutingService.class);
+        when(upstream.forwardRequestAsync(any())).thenReturn(completedFuture(ok("ok", Map.of("cache-control", "max-age=60"))));
+        CachingRoutingService routingService = new CachingRoutingService(upstream, CONFIG);
+
+        routingService.forwardRequest(get("/"));
+        routingService.forwardRequest(new RequestImpl(Method.GET, "/", "", Map.of("Cache-Control", List.of("no-store"))));
+        routingService.forwardRequest(new RequestImpl(Method.GET, "/", "", Map.of("Authorization", List.of("Basic Zm9v"))));
+        verify(upstream, times(3)).forwardRequestAsync(any());
+    }
+
+    @Test
+    void testStaleEntryIsRevalidatedWithItsEtag() {
+        Adapter adapter = mock(Adapter.class);
+        when(adapter.getAsync(anyString())).thenReturn(completedFuture(ok("body", Map.of("cache-control", "no-cache", "etag", "\"v1\""))));
+        when(adapter.getAsync(anyString(), any())).thenReturn(completedFuture(new Response(304, "", Map.of("etag", "\"v1\""))));
+        CachingRoutingService routingService = new CachingRoutingService(
+                new RoundRobinRoutingServiceImpl(List.of(adapter), CONFIG, Executors.newSingleThreadExecutor()), CONFIG);
+
+        assertEquals("body", routingService.forwardRequest(get("/")).body().asString());
+        Response revalidated = routingService.forwardRequest(get("/"));
+        assertEquals(200, revalidated.status());
+        assertEquals("body", revalidated.body().asString());
+        verify(adapter, times(1)).getAsync(anyString());
+        verify(adapter).getAsync("/", Map.of("If-None-Match", "\"v1\""));
+        assertEquals(1, routingService.revalidated());
+        routingService.stop();
+    }
+
+    @Test
+    void testWritesInvalidateThePath() {
+        RoutingService upstream = mock(RoutingService.class);
+        when(upstream.forwardRequestAsync(any())).thenReturn(completedFuture(ok("ok", Map.of("cache-control", "max-age=60"))));
+        CachingRoutingService routingService = new CachingRoutingService(upstream, CONFIG);
+
+        routingService.forwardRequest(get("/items"));
+        routingService.forwardRequest(new RequestImpl(Method.PUT, "/items", "new"));
+        assertEquals(0, routingService.cache().size());
+        routingService.forwardRequest(get("/items"));
+        verify(upstream, times(3)).forwardRequestAsync(any());
+    }
+
+    @Test
+    void testFreshnessLifetime() {
+        long now = System.currentTimeMillis();
+        ZonedDateTime served = ZonedDateTime.now(ZoneOffset.UTC);
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(served);
+        String expires = DateTimeFormatter.RFC_1123_DATE_TIME.format(served.plusSeconds(30));
+
+        assertEquals(60_000, CachingRoutingService.freshForMs(ok("", Map.of("cache-control", "max-age=60")), now));
+        assertEquals(10_000, CachingRoutingService.freshForMs(ok("", Map.of("cache-control", "max-age=60, s-maxage=10")), now));
+        assertEquals(50_000, CachingRoutingService.freshForMs(ok("", Map.of("cache-control", "max-age=60", "age", "10")), now));
+        assertEquals(30_000, CachingRoutingService.freshForMs(ok("", Map.of("date", date, "expires", expires)), now));
+        assertEquals(0, CachingRoutingService.freshForMs(ok("", Map.of("expires", "0")), now));
+        assertEquals(0, CachingRoutingService.freshForMs(ok("", Map.of("last-modified", date)), now));
+        assertEquals(-1, CachingRoutingService.freshForMs(new Response(500, "", Map.of("cache-control", "max-age=60")), now));
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+public class CircuitBreakerTest {
+    private static final Config CONFIG = config(50);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final List<String> events = new ArrayList<>();
+
+    private static Config config(long healthCheckIntervalMs) {
+        return Config.builder()
+                .instances(Map.of())
+                .breakerFailureRateThreshold(50)
+                .breakerSlowCallRateThreshold(80)
+                .breakerSlowCallDurationMs(100)
+                .breakerMinimumCalls(10)
+                .breakerWindowMs(10_000)
+                .breakerHalfOpenCalls(2)
+                .healthCheckIntervalMs(healthCheckIntervalMs)
+                .build();
+    }
+
+    private CircuitBreaker create() {
+        return new CircuitBreaker(0, "instance-1", CONFIG,
+                List.of((circuitBreaker, from, to) -> events.add(from + "->" + to)));
+    }
+
+    @Test
+    void testOpensWhenFailureRateIsReached() {
+        CircuitBreaker circuitBreaker = create();
+        IntStream.range(0, 5).forEach(i -> circuitBreaker.onResult(true, FAST));
+        IntStream.range(0, 4).forEach(i -> circuitBreaker.onResult(false, FAST));
+        // below the minimum number of calls
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+        circuitBreaker.onResult(false, FAST);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertEquals(1, circuitBreaker.opened());
+        assertEquals(List.of("CLOSED->OPEN"), events);
+
+        assertFalse(circuitBreaker.tryAcquire());
+        assertEquals(1, circuitBreaker.rejected());
+    }
+
+    @Test
+    void testStaysClosedBelowThresholds() {
+        CircuitBreaker circuitBreaker = create();
+        IntStream.range(0, 100).forEach(i -> circuitBreaker.onResult(i % 3 != 0, i % 2 == 0 ? SLOW : FAST));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertEquals(34, circuitBreaker.failureRate());
+        assertEquals(50, circuitBreaker.slowCallRate());
+    }
+
+    @Test
+    void testOpensWhenSlowCallRateIsReached() {
+        CircuitBreaker circuitBreaker = create();
+        IntStream.range(0, 2).forEach(i -> circuitBreaker.onResult(true, FAST));
+        IntStream.range(0, 8).forEach(i -> circuitBreaker.onResult(true, SLOW));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+    }
+
+    @Test
+    void testHalfOpenLetsLimitedTrialsThroughAndCloses() {
+        CircuitBreaker circuitBreaker = create();
+        circuitBreaker.trip();
+        circuitBreaker.halfOpen();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onResult(true, FAST);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state());
+        circuitBreaker.onResult(true, FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+        assertEquals(0, circuitBreaker.failureRate());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), events);
+    }
+
+    @Test
+    void testFailedTrialReopens() {
+        CircuitBreaker circuitBreaker = create();
+        circuitBreaker.trip();
+        circuitBreaker.halfOpen();
+        assertTrue(circuitBreaker.tryAcquire());
+        circuitBreaker.onResult(false, FAST);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+        assertEquals(2, circuitBreaker.opened());
+    }
+
+    @Test
+    void testCancelledTrialIsGivenBack() {
+        CircuitBreaker circuitBreaker = create();
+        circuitBreaker.trip();
+        circuitBreaker.halfOpen();
+        assertTrue(circuitBreaker.tryAcquire());
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+        circuitBreaker.onCancelled();
+        assertTrue(circuitBreaker.tryAcquire());
+        assertFalse(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void testBreakerRecoversWhenHalfOpenTrialsAreCancelled() {
+        Adapter recovering = mock(Adapter.class);
+        CompletableFuture<Response> stalled = new CompletableFuture<>();
+        when(recovering.getAsync(anyString())).thenReturn(stalled);
+        when(recovering.healthcheckAsync(any(), anyString())).thenReturn(completedFuture(true));
+        RoundRobinRoutingServiceImpl routingService = new RoundRobinRoutingServiceImpl(List.of(recovering), CONFIG,
+                Executors.newSingleThreadExecutor());
+        CircuitBreaker circuitBreaker = routingService.circuitBreaker(0);
+        circuitBreaker.trip();
+        // the health checker marks the adapter healthy just before it half-opens the breaker
+        await().atMost(Duration.ofSeconds(2)).until(() -> circuitBreaker.state() == CircuitBreaker.State.HALF_OPEN);
+        assertTrue(routingService.selector.isHealthy(0));
+
+        // both trials lose a hedge, say, and are cancelled
+        IntStream.range(0, 2).forEach(i -> routingService.forwardRequestAsync(new RequestImpl(Method.GET, "/", "")).cancel(true));
+        assertTrue(stalled.isCancelled());
+
+        reset(recovering);
+        when(recovering.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1"))));
+        IntStream.range(0, 2).forEach(i -> assertEquals(200, routingService.forwardRequest(new RequestImpl(Method.GET, "/", "")).status()));
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state());
+        routingService.stop();
+    }
+
+    @Test
+    void testServerErrorsTakeAdapterOfflineUntilTrialsSucceed() {
+        Adapter failing = mock(Adapter.class);
+        Adapter healthy = mock(Adapter.class);
+        when(failing.getAsync(anyString())).thenReturn(completedFuture(new Response(500, "Error", Map.of("x-server", "server-1"))));
+        when(failing.healthcheckAsync(any(), anyString())).thenReturn(completedFuture(true));
+        when(healthy.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-2"))));
+        RoundRobinRoutingServiceImpl routingService = new RoundRobinRoutingServiceImpl(List.of(failing, healthy),
+                config(60_000), Executors.newSingleThreadExecutor());
+        List<CircuitBreaker.State> transitions = new CopyOnWriteArrayList<>();
+        routingService.addCircuitBreakerListener((circuitBreaker, from, to) -> transitions.add(to));
+
+        // 5xx goes back to the client but counts as a failure
+        IntStream.range(0, 20).forEach(i -> routingService.forwardRequest(new RequestImpl(Method.GET, "/", "")));
+        assertEquals(CircuitBreaker.State.OPEN, routingService.circuitBreaker(0).state());
+        assertEquals(List.of(CircuitBreaker.State.OPEN), transitions);
+        IntStream.range(0, 10).forEach(i -> assertEquals("server-2",
+                routingService.forwardRequest(new RequestImpl(Method.GET, "/", "")).headers().get("x-server")));
+        routingService.stop();
+    }
+
+    @Test
+    void testSingleFailureKeepsTheAdapterInRotation() {
+        Adapter slow = mock(Adapter.class);
+        Adapter healthy = mock(Adapter.class);
+        when(slow.getAsync(anyString())).thenReturn(failedFuture(new TimeoutException()));
+        when(healthy.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-2"))));
+        RoundRobinRoutingServiceImpl routingService = new RoundRobinRoutingServiceImpl(List.of(slow, healthy), CONFIG,
+                Executors.newSingleThreadExecutor());
+
+        // the first request goes to the slow adapter and fails over
+        assertEquals("server-2", routingService.forwardRequest(new RequestImpl(Method.GET, "/", "")).headers().get("x-server"));
+        verify(slow).getAsync(anyString());
+        assertEquals(CircuitBreaker.State.CLOSED, routingService.circuitBreaker(0).state());
+        assertTrue(routingService.selector.isHealthy(0));
+        routingService.stop();
+    }
+
+    @Test
+    void testRecoveredAdapterIsOnlyTrustedAfterTrials() {
+        Adapter flaky = mock(Adapter.class);
+        Adapter healthy = mock(Adapter.class);
+        doThrow(new RuntimeException("down")).when(flaky).getAsync(anyString());
+        when(flaky.healthcheckAsync(any(), anyString())).thenReturn(completedFuture(true));
+        when(healthy.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-2"))));
+        RoundRobinRoutingServiceImpl routingService = new RoundRobinRoutingServiceImpl(List.of(flaky, healthy), CONFIG,
+                Executors.newSingleThreadExecutor());
+
+        for (int i = 0; i < 100 && routingService.circuitBreaker(0).state() == CircuitBreaker.State.CLOSED; i++) {
+            routingService.forwardRequest(new RequestImpl(Method.GET, "/", ""));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, routingService.circuitBreaker(0).state());
+        await().atMost(Duration.ofSeconds(2)).until(() -> routingService.circuitBreaker(0).state() == CircuitBreaker.State.HALF_OPEN);
+
+        reset(flaky);
+        when(flaky.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1"))));
+        IntStream.range(0, 4).forEach(i -> routingService.forwardRequest(new RequestImpl(Method.GET, "/", "")));
+        assertEquals(CircuitBreaker.State.CLOSED, routingService.circuitBreaker(0).state());
+        routingService.stop();
+    }
+}
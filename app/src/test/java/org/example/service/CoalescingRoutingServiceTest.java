@@ -0,0 +1,143 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+public class CoalescingRoutingServiceTest {
+    private static final Response OK = new Response(200, "ok", Map.of("x-server", "server-1"));
+
+    private static RequestImpl get(String path) {
+        return new RequestImpl(Method.GET, path, "");
+    }
+
+    @Test
+    void testIdenticalConcurrentGetsShareOneCall() {
+        RoutingService upstream = mock(RoutingService.class);
+        CompletableFuture<Response> pending = new CompletableFuture<>();
+        when(upstream.forwardRequestAsync(any())).thenReturn(pending);
+        CoalescingRoutingService routingService = new CoalescingRoutingService(upstream, 1000);
+
+        List<CompletableFuture<Response>> responses = IntStream.range(0, 50)
+                .mapToObj(i -> routingService.forwardRequestAsync(get("/hot")))
+                .toList();
+        verify(upstream, times(1)).forwardRequestAsync(any());
+        pending.complete(OK);
+        responses.forEach(response -> assertEquals(OK, response.join()));
+        assertEquals(1, routingService.leaders());
+        assertEquals(49, routingService.coalesced());
+
+        // the finished call is not reused
+        routingService.forwardRequestAsync(get("/hot"));
+        verify(upstream, times(2)).forwardRequestAsync(any());
+    }
+
+    @Test
+    void testDifferentRequestsAreNotCoalesced() {
+        RoutingService upstream = mock(RoutingService.class);
+        when(upstream.forwardRequestAsync(any())).thenReturn(new CompletableFuture<>());
+        CoalescingRoutingService routingService = new CoalescingRoutingService(upstream, 1000);
+
+        routingService.forwardRequestAsync(get("/a"));
+        routingService.forwardRequestAsync(get("/b"));
+        routingService.forwardRequestAsync(new RequestImpl(Method.HEAD, "/a", ""));
+        routingService.forwardRequestAsync(new RequestImpl(Method.GET, "/a", "", Map.of("If-None-Match", List.of("\"v1\""))));
+        routingService.forwardRequestAsync(new RequestImpl(Method.POST, "/a", "body"));
+        routingService.forwardRequestAsync(new RequestImpl(Method.POST, "/a", "body"));
+        verify(upstream, times(6)).forwardRequestAsync(any());
+        assertEquals(0, routingService.coalesced());
+    }
+
+    @Test
+    void testWaitersFallBackWhenTheLeaderFails() {
+        RoutingService upstream = mock(RoutingService.class);
+        CompletableFuture<Response> pending = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        when(upstream.forwardRequestAsync(any())).thenAnswer(invocation -> calls.getAndIncrement() == 0 ? pending : completedFuture(OK));
+        CoalescingRoutingService routingService = new CoalescingRoutingService(upstream, 1000);
+
+        CompletableFuture<Response> leader = routingService.forwardRequestAsync(get("/"));
+        List<CompletableFuture<Response>> waiters = IntStream.range(0, 3)
+                .mapToObj(i -> routingService.forwardRequestAsync(get("/")))
+                .toList();
+        pending.completeExceptionally(new IllegalStateException("boom"));
+
+        assertTrue(leader.isCompletedExceptionally());
+        waiters.forEach(waiter -> assertEquals(OK, waiter.join()));
+        assertEquals(3, routingService.fallbacks());
+        // one of the waiters sent the request again for all of them
+        assertEquals(2, calls.get());
+        assertEquals(2, routingService.leaders());
+    }
+
+    @Test
+    void testWaitersSendOneRequestAfterTheLeaderTimesOut() {
+        RoutingService upstream = mock(RoutingService.class);
+        CompletableFuture<Response> stalled = new CompletableFuture<>();
+        CompletableFuture<Response> retried = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+        when(upstream.forwardRequestAsync(any())).thenAnswer(invocation -> calls.getAndIncrement() == 0 ? stalled : retried);
+        CoalescingRoutingService routingService = new CoalescingRoutingService(upstream, 50);
+
+        routingService.forwardRequestAsync(get("/"));
+        List<CompletableFuture<Response>> waiters = IntStream.range(0, 20)
+                .mapToObj(i -> routingService.forwardRequestAsync(get("/")))
+                .toList();
+        await().atMost(Duration.ofSeconds(2)).until(() -> routingService.fallbacks() == 20);
+        assertEquals(2, calls.get());
+        // requests arriving now wait for the new leader too
+        CompletableFuture<Response> late = routingService.forwardRequestAsync(get("/"));
+        assertEquals(2, calls.get());
+
+        retried.complete(OK);
+        waiters.forEach(waiter -> assertEquals(OK, waiter.join()));
+        assertEquals(OK, late.join());
+        // the stalled call finishing late does not take the new leader's place
+        stalled.complete(new Response(200, "stale", Map.of()));
+        routingService.forwardRequestAsync(get("/"));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void testWaitIsBounded() {
+        RoutingService upstream = mock(RoutingService.class);
+        AtomicInteger calls = new AtomicInteger();
+        when(upstream.forwardRequestAsync(any())).thenAnswer(invocation ->
+                calls.getAndIncrement() == 0 ? new CompletableFuture<>() : completedFuture(OK));
+        CoalescingRoutingService routingService = new CoalescingRoutingService(upstream, 50);
+
+        CompletableFuture<Response> leader = routingService.forwardRequestAsync(get("/"));
+        assertEquals(OK, routingService.forwardRequest(get("/")));
+        assertFalse(leader.isDone());
+        assertEquals(1, routingService.fallbacks());
+    }
+
+    @Test
+    void testCallerTimingOutDoesNotAffectOthers() {
+        RoutingService upstream = mock(RoutingService.class);
+        CompletableFuture<Response> pending = new CompletableFuture<>();
+        when(upstream.forwardRequestAsync(any())).thenReturn(pending);
+        CoalescingRoutingService routingService = new CoalescingRoutingService(upstream, 1000);
+
+        CompletableFuture<Response> leader = routingService.forwardRequestAsync(get("/"));
+        CompletableFuture<Response> waiter = routingService.forwardRequestAsync(get("/"));
+        leader.cancel(true);
+        pending.complete(OK);
+        assertEquals(OK, waiter.join());
+    }
+}
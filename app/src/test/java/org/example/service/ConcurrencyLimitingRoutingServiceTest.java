@@ -0,0 +1,93 @@
+package org.example.service;
+
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.example.service.AbstractRoutingService.OVERLOADED_RESPONSE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConcurrencyLimitingRoutingServiceTest {
+    private static final Response OK = new Response(200, "ok", Map.of("x-server", "server-1"));
+
+    private static RequestImpl get(String path) {
+        return new RequestImpl(Method.GET, path, "");
+    }
+
+    @Test
+    void testShedsRequestsPastTheLimit() {
+        RoutingService upstream = mock(RoutingService.class);
+        CompletableFuture<Response> pending = new CompletableFuture<>();
+        when(upstream.forwardRequestAsync(any())).thenReturn(pending);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 100);
+        ConcurrencyLimitingRoutingService routingService = new ConcurrencyLimitingRoutingService(upstream, limiter);
+
+        routingService.forwardRequestAsync(get("/a"));
+        routingService.forwardRequestAsync(get("/b"));
+        Response shed = routingService.forwardRequestAsync(get("/c")).join();
+        assertEquals(503, shed.status());
+        assertEquals("1", shed.headers().get("retry-after"));
+        verify(upstream, times(2)).forwardRequestAsync(any());
+
+        pending.complete(OK);
+        assertEquals(0, limiter.inFlight());
+        assertEquals(OK, routingService.forwardRequestAsync(get("/d")).join());
+    }
+
+    @Test
+    void testTimeoutsAndCancellationsGiveBackTheirSlot() {
+        RoutingService upstream = mock(RoutingService.class);
+        CompletableFuture<Response> cancelled = new CompletableFuture<>();
+        when(upstream.forwardRequestAsync(any())).thenReturn(completedFuture(AbstractRoutingService.GATEWAY_TIMEOUT_RESPONSE));
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 100);
+        ConcurrencyLimitingRoutingService routingService = new ConcurrencyLimitingRoutingService(upstream, limiter);
+
+        routingService.forwardRequestAsync(get("/a")).join();
+        assertEquals(9, limiter.limit());
+        doReturn(cancelled).when(upstream).forwardRequestAsync(any());
+        routingService.forwardRequestAsync(get("/a")).cancel(true);
+        assertEquals(9, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void testAdaptersAtTheirLimitAreSkipped() {
+        Adapter busy = mock(Adapter.class);
+        Adapter idle = mock(Adapter.class);
+        CompletableFuture<Response> pending = new CompletableFuture<>();
+        when(busy.getAsync(anyString())).thenReturn(pending);
+        when(idle.getAsync(anyString())).thenReturn(pending);
+        Config config = Config.builder()
+                .instances(Map.of())
+                .concurrencyLimit(true)
+                .concurrencyLimitInitial(1)
+                .build();
+        AbstractRoutingService routingService = (AbstractRoutingService) RoutingStrategy.ROUND_ROBIN.create(List.of(busy, idle), config,
+                Executors.newSingleThreadExecutor());
+
+        routingService.forwardRequestAsync(get("/a"));
+        routingService.forwardRequestAsync(get("/b"));
+        assertEquals(1, routingService.inFlight(0));
+        assertEquals(1, routingService.inFlight(1));
+
+        // both adapters are full, the request is shed instead of timing out
+        assertEquals(OVERLOADED_RESPONSE, routingService.forwardRequestAsync(get("/c")).join());
+        verify(busy, times(1)).getAsync(anyString());
+        verify(idle, times(1)).getAsync(anyString());
+
+        pending.complete(OK);
+        assertEquals(0, routingService.limiter(0).inFlight());
+        assertEquals(OK, routingService.forwardRequestAsync(get("/d")).join());
+        routingService.stop();
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.adapter.Adapter;
+import org.example.request.Method;
+import org.example.request.Request;
+import org.example.request.RequestImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@Slf4j
+public class ConsistentHashRoutingServiceTest {
+    private static final int KEYS = 10_000;
+
+    private static ConsistentHashRoutingServiceImpl create(int adapterCount, HashKey hashKey) {
+        List<Adapter> adapters = IntStream.range(0, adapterCount).mapToObj(index -> mock(Adapter.class)).toList();
+        return new ConsistentHashRoutingServiceImpl(adapters, 1000, Executors.newSingleThreadExecutor(), hashKey,
+                ConsistentHashRoutingServiceImpl.DEFAULT_VIRTUAL_NODES);
+    }
+
+    private static int[] owners(ConsistentHashRoutingServiceImpl routingService) {
+        return IntStream.range(0, KEYS)
+                .map(key -> routingService.select(new RequestImpl(Method.GET, "/items/" + key, ""), key, 0, 0))
+                .toArray();
+    }
+
+    @Test
+    void testSameKeyGoesToSameAdapter() {
+        ConsistentHashRoutingServiceImpl routingService = create(5, HashKey.PATH);
+        Request request = new RequestImpl(Method.GET, "/items/42?ignored=1", "");
+        int owner = routingService.select(request, 0, 0, 0);
+        IntStream.range(1, 100).forEach(sequence -> assertEquals(owner, routingService.select(request, sequence, 0, 0)));
+        assertEquals(owner, routingService.select(new RequestImpl(Method.GET, "/items/42", ""), 7, 0, 0));
+        routingService.stop();
+    }
+
+    @Test
+    void testKeysAreSpreadEvenly() {
+        int adapterCount = 10;
+        ConsistentHashRoutingServiceImpl routingService = create(adapterCount, HashKey.PATH);
+        int[] counts = new int[adapterCount];
+        IntStream.of(owners(routingService)).forEach(owner -> counts[owner]++);
+        IntStream.of(counts).forEach(count -> assertTrue(count > KEYS / adapterCount / 2 && count < KEYS / adapterCount * 2,
+                "unbalanced ring " + count));
+        routingService.stop();
+    }
+
+    @Test
+    void testRemovingAnAdapterOnlyMovesItsKeys() {
+        ConsistentHashRoutingServiceImpl before = create(10, HashKey.PATH);
+        ConsistentHashRoutingServiceImpl after = create(9, HashKey.PATH);
+        int[] ownersBefore = owners(before);
+        int[] ownersAfter = owners(after);
+        int moved = 0;
+        for (int key = 0; key < KEYS; key++) {
+            if (ownersBefore[key] != ownersAfter[key]) {
+                moved++;
+                assertEquals(9, ownersBefore[key]);
+            }
+        }
+        assertTrue(moved < KEYS * 0.15, "moved " + moved + " keys");
+        before.stop();
+        after.stop();
+    }
+
+    @Test
+    void testUnhealthyOwnerFallsBackToNextNode() {
+        ConsistentHashRoutingServiceImpl routingService = create(10, HashKey.PATH);
+        int[] ownersBefore = owners(routingService);
+        routingService.selector.markUnhealthy(3);
+        int[] ownersAfter = owners(routingService);
+        for (int key = 0; key < KEYS; key++) {
+            if (ownersBefore[key] == 3) {
+                assertNotEquals(3, ownersAfter[key]);
+            } else {
+                assertEquals(ownersBefore[key], ownersAfter[key]);
+            }
+        }
+        routingService.stop();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 70})
+    void testLaterAttemptsGoToTheKeysNextOwner(int adapterCount) {
+        ConsistentHashRoutingServiceImpl routingService = create(adapterCount, HashKey.PATH);
+        Request request = new RequestImpl(Method.GET, "/items/7", "");
+        int owner = routingService.select(request, 0, 0, 0);
+        int next = routingService.select(request, 0, 1, 0);
+        assertNotEquals(owner, next);
+        // failing over after the owner went down lands on the same next owner
+        routingService.selector.markUnhealthy(owner);
+        assertEquals(next, routingService.select(request, 0, 0, 0));
+        assertEquals(next, routingService.select(request, 0, 1, 0));
+        routingService.stop();
+    }
+
+    @Test
+    void testHeaderAndQueryKeys() {
+        ConsistentHashRoutingServiceImpl byHeader = create(10, HashKey.parse("header:X-User"));
+        int owner = byHeader.select(new RequestImpl(Method.GET, "/a", "", Map.of("X-User", List.of("alice"))), 0, 0, 0);
+        IntStream.range(1, 50).forEach(sequence -> assertEquals(owner, byHeader.select(
+                new RequestImpl(Method.GET, "/b" + sequence, "", Map.of("x-user", List.of("alice"))), sequence, 0, 0)));
+        // no header, plain round robin
+        assertEquals(0, byHeader.select(new RequestImpl(Method.GET, "/a", ""), 0, 0, 0));
+        assertEquals(1, byHeader.select(new RequestImpl(Method.GET, "/a", ""), 1, 0, 0));
+        byHeader.stop();
+
+        ConsistentHashRoutingServiceImpl byQuery = create(10, HashKey.parse("query:user"));
+        int queryOwner = byQuery.select(new RequestImpl(Method.GET, "/a?user=bob&page=1", ""), 0, 0, 0);
+        IntStream.range(1, 50).forEach(sequence -> assertEquals(queryOwner, byQuery.select(
+                new RequestImpl(Method.GET, "/b?page=" + sequence + "&user=bob", ""), sequence, 0, 0)));
+        byQuery.stop();
+    }
+
+    @Test
+    void testInvalidHashKey() {
+        assertThrows(IllegalArgumentException.class, () -> HashKey.parse("cookie:session"));
+        assertThrows(IllegalArgumentException.class, () -> HashKey.parse("header"));
+    }
+}
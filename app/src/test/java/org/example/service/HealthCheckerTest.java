@@ -0,0 +1,107 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Method;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+public class HealthCheckerTest {
+    private static final Config CONFIG = Config.builder()
+            .instances(Map.of())
+            .healthCheckMethod(Method.HEAD)
+            .healthCheckPath("/health")
+            .healthCheckIntervalMs(100)
+            .healthCheckTimeoutMs(200)
+            .healthCheckMaxBackoffMs(400)
+            .build();
+
+    private HealthChecker healthChecker;
+
+    @AfterEach
+    void tearDown() {
+        if (healthChecker != null) {
+            healthChecker.stop();
+        }
+    }
+
+    @Test
+    void testEveryUnhealthyAdapterIsProbedInParallel() {
+        int adapterCount = 20;
+        List<Adapter> adapters = IntStream.range(0, adapterCount).mapToObj(index -> mock(Adapter.class)).toList();
+        // the first half never answer, which must not hold back the recovery of the others
+        IntStream.range(0, adapterCount).forEach(index -> when(adapters.get(index).healthcheckAsync(Method.HEAD, "/health"))
+                .thenAnswer(invocation -> index < adapterCount / 2
+                        ? new CompletableFuture<Boolean>()
+                        : CompletableFuture.completedFuture(true)));
+        RoundRobinSelector selector = new RoundRobinSelector(adapterCount);
+        healthChecker = new HealthChecker(adapters, selector, CONFIG);
+        IntStream.range(0, adapterCount).forEach(index -> {
+            selector.markUnhealthy(index);
+            healthChecker.watch(index);
+        });
+
+        await().atMost(Duration.ofSeconds(1)).until(() -> selector.healthyCount() == adapterCount / 2);
+        IntStream.range(adapterCount / 2, adapterCount).forEach(index -> assertTrue(selector.isHealthy(index)));
+        await().atMost(Duration.ofSeconds(1)).until(() -> healthChecker.failures(0) > 0);
+        assertFalse(selector.isHealthy(0));
+    }
+
+    @Test
+    void testFailingAdapterIsProbedWithBackoffUntilItRecovers() {
+        Adapter adapter = mock(Adapter.class);
+        AtomicInteger probes = new AtomicInteger();
+        when(adapter.healthcheckAsync(Method.HEAD, "/health"))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(probes.incrementAndGet() > 3));
+        RoundRobinSelector selector = new RoundRobinSelector(1);
+        healthChecker = new HealthChecker(List.of(adapter), selector, CONFIG);
+        selector.markUnhealthy(0);
+        healthChecker.watch(0);
+        // a second failure report while probing does not start another probe loop
+        healthChecker.watch(0);
+
+        await().atMost(Duration.ofSeconds(3)).until(() -> selector.isHealthy(0));
+        assertEquals(4, probes.get());
+        assertEquals(0, healthChecker.failures(0));
+    }
+
+    @Test
+    void testThrowingProbeCountsAsFailure() {
+        Adapter adapter = mock(Adapter.class);
+        when(adapter.healthcheckAsync(any(), anyString())).thenThrow(new IllegalStateException("boom"));
+        RoundRobinSelector selector = new RoundRobinSelector(1);
+        healthChecker = new HealthChecker(List.of(adapter), selector, CONFIG);
+        selector.markUnhealthy(0);
+        healthChecker.watch(0);
+
+        await().atMost(Duration.ofSeconds(1)).until(() -> healthChecker.failures(0) > 0);
+        assertFalse(selector.isHealthy(0));
+    }
+
+    @Test
+    void testBackoffIsJitteredAndCapped() {
+        healthChecker = new HealthChecker(List.of(mock(Adapter.class)), new RoundRobinSelector(1), CONFIG);
+        double jitter = HealthChecker.JITTER;
+        for (int i = 0; i < 1000; i++) {
+            long first = healthChecker.delayMs(0);
+            assertTrue(first >= 100 * (1 - jitter) && first <= 100 * (1 + jitter), "delay " + first);
+            long second = healthChecker.delayMs(1);
+            assertTrue(second >= 200 * (1 - jitter) && second <= 200 * (1 + jitter), "delay " + second);
+            long capped = healthChecker.delayMs(62);
+            assertTrue(capped >= 400 * (1 - jitter) && capped <= 400 * (1 + jitter), "delay " + capped);
+        }
+    }
+}
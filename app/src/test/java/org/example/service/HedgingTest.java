@@ -0,0 +1,118 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+public class HedgingTest {
+    private static Config config(long hedgeDelayMs, double hedgePercentile) {
+        return Config.builder()
+                .instances(Map.of())
+                .timeoutMs(5000)
+                .hedgeDelayMs(hedgeDelayMs)
+                .hedgePercentile(hedgePercentile)
+                .build();
+    }
+
+    @Test
+    void testStalledGetIsHedgedAndLoserCancelled() {
+        Adapter stalled = mock(Adapter.class);
+        Adapter fast = mock(Adapter.class);
+        CompletableFuture<Response> stalledCall = new CompletableFuture<>();
+        when(stalled.getAsync(anyString())).thenReturn(stalledCall);
+        when(fast.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-2"))));
+        RoundRobinRoutingServiceImpl routingService = new RoundRobinRoutingServiceImpl(List.of(stalled, fast),
+                config(50, 0), Executors.newSingleThreadExecutor());
+
+        long start = System.nanoTime();
+        Response response = routingService.forwardRequest(new RequestImpl(Method.GET, "/", ""));
+        assertEquals("server-2", response.headers().get("x-server"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        await().atMost(Duration.ofSeconds(1)).until(stalledCall::isCancelled);
+        // the cancelling thread settles the call just after the future reads as cancelled
+        await().atMost(Duration.ofSeconds(1)).until(() -> routingService.inFlight(0) == 0);
+        // losing a hedge race is not the adapter's fault
+        assertEquals(CircuitBreaker.State.CLOSED, routingService.circuitBreaker(0).state());
+        assertTrue(routingService.selector.isHealthy(0));
+        assertEquals(1, routingService.hedger().hedged());
+        routingService.stop();
+    }
+
+    @Test
+    void testUnsafeMethodsAreNotHedged() {
+        Adapter slow = mock(Adapter.class);
+        Adapter fast = mock(Adapter.class);
+        when(slow.postAsync(anyString(), any())).thenAnswer(invocation -> CompletableFuture.supplyAsync(
+                () -> new Response(200, "ok", Map.of("x-server", "server-1")),
+                CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS)));
+        RoundRobinRoutingServiceImpl routingService = new RoundRobinRoutingServiceImpl(List.of(slow, fast),
+                config(20, 0), Executors.newSingleThreadExecutor());
+
+        Response response = routingService.forwardRequest(new RequestImpl(Method.POST, "/", "body"));
+        assertEquals("server-1", response.headers().get("x-server"));
+        verify(fast, never()).postAsync(anyString(), any());
+        assertEquals(0, routingService.hedger().hedged());
+        routingService.stop();
+    }
+
+    @Test
+    void testFastAnswerIsNotHedged() {
+        Adapter first = mock(Adapter.class);
+        Adapter second = mock(Adapter.class);
+        when(first.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1"))));
+        RoundRobinRoutingServiceImpl routingService = new RoundRobinRoutingServiceImpl(List.of(first, second),
+                config(100, 0), Executors.newSingleThreadExecutor());
+
+        assertEquals("server-1", routingService.forwardRequest(new RequestImpl(Method.GET, "/", "")).headers().get("x-server"));
+        verify(second, never()).getAsync(anyString());
+        routingService.stop();
+    }
+
+    @Test
+    void testBudgetCapsHedges() {
+        Hedger hedger = new Hedger(2, Config.builder().instances(Map.of()).hedgeDelayMs(10).hedgeBudgetPercent(5).build());
+        int hedges = 0;
+        for (int request = 0; request < 1000; request++) {
+            hedger.onRequest();
+            if (hedger.tryHedge()) {
+                hedges++;
+            }
+        }
+        // the initial burst plus 5% of the requests
+        assertTrue(hedges <= 10 + 50, "hedged " + hedges);
+        assertTrue(hedges >= 50, "hedged " + hedges);
+        assertEquals(hedges, hedger.hedged());
+    }
+
+    @Test
+    void testDelayIsLearnedFromLatencyPercentile() {
+        Hedger hedger = new Hedger(2, config(0, 90));
+        assertEquals(-1, hedger.delayNanos(0));
+        IntStream.range(0, Hedger.MIN_SAMPLES).forEach(i -> hedger.record(0, TimeUnit.MILLISECONDS.toNanos(i < 90 ? 10 : 500)));
+        long delayMs = TimeUnit.NANOSECONDS.toMillis(hedger.delayNanos(0));
+        assertTrue(delayMs >= 10 && delayMs < 12, "delay " + delayMs);
+        // other adapters have their own distribution
+        assertEquals(-1, hedger.delayNanos(1));
+
+        Hedger withFallback = new Hedger(1, config(250, 99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(250), withFallback.delayNanos(0));
+    }
+}
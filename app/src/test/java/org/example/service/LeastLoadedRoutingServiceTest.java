@@ -0,0 +1,101 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+public class LeastLoadedRoutingServiceTest {
+    @ParameterizedTest
+    @EnumSource(value = RoutingStrategy.class, names = {"LEAST_OUTSTANDING", "POWER_OF_TWO_CHOICES"})
+    void testBusyAdapterIsAvoided(RoutingStrategy strategy) {
+        Adapter busy = mock(Adapter.class);
+        Adapter idle = mock(Adapter.class);
+        CompletableFuture<Response> pending = new CompletableFuture<>();
+        when(busy.getAsync(anyString())).thenReturn(pending);
+        when(idle.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "idle"))));
+        AbstractRoutingService routingService = (AbstractRoutingService) strategy.create(List.of(busy, idle), 5000,
+                Executors.newSingleThreadExecutor());
+
+        // park one request on the busy adapter, ties between two idle adapters can go either way
+        for (int i = 0; i < 100 && routingService.inFlight(0) == 0; i++) {
+            routingService.forwardRequestAsync(new RequestImpl(Method.GET, "/", ""));
+        }
+        assertEquals(1, routingService.inFlight(0));
+
+        IntStream.range(0, 10).forEach(index -> assertEquals("idle", routingService
+                .forwardRequest(new RequestImpl(Method.GET, "/", "req " + index)).headers().get("x-server")));
+        verify(busy, times(1)).getAsync(anyString());
+
+        pending.complete(new Response(200, "ok", Map.of("x-server", "busy")));
+        assertEquals(0, routingService.inFlight(0));
+        routingService.stop();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = RoutingStrategy.class, names = {"LEAST_OUTSTANDING", "POWER_OF_TWO_CHOICES", "PEAK_EWMA"})
+    void testFailoverSkipsTheAdapterThatTurnedTheRequestAway(RoutingStrategy strategy) {
+        Adapter rejecting = mock(Adapter.class);
+        Adapter available = mock(Adapter.class);
+        AtomicInteger calls = new AtomicInteger();
+        // the first call stays in flight, so the rejecting adapter always looks less loaded
+        when(available.getAsync(anyString())).thenAnswer(invocation -> calls.getAndIncrement() == 0
+                ? new CompletableFuture<>()
+                : completedFuture(new Response(200, "ok", Map.of("x-server", "available"))));
+        AbstractRoutingService routingService = (AbstractRoutingService) strategy.create(List.of(rejecting, available), 5000,
+                Executors.newSingleThreadExecutor());
+        // healthy as far as the selector knows, but its breaker has no trial calls left to give
+        CircuitBreaker circuitBreaker = routingService.circuitBreaker(0);
+        circuitBreaker.trip();
+        circuitBreaker.halfOpen();
+        routingService.selector.markHealthy(0);
+        while (circuitBreaker.tryAcquire()) {
+            // take every trial permit
+        }
+
+        routingService.forwardRequestAsync(new RequestImpl(Method.GET, "/", ""));
+        assertEquals(1, routingService.inFlight(1));
+        IntStream.range(0, 20).forEach(index -> assertEquals("available", routingService
+                .forwardRequest(new RequestImpl(Method.GET, "/", "req " + index)).headers().get("x-server")));
+        verify(rejecting, never()).getAsync(anyString());
+        routingService.stop();
+    }
+
+    @ParameterizedTest
+    @EnumSource(RoutingStrategy.class)
+    void testFailingAdapterIsSkipped(RoutingStrategy strategy) {
+        Adapter failing = mock(Adapter.class);
+        Adapter healthy = mock(Adapter.class);
+        lenient().doThrow(new RuntimeException("some error")).when(failing).getAsync(anyString());
+        when(healthy.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "healthy"))));
+        Config config = Config.builder().instances(Map.of()).timeoutMs(5000).breakerMinimumCalls(2).build();
+        AbstractRoutingService routingService = (AbstractRoutingService) strategy.create(List.of(failing, healthy), config,
+                Executors.newSingleThreadExecutor());
+        IntStream.range(0, 10).forEach(index -> assertEquals("healthy", routingService
+                .forwardRequest(new RequestImpl(Method.GET, "/", "req " + index)).headers().get("x-server")));
+        // failed over every time, and out of rotation once enough calls failed to open its breaker
+        verify(failing, atMost(2)).getAsync(anyString());
+        assertFalse(routingService.metrics(0).errors() == 2 && routingService.selector.isHealthy(0));
+        routingService.stop();
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.service;
+
+import org.example.metrics.RequestMetrics;
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MeteredRoutingServiceTest {
+    @Test
+    void testResponsesAndFailuresAreCounted() {
+        RoutingService delegate = mock(RoutingService.class);
+        RequestMetrics metrics = new RequestMetrics();
+        MeteredRoutingService routingService = new MeteredRoutingService(delegate, metrics);
+
+        when(delegate.forwardRequestAsync(any())).thenReturn(CompletableFuture.completedFuture(new Response(200, "ok", Map.of())));
+        routingService.forwardRequestAsync(new RequestImpl(Method.GET, "/", "")).join();
+        when(delegate.forwardRequestAsync(any())).thenReturn(CompletableFuture.completedFuture(AbstractRoutingService.OVERLOADED_RESPONSE));
+        routingService.forwardRequestAsync(new RequestImpl(Method.GET, "/", "")).join();
+        CompletableFuture<Response> pending = new CompletableFuture<>();
+        when(delegate.forwardRequestAsync(any())).thenReturn(pending);
+        CompletableFuture<Response> failed = routingService.forwardRequestAsync(new RequestImpl(Method.GET, "/", ""));
+        assertEquals(2, metrics.requests());
+
+        pending.completeExceptionally(new IllegalStateException("boom"));
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(1, metrics.responses(2));
+        assertEquals(1, metrics.responses(5));
+        assertEquals(1, metrics.errors());
+        assertEquals(3, metrics.requests());
+    }
+}
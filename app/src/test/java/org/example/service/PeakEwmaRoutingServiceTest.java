@@ -0,0 +1,112 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.adapter.Adapter;
+import org.example.request.Method;
+import org.example.request.Request;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+public class PeakEwmaRoutingServiceTest {
+    private static final Request REQUEST = new RequestImpl(Method.GET, "/", "");
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private PeakEwmaRoutingServiceImpl routingService;
+
+    private PeakEwmaRoutingServiceImpl create(int adapterCount, long decayMs) {
+        List<Adapter> adapters = IntStream.range(0, adapterCount).mapToObj(index -> mock(Adapter.class)).toList();
+        routingService = new PeakEwmaRoutingServiceImpl(adapters, 1000, Executors.newSingleThreadExecutor(), decayMs);
+        return routingService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        routingService.stop();
+    }
+
+    @Test
+    void testSlowerAdapterIsAvoided() {
+        PeakEwmaRoutingServiceImpl service = create(2, 10_000);
+        service.observe(0, 200 * MS, System.nanoTime());
+        service.observe(1, 5 * MS, System.nanoTime());
+        IntStream.range(0, 100).forEach(attempt -> assertEquals(1, service.select(REQUEST, attempt, 0, 0)));
+    }
+
+    @Test
+    void testFastFailingAdapterLosesItsShare() {
+        Adapter failing = mock(Adapter.class);
+        Adapter slower = mock(Adapter.class);
+        when(failing.getAsync(anyString())).thenReturn(completedFuture(new Response(500, "error", Map.of("x-server", "failing"))));
+        when(slower.getAsync(anyString())).thenAnswer(invocation -> CompletableFuture.supplyAsync(
+                () -> new Response(200, "ok", Map.of("x-server", "slower")),
+                CompletableFuture.delayedExecutor(5, TimeUnit.MILLISECONDS)));
+        routingService = new PeakEwmaRoutingServiceImpl(List.of(failing, slower), 1000, Executors.newSingleThreadExecutor(), 10_000);
+
+        long failed = IntStream.range(0, 50)
+                .filter(index -> routingService.forwardRequest(REQUEST).status() == 500)
+                .count();
+        // one call to find out, maybe a second one before the slower adapter has a latency on record
+        assertTrue(failed <= 2, failed + " requests went to the failing adapter");
+    }
+
+    @Test
+    void testPeakIsAdoptedImmediately() {
+        PeakEwmaRoutingServiceImpl service = create(1, 10_000);
+        long now = System.nanoTime();
+        IntStream.range(0, 50).forEach(i -> service.observe(0, 5 * MS, now));
+        service.observe(0, 100 * MS, now);
+        assertEquals(100 * MS, service.cost(0, now), MS);
+    }
+
+    @Test
+    void testFasterObservationsPullTheAverageDown() {
+        PeakEwmaRoutingServiceImpl service = create(1, 100);
+        long now = System.nanoTime();
+        service.observe(0, 100 * MS, now);
+        service.observe(0, 10 * MS, now + 100 * MS);
+        double cost = service.cost(0, now + 100 * MS);
+        assertTrue(cost < 100 * MS && cost > 10 * MS, "cost " + cost);
+    }
+
+    @Test
+    void testCostDecaysWhileIdle() {
+        PeakEwmaRoutingServiceImpl service = create(1, 100);
+        long now = System.nanoTime();
+        service.observe(0, 100 * MS, now);
+        assertTrue(service.cost(0, now + TimeUnit.SECONDS.toNanos(1)) < MS);
+    }
+
+    @Test
+    void testConcurrentObservationsKeepAValidCost() throws InterruptedException {
+        PeakEwmaRoutingServiceImpl service = create(1, 10_000);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executorService.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    service.observe(0, 7 * MS, System.nanoTime());
+                }
+            });
+        }
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(7 * MS, service.cost(0, System.nanoTime()), MS);
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static long key(int client) {
+        return Hashing.hash("10.0.0." + client, 0, ("10.0.0." + client).length());
+    }
+
+    @Test
+    void testAllowsTheBurstThenTheRate() {
+        RateLimiter limiter = new RateLimiter(10, 5, 1000);
+        long now = 0;
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, limiter.acquire(key(1), now));
+        }
+        long waitNanos = limiter.acquire(key(1), now);
+        assertEquals(SECOND / 10, waitNanos);
+        assertEquals(1, limiter.limited());
+
+        // one token every 100ms
+        assertTrue(limiter.acquire(key(1), now + SECOND / 20) > 0);
+        assertEquals(0, limiter.acquire(key(1), now + SECOND / 10));
+        assertTrue(limiter.acquire(key(1), now + SECOND / 10) > 0);
+        assertEquals(0, limiter.acquire(key(1), now + SECOND / 5));
+    }
+
+    @Test
+    void testClientsHaveTheirOwnBuckets() {
+        RateLimiter limiter = new RateLimiter(1, 1, 1000);
+        assertEquals(0, limiter.acquire(key(1), 0));
+        assertTrue(limiter.acquire(key(1), 0) > 0);
+        assertEquals(0, limiter.acquire(key(2), 0));
+    }
+
+    @Test
+    void testFullBucketsAreForgotten() {
+        RateLimiter limiter = new RateLimiter(10, 10, 1000);
+        for (int client = 0; client < 100; client++) {
+            assertEquals(0, limiter.acquire(key(client), 0));
+        }
+        assertEquals(100, limiter.size(0));
+        assertEquals(100, limiter.size(SECOND / 10 - 1));
+        assertEquals(0, limiter.size(SECOND / 10));
+    }
+
+    @Test
+    void testKeepsHundredsOfThousandsOfClients() {
+        RateLimiter limiter = new RateLimiter(1, 1, 1 << 20);
+        LongStream.range(0, 300_000).forEach(client -> assertEquals(0, limiter.acquire(Hashing.hash("client-" + client, 0, ("client-" + client).length()), 0)));
+        LongStream.range(0, 300_000).forEach(client -> assertTrue(limiter.acquire(Hashing.hash("client-" + client, 0, ("client-" + client).length()), 0) > 0));
+        assertEquals(0, limiter.evictions());
+        assertEquals(300_000, limiter.size(0));
+    }
+
+    @Test
+    void testDropsTheBucketClosestToFullWhenOutOfRoom() {
+        RateLimiter limiter = new RateLimiter(1, 1, 1);
+        int clients = RateLimiter.STRIPES * 256 * 2;
+        for (int client = 0; client < clients; client++) {
+            limiter.acquire(key(client), client);
+        }
+        assertTrue(limiter.evictions() > 0);
+        assertTrue(limiter.size(clients) <= RateLimiter.STRIPES * 256);
+    }
+}
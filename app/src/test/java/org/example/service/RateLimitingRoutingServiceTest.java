@@ -0,0 +1,54 @@
+package org.example.service;
+
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RateLimitingRoutingServiceTest {
+    private static final Response OK = new Response(200, "ok", Map.of("x-server", "server-1"));
+
+    private static RequestImpl request(String clientAddress, Map<String, List<String>> headers) {
+        return new RequestImpl(Method.GET, "/", "", headers, clientAddress);
+    }
+
+    @Test
+    void testAnswers429WithoutCallingUpstream() {
+        RoutingService upstream = mock(RoutingService.class);
+        when(upstream.forwardRequestAsync(any())).thenReturn(completedFuture(OK));
+        RateLimitingRoutingService routingService = new RateLimitingRoutingService(upstream, new RateLimiter(1, 2, 1000), HashKey.CLIENT);
+
+        assertEquals(OK, routingService.forwardRequest(request("10.0.0.1", Map.of())));
+        assertEquals(OK, routingService.forwardRequest(request("10.0.0.1", Map.of())));
+        Response limited = routingService.forwardRequest(request("10.0.0.1", Map.of()));
+        assertEquals(429, limited.status());
+        assertEquals("1", limited.headers().get("retry-after"));
+        assertEquals(OK, routingService.forwardRequest(request("10.0.0.2", Map.of())));
+        verify(upstream, times(3)).forwardRequestAsync(any());
+    }
+
+    @Test
+    void testKeysByHeaderAndFallsBackToTheClient() {
+        RoutingService upstream = mock(RoutingService.class);
+        when(upstream.forwardRequestAsync(any())).thenReturn(completedFuture(OK));
+        RateLimitingRoutingService routingService = new RateLimitingRoutingService(upstream, new RateLimiter(1, 1, 1000),
+                HashKey.parse("header:X-Api-Key"));
+
+        // one key used from two addresses
+        assertEquals(OK, routingService.forwardRequest(request("10.0.0.1", Map.of("X-Api-Key", List.of("team-a")))));
+        assertEquals(429, routingService.forwardRequest(request("10.0.0.2", Map.of("X-Api-Key", List.of("team-a")))).status());
+        // no key, so the address is used
+        assertEquals(OK, routingService.forwardRequest(request("10.0.0.1", Map.of())));
+        assertEquals(429, routingService.forwardRequest(request("10.0.0.1", Map.of())).status());
+        // nothing to tell the client apart by
+        assertEquals(OK, routingService.forwardRequest(request(null, Map.of())));
+        assertEquals(OK, routingService.forwardRequest(request(null, Map.of())));
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.respond.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+public class ResponseCacheTest {
+    private static ResponseCache.Entry entry(int weight) {
+        return new ResponseCache.Entry(new Response(200, "ok", Map.of()), 0, 60_000, weight);
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedWithinByteBudget() {
+        ResponseCache cache = new ResponseCache(300);
+        cache.put("/a", entry(100));
+        cache.put("/b", entry(100));
+        cache.put("/c", entry(100));
+        cache.get("/a");
+        // asked for a few times before it could be stored
+        IntStream.range(0, 3).forEach(i -> cache.get("/d"));
+
+        assertTrue(cache.put("/d", entry(100)));
+        assertNull(cache.get("/b"));
+        assertNotNull(cache.get("/a"));
+        assertNotNull(cache.get("/c"));
+        assertNotNull(cache.get("/d"));
+        assertEquals(1, cache.evictions());
+        assertEquals(300, cache.weightedSize());
+    }
+
+    @Test
+    void testOneOffKeysDoNotFlushPopularEntries() {
+        ResponseCache cache = new ResponseCache(1000);
+        IntStream.range(0, 10).forEach(i -> {
+            cache.get("/popular/" + i);
+            cache.put("/popular/" + i, entry(100));
+            IntStream.range(0, 5).forEach(j -> cache.get("/popular/" + i));
+        });
+
+        IntStream.range(0, 1000).forEach(i -> {
+            // the popular keys are still being asked for while the scan goes on
+            cache.get("/popular/" + i % 10);
+            assertNull(cache.get("/scan/" + i));
+            cache.put("/scan/" + i, entry(100));
+        });
+        IntStream.range(0, 10).forEach(i -> assertNotNull(cache.get("/popular/" + i)));
+        assertEquals(1000, cache.rejected());
+        assertEquals(0, cache.evictions());
+    }
+
+    @Test
+    void testReplacingAnEntryUpdatesItsWeight() {
+        ResponseCache cache = new ResponseCache(1000);
+        cache.put("/a", entry(100));
+        cache.put("/a", entry(300));
+        assertEquals(300, cache.weightedSize());
+        cache.invalidate("/a");
+        assertNull(cache.get("/a"));
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    void testEntryLargerThanBudgetIsRejected() {
+        ResponseCache cache = new ResponseCache(100);
+        assertFalse(cache.put("/a", entry(101)));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.rejected());
+    }
+
+    @Test
+    void testConcurrentReadersAndWritersStayWithinBudget() throws Exception {
+        ResponseCache cache = new ResponseCache(500);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Future<?>[] workers = IntStream.range(0, 8).mapToObj(worker -> executor.submit(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                String key = "/" + ThreadLocalRandom.current().nextInt(200);
+                if (cache.get(key) == null) {
+                    cache.put(key, entry(10));
+                }
+            }
+        })).toArray(Future[]::new);
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+
+        assertTrue(cache.weightedSize() <= 500, "weighted size " + cache.weightedSize());
+        assertEquals(cache.size() * 10L, cache.weightedSize());
+        assertTrue(cache.evictions() > 0);
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.adapter.Adapter;
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.example.service.AbstractRoutingService.GATEWAY_TIMEOUT_RESPONSE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+public class RetryPolicyTest {
+    private static Config config(int maxRetries, int budgetPercent) {
+        return Config.builder()
+                .instances(Map.of())
+                .retryMaxRetries(maxRetries)
+                .retryBackoffMs(10)
+                .retryMaxBackoffMs(40)
+                .retryBudgetPercent(budgetPercent)
+                .build();
+    }
+
+    @Test
+    void testOnlyIdempotentMethodsAreRetried() {
+        RetryPolicy retryPolicy = new RetryPolicy(config(2, 20));
+        RuntimeException error = new RuntimeException("reset by peer");
+        assertTrue(retryPolicy.allows(Method.GET, error, 0));
+        assertTrue(retryPolicy.allows(Method.PUT, error, 0));
+        assertTrue(retryPolicy.allows(Method.DELETE, error, 1));
+        assertFalse(retryPolicy.allows(Method.POST, error, 0));
+        // a POST that never reached the upstream is safe to send elsewhere
+        assertTrue(retryPolicy.allows(Method.POST, new CompletionException(new ConnectException("refused")), 0));
+        assertFalse(retryPolicy.allows(Method.GET, error, 2));
+        assertEquals(4, retryPolicy.retried());
+    }
+
+    @Test
+    void testBudgetIsAShareOfSuccessfulCalls() {
+        RetryPolicy retryPolicy = new RetryPolicy(config(2, 10));
+        RuntimeException error = new RuntimeException("down");
+        // the initial burst
+        int retries = 0;
+        while (retryPolicy.allows(Method.GET, error, 0)) {
+            retries++;
+        }
+        assertEquals(10, retries);
+        assertEquals(1, retryPolicy.exhausted());
+
+        IntStream.range(0, 100).forEach(i -> retryPolicy.onSuccess());
+        retries = 0;
+        while (retryPolicy.allows(Method.GET, error, 0)) {
+            retries++;
+        }
+        assertEquals(10, retries);
+    }
+
+    @Test
+    void testBackoffIsJitteredAndCapped() {
+        RetryPolicy retryPolicy = new RetryPolicy(config(5, 20));
+        long[] ceilings = {10, 20, 40, 40, 40};
+        for (int i = 0; i < 1000; i++) {
+            for (int retry = 0; retry < ceilings.length; retry++) {
+                long backoffMs = retryPolicy.backoffMs(retry);
+                assertTrue(backoffMs >= 0 && backoffMs <= ceilings[retry], "backoff " + backoffMs);
+            }
+        }
+    }
+
+    @Test
+    void testPostIsNotRetriedOnAnotherAdapter() {
+        Adapter failing = mock(Adapter.class);
+        Adapter healthy = mock(Adapter.class);
+        when(failing.postAsync(anyString(), any())).thenReturn(CompletableFuture.failedFuture(new RuntimeException("reset by peer")));
+        when(healthy.postAsync(anyString(), any())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-2"))));
+        RoundRobinRoutingServiceImpl routingService = new RoundRobinRoutingServiceImpl(List.of(failing, healthy), config(2, 20),
+                Executors.newSingleThreadExecutor());
+
+        assertEquals(GATEWAY_TIMEOUT_RESPONSE, routingService.forwardRequest(new RequestImpl(Method.POST, "/", "body")));
+        verify(healthy, never()).postAsync(anyString(), any());
+        routingService.stop();
+    }
+
+    @Test
+    void testRetriesStopAtTheLimit() {
+        List<Adapter> adapters = IntStream.range(0, 5).mapToObj(index -> {
+            Adapter adapter = mock(Adapter.class);
+            when(adapter.getAsync(anyString())).thenReturn(CompletableFuture.failedFuture(new RuntimeException("down")));
+            return adapter;
+        }).toList();
+        RoundRobinRoutingServiceImpl routingService = new RoundRobinRoutingServiceImpl(adapters, config(2, 20),
+                Executors.newSingleThreadExecutor());
+
+        assertEquals(GATEWAY_TIMEOUT_RESPONSE, routingService.forwardRequest(new RequestImpl(Method.GET, "/", "")));
+        // the first try and two retries, a single failure each is not enough to open a breaker
+        assertEquals(5, routingService.selector.healthyCount());
+        assertEquals(3, IntStream.range(0, 5).mapToLong(index -> routingService.metrics(index).errors()).sum());
+        assertEquals(2, routingService.retryPolicy().retried());
+        routingService.stop();
+    }
+
+    @Test
+    void testExhaustedBudgetStopsRetries() {
+        List<Adapter> adapters = IntStream.range(0, 30).mapToObj(index -> {
+            Adapter adapter = mock(Adapter.class);
+            when(adapter.getAsync(anyString())).thenReturn(CompletableFuture.failedFuture(new RuntimeException("down")));
+            return adapter;
+        }).toList();
+        RoundRobinRoutingServiceImpl routingService = new RoundRobinRoutingServiceImpl(adapters, config(100, 20),
+                Executors.newSingleThreadExecutor());
+
+        assertEquals(GATEWAY_TIMEOUT_RESPONSE, routingService.forwardRequest(new RequestImpl(Method.GET, "/", "")));
+        assertEquals(10, routingService.retryPolicy().retried());
+        assertEquals(1, routingService.retryPolicy().exhausted());
+        routingService.stop();
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+public class RoundRobinSelectorTest {
+    @Test
+    void testPicksInOrder() {
+        RoundRobinSelector selector = new RoundRobinSelector(3);
+        assertEquals(0, selector.pick(selector.nextSequence()));
+        assertEquals(1, selector.pick(selector.nextSequence()));
+        assertEquals(2, selector.pick(selector.nextSequence()));
+        assertEquals(0, selector.pick(selector.nextSequence()));
+    }
+
+    @Test
+    void testSkipsUnhealthyAdapters() {
+        RoundRobinSelector selector = new RoundRobinSelector(3);
+        assertTrue(selector.markUnhealthy(1));
+        assertFalse(selector.markUnhealthy(1));
+        assertFalse(selector.isHealthy(1));
+        assertEquals(2, selector.healthyCount());
+        for (int i = 0; i < 10; i++) {
+            assertNotEquals(1, selector.pick(selector.nextSequence()));
+        }
+        assertTrue(selector.markHealthy(1));
+        assertFalse(selector.markHealthy(1));
+        assertTrue(selector.isHealthy(1));
+        assertEquals(3, selector.healthyCount());
+    }
+
+    @Test
+    void testReturnsNoneWhenEverythingIsUnhealthy() {
+        RoundRobinSelector selector = new RoundRobinSelector(2);
+        selector.markUnhealthy(0);
+        selector.markUnhealthy(1);
+        assertEquals(RoundRobinSelector.NONE, selector.pick(selector.nextSequence()));
+    }
+
+    @Test
+    void testPicksAreFairAcrossThreads() throws InterruptedException {
+        int adapterCount = 5;
+        int threadCount = 8;
+        int picksPerThread = 100_000;
+        RoundRobinSelector selector = new RoundRobinSelector(adapterCount);
+        AtomicIntegerArray picks = new AtomicIntegerArray(adapterCount);
+        ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threadCount; t++) {
+            executorService.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                for (int i = 0; i < picksPerThread; i++) {
+                    picks.incrementAndGet(selector.pick(selector.nextSequence()));
+                }
+            });
+        }
+        start.countDown();
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+
+        int expected = threadCount * picksPerThread / adapterCount;
+        for (int i = 0; i < adapterCount; i++) {
+            assertEquals(expected, picks.get(i), "adapter " + i);
+        }
+    }
+
+    @Test
+    void testConcurrentHealthChangesKeepSnapshotConsistent() throws InterruptedException {
+        int adapterCount = 16;
+        RoundRobinSelector selector = new RoundRobinSelector(adapterCount);
+        ExecutorService executorService = Executors.newFixedThreadPool(adapterCount);
+        for (int index = 0; index < adapterCount; index++) {
+            int adapter = index;
+            executorService.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    selector.markUnhealthy(adapter);
+                    selector.markHealthy(adapter);
+                }
+            });
+        }
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(adapterCount, selector.healthyCount());
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+public class RouteTableTest {
+    private static final Map<String, String> GROUPS = Map.of("api", "api", "web", "web", "static", "static", "v2", "v2");
+
+    private static RouteTable<String> table(String... routes) {
+        return RouteTable.compile(Arrays.stream(routes).map(Route::parse).toList(), GROUPS);
+    }
+
+    @Test
+    void testParsingRoutes() {
+        assertEquals(new Route(null, "/api", "api"), Route.parse("/api=api"));
+        assertEquals(new Route("static.example.com", "/", "static"), Route.parse("Static.Example.com/=static"));
+        assertThrows(IllegalArgumentException.class, () -> Route.parse("/api"));
+        assertThrows(IllegalArgumentException.class, () -> Route.parse("api=api"));
+        assertThrows(IllegalArgumentException.class, () -> Route.parse("/api="));
+
+        Route limited = Route.parse("/api=api;retry-max=3;retry-budget-percent=10");
+        assertEquals(new Route(null, "/api", "api", 3, 10), limited);
+        assertEquals(limited, Route.parse(limited.toString()));
+        assertEquals(new Route(null, "/api", "api", Route.DEFAULT, 5), Route.parse("/api=api; retry-budget-percent=5"));
+        assertThrows(IllegalArgumentException.class, () -> Route.parse("/api=api;retry-max=-1"));
+        assertThrows(IllegalArgumentException.class, () -> Route.parse("/api=api;retry-budget-percent=101"));
+        assertThrows(IllegalArgumentException.class, () -> Route.parse("/api=api;retries=3"));
+    }
+
+    @Test
+    void testLongestPrefixWins() {
+        RouteTable<String> routeTable = table("/=web", "/api=api", "/api/v2=v2");
+        assertEquals("web", routeTable.match(null, "/"));
+        assertEquals("web", routeTable.match(null, "/index.html"));
+        assertEquals("api", routeTable.match(null, "/api"));
+        assertEquals("api", routeTable.match(null, "/api/users?page=2"));
+        assertEquals("v2", routeTable.match(null, "/api/v2/users"));
+        assertEquals("api", routeTable.match(null, "/api/v3"));
+        // prefixes match whole segments only
+        assertEquals("web", routeTable.match(null, "/apis"));
+        assertEquals("api", routeTable.match(null, "/api?v2"));
+    }
+
+    @Test
+    void testHostRoutesComeFirst() {
+        RouteTable<String> routeTable = table("/=web", "static.example.com/=static", "static.example.com/api=api");
+        assertEquals("static", routeTable.match("static.example.com", "/logo.png"));
+        assertEquals("static", routeTable.match("STATIC.example.com:8000", "/logo.png"));
+        assertEquals("api", routeTable.match("static.example.com", "/api/users"));
+        assertEquals("web", routeTable.match("www.example.com", "/logo.png"));
+        assertEquals("web", routeTable.match(null, "/logo.png"));
+    }
+
+    @Test
+    void testUnmatchedRequestsHaveNoRoute() {
+        RouteTable<String> routeTable = table("/api=api", "static.example.com/=static");
+        assertNull(routeTable.match(null, "/"));
+        assertNull(routeTable.match("www.example.com", "/static"));
+    }
+
+    @Test
+    void testInvalidTables() {
+        assertThrows(IllegalArgumentException.class, () -> table("/api=unknown"));
+        assertThrows(IllegalArgumentException.class, () -> table("/api=api", "/api/=web"));
+    }
+
+    @Test
+    void testManyRoutes() {
+        RouteTable<String> routeTable = RouteTable.compile(IntStream.range(0, 10_000)
+                .mapToObj(i -> new Route(i % 2 == 0 ? null : "host-" + i, "/service-" + i + "/v1", i % 2 == 0 ? "api" : "web"))
+                .toList(), GROUPS);
+        assertEquals("api", routeTable.match("host-1", "/service-9998/v1/items"));
+        assertEquals("web", routeTable.match("host-9999", "/service-9999/v1"));
+        assertNull(routeTable.match("host-9999", "/service-9997/v1"));
+    }
+
+    @Test
+    void testRequestsGoToTheirGroup() {
+        RoutingService api = mock(RoutingService.class);
+        RoutingService web = mock(RoutingService.class);
+        when(api.forwardRequestAsync(any())).thenReturn(completedFuture(new Response(200, "api", Map.of())));
+        when(web.forwardRequestAsync(any())).thenReturn(completedFuture(new Response(200, "web", Map.of())));
+        RouteTableRoutingService routingService = new RouteTableRoutingService(RouteTable.compile(
+                List.of(Route.parse("/api=api"), Route.parse("www.example.com/=web")), Map.of("api", api, "web", web)), List.of(api, web));
+
+        assertEquals("api", routingService.forwardRequest(new RequestImpl(Method.GET, "/api/users?id=1", "")).body().asString());
+        assertEquals("web", routingService.forwardRequest(new RequestImpl(Method.GET, "/", "",
+                Map.of("Host", List.of("www.example.com:8000")))).body().asString());
+        assertEquals(RouteTableRoutingService.NOT_FOUND_RESPONSE, routingService.forwardRequest(new RequestImpl(Method.GET, "/", "")));
+        // the full path and query reach the group
+        verify(api).forwardRequestAsync(new RequestImpl(Method.GET, "/api/users?id=1", ""));
+
+        routingService.stop();
+        verify(api).stop();
+        verify(web).stop();
+    }
+}
@@ -1,11 +1,15 @@
 package org.example.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.example.Config;
+import org.example.ExecutionMode;
 import org.example.adapter.Adapter;
+import org.example.buffer.Body;
 import org.example.request.Method;
 import org.example.request.Request;
 import org.example.request.RequestImpl;
 import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -14,16 +18,24 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.stubbing.Answer;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.example.service.RoundRobinRoutingServiceImpl.GATEWAY_TIMEOUT_RESPONSE;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @Slf4j
@@ -32,20 +44,20 @@ public class RoutingServiceTest {
     private static Stream<Arguments> provideRequestForward() {
         return Stream.of(
                 Arguments.of(new RequestImpl(Method.GET, "/", ""),
-                        (Consumer<Adapter>) (Adapter adapter) -> when(adapter.get(anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-1"))),
-                        (Consumer<Adapter>) (Adapter adapter) -> verify(adapter, times(1)).get("/")),
+                        (Consumer<Adapter>) (Adapter adapter) -> when(adapter.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1")))),
+                        (Consumer<Adapter>) (Adapter adapter) -> verify(adapter, times(1)).getAsync("/")),
                 Arguments.of(new RequestImpl(Method.POST, "/", "body"),
-                        (Consumer<Adapter>) (Adapter adapter) -> when(adapter.post(anyString(), anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-1"))),
-                        (Consumer<Adapter>) (Adapter adapter) -> verify(adapter, times(1)).post("/", "body")),
+                        (Consumer<Adapter>) (Adapter adapter) -> when(adapter.postAsync(anyString(), any())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1")))),
+                        (Consumer<Adapter>) (Adapter adapter) -> verify(adapter, times(1)).postAsync("/", Body.of("body"))),
                 Arguments.of(new RequestImpl(Method.PUT, "/", "body"),
-                        (Consumer<Adapter>) (Adapter adapter) -> when(adapter.put(anyString(), anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-1"))),
-                        (Consumer<Adapter>) (Adapter adapter) -> verify(adapter, times(1)).put("/", "body")),
+                        (Consumer<Adapter>) (Adapter adapter) -> when(adapter.putAsync(anyString(), any())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1")))),
+                        (Consumer<Adapter>) (Adapter adapter) -> verify(adapter, times(1)).putAsync("/", Body.of("body"))),
                 Arguments.of(new RequestImpl(Method.DELETE, "/", ""),
-                        (Consumer<Adapter>) (Adapter adapter) -> when(adapter.delete(anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-1"))),
-                        (Consumer<Adapter>) (Adapter adapter) -> verify(adapter, times(1)).delete("/")),
+                        (Consumer<Adapter>) (Adapter adapter) -> when(adapter.deleteAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1")))),
+                        (Consumer<Adapter>) (Adapter adapter) -> verify(adapter, times(1)).deleteAsync("/")),
                 Arguments.of(new RequestImpl(Method.HEAD, "/", ""),
-                        (Consumer<Adapter>) (Adapter adapter) -> when(adapter.head(anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-1"))),
-                        (Consumer<Adapter>) (Adapter adapter) -> verify(adapter, times(1)).head("/"))
+                        (Consumer<Adapter>) (Adapter adapter) -> when(adapter.headAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1")))),
+                        (Consumer<Adapter>) (Adapter adapter) -> verify(adapter, times(1)).headAsync("/"))
         );
     }
 
@@ -63,51 +75,71 @@ public class RoutingServiceTest {
     void testRequestRoutingForwardedCorrectly() {
         Request req = new RequestImpl(Method.GET, "/", "");
         Adapter adapter1 = mock(Adapter.class);
-        when(adapter1.get(anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-1")));
+        when(adapter1.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1"))));
         Adapter adapter2 = mock(Adapter.class);
-        when(adapter2.get(anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-2")));
+        when(adapter2.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-2"))));
         RoutingService routingService = new RoundRobinRoutingServiceImpl(List.of(adapter1, adapter2), 1000);
         routingService.forwardRequest(req);
         routingService.forwardRequest(req);
         routingService.forwardRequest(req);
-        verify(adapter1, times(2)).get(anyString());
-        verify(adapter2, times(1)).get(anyString());
+        verify(adapter1, times(2)).getAsync(anyString());
+        verify(adapter2, times(1)).getAsync(anyString());
     }
 
     @Test
     void testRequestRoutingRespondCorrectly() {
         Request req = new RequestImpl(Method.GET, "/", "");
         Adapter adapter1 = mock(Adapter.class);
-        when(adapter1.get(anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-1")));
+        when(adapter1.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1"))));
         Adapter adapter2 = mock(Adapter.class);
-        when(adapter2.get(anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-2")));
+        when(adapter2.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-2"))));
         RoutingService routingService = new RoundRobinRoutingServiceImpl(List.of(adapter1, adapter2), 1000);
         routingService.forwardRequest(req);
         routingService.forwardRequest(req);
         routingService.forwardRequest(req);
-        verify(adapter1, times(2)).get(anyString());
-        verify(adapter2, times(1)).get(anyString());
+        verify(adapter1, times(2)).getAsync(anyString());
+        verify(adapter2, times(1)).getAsync(anyString());
     }
 
     @Test
     void testRequestRoutingRespondCorrectlyWithSomeAdaptersFailing() {
         Adapter adapter1 = mock(Adapter.class);
-        when(adapter1.get(anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-1")));
+        when(adapter1.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1"))));
         Adapter adapter2 = mock(Adapter.class);
-        when(adapter2.get(anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-2")));
+        when(adapter2.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-2"))));
         Adapter adapter3 = mock(Adapter.class);
-        when(adapter3.get(anyString())).thenReturn(new Response(200, "ok", Map.of("x-server", "server-3")));
+        when(adapter3.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-3"))));
         RoutingService routingService = new RoundRobinRoutingServiceImpl(List.of(adapter1, adapter2, adapter3), 1000);
         routingService.forwardRequest(new RequestImpl(Method.GET, "/", "req 1"));
         routingService.forwardRequest(new RequestImpl(Method.GET, "/", "req 2"));
         routingService.forwardRequest(new RequestImpl(Method.GET, "/", "req 3"));
         //should route to first adapter again, but this round we will make it fail
-        doThrow(new RuntimeException("some error")).when(adapter1).get(anyString());
+        doThrow(new RuntimeException("some error")).when(adapter1).getAsync(anyString());
         //this following call should call next instance when first is failing
         var response = routingService.forwardRequest(new RequestImpl(Method.GET, "/", "req 4"));
         assertEquals("server-2", response.headers().get("x-server"));
-        verify(adapter1, times(2)).get(anyString());
-        verify(adapter2, times(2)).get(anyString());
+        verify(adapter1, times(2)).getAsync(anyString());
+        verify(adapter2, times(2)).getAsync(anyString());
+    }
+
+    @Test
+    void testAdapterMetricsCountEveryCall() {
+        Adapter adapter1 = mock(Adapter.class);
+        when(adapter1.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "server-1"))));
+        Adapter adapter2 = mock(Adapter.class);
+        when(adapter2.getAsync(anyString())).thenReturn(completedFuture(new Response(404, "not found", Map.of("x-server", "server-2"))));
+        RoundRobinRoutingServiceImpl routingService = new RoundRobinRoutingServiceImpl(List.of(adapter1, adapter2), 1000);
+        routingService.forwardRequest(new RequestImpl(Method.GET, "/", "req 1"));
+        routingService.forwardRequest(new RequestImpl(Method.GET, "/", "req 2"));
+        doThrow(new RuntimeException("some error")).when(adapter1).getAsync(anyString());
+        // fails over to the second adapter
+        routingService.forwardRequest(new RequestImpl(Method.GET, "/", "req 3"));
+
+        assertEquals(1, routingService.metrics(0).responses(2));
+        assertEquals(1, routingService.metrics(0).errors());
+        assertEquals(2, routingService.metrics(0).requests());
+        assertEquals(2, routingService.metrics(1).responses(4));
+        assertEquals(0, routingService.metrics(1).errors());
     }
 
     @Test
@@ -117,9 +149,9 @@ public class RoutingServiceTest {
         Adapter adapter3 = mock(Adapter.class);
         RoutingService routingService = new RoundRobinRoutingServiceImpl(List.of(adapter1, adapter2, adapter3), 1000);
         // making all adapter fail
-        doThrow(new RuntimeException("some error")).when(adapter1).get(anyString());
-        doThrow(new RuntimeException("some error")).when(adapter2).get(anyString());
-        doThrow(new RuntimeException("some error")).when(adapter3).get(anyString());
+        doThrow(new RuntimeException("some error")).when(adapter1).getAsync(anyString());
+        doThrow(new RuntimeException("some error")).when(adapter2).getAsync(anyString());
+        doThrow(new RuntimeException("some error")).when(adapter3).getAsync(anyString());
         var response = routingService.forwardRequest(new RequestImpl(Method.GET, "/", "req 1"));
         assertEquals(GATEWAY_TIMEOUT_RESPONSE, response);
     }
@@ -129,14 +161,64 @@ public class RoutingServiceTest {
         Adapter adapter1 = mock(Adapter.class);
         RoutingService routingService = new RoundRobinRoutingServiceImpl(List.of(adapter1), 500);
         // making all adapter fail
-        when(adapter1.get(anyString())).thenAnswer((Answer<Response>) invocation -> {
-            Thread.sleep(700);
-            return new Response(200, "ok", Map.of("x-server", "server-1"));
-        });
+        when(adapter1.getAsync(anyString())).thenAnswer(invocation -> delayed(700, new Response(200, "ok", Map.of("x-server", "server-1"))));
         var response = routingService.forwardRequest(new RequestImpl(Method.GET, "/", "req 1"));
         assertEquals(GATEWAY_TIMEOUT_RESPONSE, response);
     }
 
+    @Test
+    void testSlowAdaptersServeRequestsInParallel() {
+        int adapterCount = 4;
+        long delayMs = 500;
+        List<Adapter> adapters = IntStream.range(0, adapterCount).mapToObj(index -> {
+            Adapter adapter = mock(Adapter.class);
+            when(adapter.getAsync(anyString())).thenAnswer(invocation -> delayed(delayMs, new Response(200, "ok", Map.of("x-server", "server-" + index))));
+            return adapter;
+        }).toList();
+        RoutingService routingService = new RoundRobinRoutingServiceImpl(adapters, 5000,
+                ExecutionMode.CONCURRENT.newExecutor("upstream"));
+        ExecutorService clients = ExecutionMode.CONCURRENT.newExecutor("client");
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Response>> responses = IntStream.range(0, adapterCount)
+                .mapToObj(index -> CompletableFuture.supplyAsync(() -> routingService
+                        .forwardRequest(new RequestImpl(Method.GET, "/", "req " + index)), clients))
+                .toList();
+        responses.forEach(response -> assertEquals(200, response.join().status()));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < delayMs * 2, "requests should overlap, took " + elapsedMs + "ms");
+        clients.shutdown();
+        routingService.stop();
+    }
+
+    @Test
+    void testStreamingRequestWithoutBodyFailsOver() throws IOException {
+        Adapter adapter1 = mock(Adapter.class);
+        Adapter adapter2 = mock(Adapter.class);
+        doThrow(new RuntimeException("some error")).when(adapter1).streamAsync(any(), anyString(), any());
+        when(adapter2.streamAsync(any(), anyString(), any())).thenReturn(completedFuture(
+                new StreamedResponse(200, new ByteArrayInputStream("ok".getBytes()), Map.of("x-server", "server-2"))));
+        RoutingService routingService = new RoundRobinRoutingServiceImpl(List.of(adapter1, adapter2), 1000);
+        var response = routingService.streamRequestAsync(new RequestImpl(Method.GET, "/", ""), null).join();
+        assertEquals("server-2", response.headers().get("x-server"));
+        assertEquals("ok", new String(response.body().readAllBytes()));
+        routingService.stop();
+    }
+
+    @Test
+    void testStreamingRequestWithBodyIsNotRetried() {
+        Adapter adapter1 = mock(Adapter.class);
+        Adapter adapter2 = mock(Adapter.class);
+        doThrow(new RuntimeException("some error")).when(adapter1).streamAsync(any(), anyString(), any());
+        RoutingService routingService = new RoundRobinRoutingServiceImpl(List.of(adapter1, adapter2), 1000);
+        var response = routingService.streamRequestAsync(new RequestImpl(Method.POST, "/", ""),
+                new ByteArrayInputStream("body".getBytes())).join();
+        assertEquals(GATEWAY_TIMEOUT_RESPONSE.status(), response.status());
+        verify(adapter2, never()).streamAsync(any(), anyString(), any());
+        routingService.stop();
+    }
+
     @Test
     void shouldNotInstantiateWithEmptyAdapterList() {
         assertThrows(IllegalArgumentException.class, () -> new RoundRobinRoutingServiceImpl(Collections.emptyList(), 1000));
@@ -146,24 +228,21 @@ public class RoutingServiceTest {
     void shouldTakeProblematicInstanceOffline() {
         Adapter adapter1 = mock(Adapter.class);
         Adapter adapter2 = mock(Adapter.class);
-        when(adapter2.get(anyString())).thenAnswer((Answer<Response>) invocation -> {
-            Thread.sleep(200);
-            return new Response(200, "ok", Map.of("x-server", "server-2"));
-        });
-        RoutingService routingService = new RoundRobinRoutingServiceImpl(List.of(adapter1, adapter2), 5000);
-        doThrow(new RuntimeException("some error")).when(adapter1).get(anyString());
-        IntStream.range(0, 2)
+        when(adapter2.getAsync(anyString())).thenAnswer(invocation -> delayed(200, new Response(200, "ok", Map.of("x-server", "server-2"))));
+        // one error is not enough to open the breaker, the second one within its minimum calls is
+        Config config = Config.builder().instances(Map.of()).timeoutMs(5000).breakerMinimumCalls(2).build();
+        RoutingService routingService = new RoundRobinRoutingServiceImpl(List.of(adapter1, adapter2), config,
+                Executors.newSingleThreadExecutor());
+        doThrow(new RuntimeException("some error")).when(adapter1).getAsync(anyString());
+        IntStream.range(0, 4)
                 .forEach(index -> routingService
                         .forwardRequest(new RequestImpl(Method.GET, "/", "req " + index)));
-        verify(adapter1, times(1)).get(anyString());
-        verify(adapter2, times(2)).get(anyString());
+        verify(adapter1, times(2)).getAsync(anyString());
+        verify(adapter2, times(4)).getAsync(anyString());
         reset(adapter1);
 
-        when(adapter1.get(anyString())).thenAnswer((Answer<Response>) invocation -> {
-            Thread.sleep(200);
-            return new Response(200, "ok", Map.of("x-server", "server-1"));
-        });
-        when(adapter1.healthcheck()).thenAnswer((Answer<Boolean>) invocation -> true);
+        when(adapter1.getAsync(anyString())).thenAnswer(invocation -> delayed(200, new Response(200, "ok", Map.of("x-server", "server-1"))));
+        when(adapter1.healthcheckAsync(any(), anyString())).thenAnswer((Answer<CompletableFuture<Boolean>>) invocation -> CompletableFuture.completedFuture(true));
 
         try {
             Thread.sleep(2000);
@@ -171,8 +250,13 @@ public class RoutingServiceTest {
             throw new RuntimeException(e);
         }
         var response = routingService
-                .forwardRequest(new RequestImpl(Method.GET, "/", "req 3"));
+                .forwardRequest(new RequestImpl(Method.GET, "/", "req 4"));
         assertEquals("server-1", response.headers().get("x-server"));
         routingService.stop();
     }
+
+    private static CompletableFuture<Response> delayed(long delayMs, Response response) {
+        return CompletableFuture.supplyAsync(() -> response,
+                CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
+    }
 }
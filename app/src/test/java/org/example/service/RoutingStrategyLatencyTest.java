@@ -0,0 +1,169 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.ExecutionMode;
+import org.example.adapter.Adapter;
+import org.example.buffer.Body;
+import org.example.request.Method;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.example.respond.StreamedResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Closed-loop benchmark: one of four backends answers 40x slower than the others and every
+ * strategy gets the same load. Load-aware strategies should keep the slow box out of the tail.
+ */
+@Slf4j
+public class RoutingStrategyLatencyTest {
+    private static final int BACKENDS = 4;
+    private static final long FAST_MS = 5;
+    private static final long SLOW_MS = 200;
+    private static final int CLIENTS = 16;
+    private static final int REQUESTS_PER_CLIENT = 40;
+
+    @Test
+    void testLoadAwareStrategiesCutTailLatencyWithOneSlowBackend() {
+        Map<RoutingStrategy, long[]> latencies = new EnumMap<>(RoutingStrategy.class);
+        for (RoutingStrategy strategy : RoutingStrategy.values()) {
+            latencies.put(strategy, run(strategy));
+        }
+        latencies.forEach((strategy, sorted) -> log.info("{}: p50={}ms p95={}ms p99={}ms max={}ms", strategy,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), sorted[sorted.length - 1]));
+
+        long roundRobinP95 = percentile(latencies.get(RoutingStrategy.ROUND_ROBIN), 0.95);
+        assertTrue(percentile(latencies.get(RoutingStrategy.LEAST_OUTSTANDING), 0.95) * 2 < roundRobinP95);
+        assertTrue(percentile(latencies.get(RoutingStrategy.POWER_OF_TWO_CHOICES), 0.95) * 2 < roundRobinP95);
+        assertTrue(percentile(latencies.get(RoutingStrategy.PEAK_EWMA), 0.95) * 2 < roundRobinP95);
+    }
+
+    private static long[] run(RoutingStrategy strategy) {
+        List<Adapter> adapters = IntStream.range(0, BACKENDS)
+                .mapToObj(index -> (Adapter) new DelayedAdapter(index == 0 ? SLOW_MS : FAST_MS))
+                .toList();
+        RoutingService routingService = strategy.create(adapters, 5000, ExecutionMode.CONCURRENT.newExecutor("upstream"));
+        ExecutorService clients = ExecutionMode.CONCURRENT.newExecutor("client");
+        List<CompletableFuture<List<Long>>> results = new ArrayList<>();
+        for (int client = 0; client < CLIENTS; client++) {
+            results.add(CompletableFuture.supplyAsync(() -> {
+                List<Long> samples = new ArrayList<>();
+                for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                    long start = System.nanoTime();
+                    routingService.forwardRequest(new RequestImpl(Method.GET, "/", ""));
+                    samples.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+                return samples;
+            }, clients));
+        }
+        long[] sorted = results.stream().flatMap(result -> result.join().stream()).mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        clients.shutdown();
+        routingService.stop();
+        return sorted;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static class DelayedAdapter implements Adapter {
+        private final long delayMs;
+
+        DelayedAdapter(long delayMs) {
+            this.delayMs = delayMs;
+        }
+
+        private CompletableFuture<Response> delayed() {
+            return CompletableFuture.supplyAsync(() -> new Response(200, "ok", Map.of("x-server", delayMs + "ms")),
+                    CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public String name() {
+            return delayMs + "ms";
+        }
+
+        @Override
+        public Response post(String path, Body body) {
+            return delayed().join();
+        }
+
+        @Override
+        public Response get(String path) {
+            return delayed().join();
+        }
+
+        @Override
+        public Response delete(String path) {
+            return delayed().join();
+        }
+
+        @Override
+        public Response put(String path, Body body) {
+            return delayed().join();
+        }
+
+        @Override
+        public Response head(String path) {
+            return delayed().join();
+        }
+
+        @Override
+        public CompletableFuture<Response> postAsync(String path, Body body) {
+            return delayed();
+        }
+
+        @Override
+        public CompletableFuture<Response> getAsync(String path) {
+            return delayed();
+        }
+
+        @Override
+        public CompletableFuture<Response> getAsync(String path, Map<String, String> headers) {
+            return delayed();
+        }
+
+        @Override
+        public CompletableFuture<Response> deleteAsync(String path) {
+            return delayed();
+        }
+
+        @Override
+        public CompletableFuture<Response> putAsync(String path, Body body) {
+            return delayed();
+        }
+
+        @Override
+        public CompletableFuture<Response> headAsync(String path) {
+            return delayed();
+        }
+
+        @Override
+        public CompletableFuture<StreamedResponse> streamAsync(Method method, String path, InputStream body) {
+            return delayed().thenApply(StreamedResponse::of);
+        }
+
+        @Override
+        public boolean healthcheck() {
+            return true;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> healthcheckAsync(Method method, String path) {
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.adapter.Adapter;
+import org.example.request.Method;
+import org.example.request.Request;
+import org.example.request.RequestImpl;
+import org.example.respond.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+public class SmoothWeightedRoutingServiceTest {
+    private static final Request REQUEST = new RequestImpl(Method.GET, "/", "");
+
+    private SmoothWeightedRoutingServiceImpl routingService;
+
+    private SmoothWeightedRoutingServiceImpl create(int... weights) {
+        List<Adapter> adapters = IntStream.range(0, weights.length).mapToObj(index -> mock(Adapter.class)).toList();
+        routingService = new SmoothWeightedRoutingServiceImpl(adapters, weights, 1000, Executors.newSingleThreadExecutor());
+        return routingService;
+    }
+
+    private int[] picks(int count) {
+        return IntStream.range(0, count).map(sequence -> routingService.select(REQUEST, sequence, 0, 0)).toArray();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (routingService != null) {
+            routingService.stop();
+        }
+    }
+
+    @Test
+    void testPicksAreInterleaved() {
+        create(5, 1, 1);
+        assertArrayEquals(new int[]{0, 0, 1, 0, 2, 0, 0}, picks(7));
+    }
+
+    @Test
+    void testEqualWeightsBehaveLikeRoundRobin() {
+        create(2, 2, 2);
+        assertArrayEquals(new int[]{0, 1, 2, 0, 1, 2}, picks(6));
+    }
+
+    @Test
+    void testWeightChangeTakesEffectOnNextPick() {
+        create(1, 1);
+        routingService.setWeight(1, 3);
+        int[] picks = picks(4);
+        assertEquals(3, IntStream.of(picks).filter(index -> index == 1).count());
+        routingService.setWeight(0, 0);
+        IntStream.of(picks(10)).forEach(index -> assertEquals(1, index));
+    }
+
+    @Test
+    void testUnhealthyAdapterIsLeftOut() {
+        create(3, 1, 1);
+        routingService.selector.markUnhealthy(0);
+        int[] picks = picks(4);
+        assertTrue(IntStream.of(picks).noneMatch(index -> index == 0));
+        routingService.selector.markHealthy(0);
+        assertEquals(3, IntStream.of(picks(5)).filter(index -> index == 0).count());
+    }
+
+    @Test
+    void testFailoverSkipsTriedAdapters() {
+        create(5, 1, 1);
+        // the slots after the first pick of the cycle are 0 and 1
+        assertEquals(1, routingService.select(REQUEST, 0, 1, AbstractRoutingService.tried(0, 0)));
+        assertEquals(2, routingService.select(REQUEST, 0, 2, AbstractRoutingService.tried(AbstractRoutingService.tried(0, 0), 1)));
+        // with every adapter tried it picks as usual
+        assertEquals(0, routingService.select(REQUEST, 0, 3, 0b111));
+    }
+
+    @Test
+    void testFailingHeavyAdapterFailsOverToTheLightOne() {
+        Adapter light = mock(Adapter.class);
+        Adapter heavy = mock(Adapter.class);
+        when(light.getAsync(anyString())).thenReturn(completedFuture(new Response(200, "ok", Map.of("x-server", "light"))));
+        doThrow(new RuntimeException("some error")).when(heavy).getAsync(anyString());
+        routingService = new SmoothWeightedRoutingServiceImpl(List.of(light, heavy), new int[]{1, 5}, 1000,
+                Executors.newSingleThreadExecutor());
+        // the cycle is heavy heavy light heavy heavy heavy, two attempts per request
+        IntStream.range(0, 6).forEach(index -> assertEquals("light", routingService
+                .forwardRequest(new RequestImpl(Method.GET, "/", "req " + index)).headers().get("x-server")));
+        verify(heavy, times(5)).getAsync(anyString());
+    }
+
+    @Test
+    void testNoPickWhenEveryWeightIsZero() {
+        create(0, 0);
+        assertEquals(RoundRobinSelector.NONE, routingService.select(REQUEST, 0, 0, 0));
+    }
+
+    @Test
+    void testNegativeWeightsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> create(1, -1));
+    }
+}
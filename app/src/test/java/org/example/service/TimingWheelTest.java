@@ -0,0 +1,55 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+public class TimingWheelTest {
+    @Test
+    void testTimersFireAfterTheirDelay() throws InterruptedException {
+        TimingWheel wheel = new TimingWheel(10, 8);
+        long start = System.nanoTime();
+        AtomicLong firedAfterMs = new AtomicLong();
+        CountDownLatch fired = new CountDownLatch(1);
+        // longer than one revolution of the wheel
+        wheel.schedule(() -> {
+            firedAfterMs.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            fired.countDown();
+        }, 200);
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(firedAfterMs.get() >= 190, "fired after " + firedAfterMs.get());
+        wheel.stop();
+    }
+
+    @Test
+    void testManyTimersAllFire() throws InterruptedException {
+        TimingWheel wheel = new TimingWheel(10, 64);
+        int timers = 10_000;
+        CountDownLatch fired = new CountDownLatch(timers);
+        for (int i = 0; i < timers; i++) {
+            wheel.schedule(fired::countDown, i % 500);
+        }
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        wheel.stop();
+    }
+
+    @Test
+    void testFailingTimerDoesNotStopTheWheel() {
+        TimingWheel wheel = new TimingWheel(10, 8);
+        AtomicLong fired = new AtomicLong();
+        wheel.schedule(() -> {
+            throw new IllegalStateException("boom");
+        }, 0);
+        wheel.schedule(fired::incrementAndGet, 50);
+        await().atMost(Duration.ofSeconds(1)).until(() -> fired.get() == 1);
+        wheel.stop();
+    }
+}
@@ -2,6 +2,19 @@ package org.example.utils;
 
 import lombok.extern.slf4j.Slf4j;
 import org.example.Config;
+import org.example.ExecutionMode;
+import org.example.FrontEnd;
+import org.example.adapter.ConnectionPool;
+import org.example.log.AccessLog;
+import org.example.request.Method;
+import org.example.respond.ResponseCompressor;
+import org.example.server.NioHttpServer;
+import org.example.service.AdaptiveLimiter;
+import org.example.service.CoalescingRoutingService;
+import org.example.service.HashKey;
+import org.example.service.HealthChecker;
+import org.example.service.Route;
+import org.example.service.RoutingStrategy;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
@@ -76,4 +89,256 @@ public class ConfigParserTest {
         assertTrue(config.getInstances().containsKey("instance"));
         assertEquals(List.of("http://localhost:8001"), config.getInstances().get("instance"));
     }
+
+    @Test
+    void testParsingExecutionModeOption() {
+        String[] arguments = new String[]{"instance[http://localhost:8001]", "--execution-mode=serial", "hostname-1", "8001"};
+        Config config = ConfigParser.parse(arguments);
+        assertEquals(ExecutionMode.SERIAL, config.getExecutionMode());
+        assertEquals("hostname-1", config.getHostname());
+        assertEquals(8001, config.getPort());
+    }
+
+    @Test
+    void testParsingDefaultExecutionMode() {
+        String[] arguments = new String[]{"instance[http://localhost:8001]"};
+        Config config = ConfigParser.parse(arguments);
+        assertEquals(Config.DEFAULT_EXECUTION_MODE, config.getExecutionMode());
+    }
+
+    @Test
+    void testParsingInvalidExecutionMode() {
+        String[] arguments = new String[]{"instance[http://localhost:8001]", "--execution-mode=turbo"};
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(arguments));
+    }
+
+    @Test
+    void testParsingStreamingFlag() {
+        assertTrue(ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--streaming"}).isStreaming());
+        assertFalse(ConfigParser.parse(new String[]{"instance[http://localhost:8001]"}).isStreaming());
+    }
+
+    @Test
+    void testParsingInstanceWeights() {
+        String[] arguments = new String[]{"instance[http://localhost:8001=3,http://localhost:8002]"};
+        Config config = ConfigParser.parse(arguments);
+        assertEquals(List.of("http://localhost:8001", "http://localhost:8002"), config.getInstances().get("instance"));
+        assertEquals(3, config.getWeight("http://localhost:8001"));
+        assertEquals(Config.DEFAULT_WEIGHT, config.getWeight("http://localhost:8002"));
+    }
+
+    @Test
+    void testParsingInvalidInstanceWeight() {
+        String[] arguments = new String[]{"instance[http://localhost:8001=,http://localhost:8002]"};
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(arguments));
+    }
+
+    @Test
+    void testParsingHashKey() {
+        assertEquals(HashKey.PATH, ConfigParser.parse(new String[]{"instance[http://localhost:8001]"}).getHashKey());
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--routing-strategy=consistent-hash", "--hash-key=header:X-User-Id"});
+        assertEquals(RoutingStrategy.CONSISTENT_HASH, config.getRoutingStrategy());
+        assertEquals(new HashKey(HashKey.Source.HEADER, "X-User-Id"), config.getHashKey());
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--hash-key=cookie"}));
+    }
+
+    @Test
+    void testParsingHealthCheckOptions() {
+        Config defaults = ConfigParser.parse(new String[]{"instance[http://localhost:8001]"});
+        assertEquals(HealthChecker.DEFAULT_METHOD, defaults.getHealthCheckMethod());
+        assertEquals(HealthChecker.DEFAULT_PATH, defaults.getHealthCheckPath());
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--health-check-method=head",
+                "--health-check-path=/health", "--health-check-interval-ms=500", "--health-check-timeout-ms=200",
+                "--health-check-max-backoff-ms=10000"});
+        assertEquals(Method.HEAD, config.getHealthCheckMethod());
+        assertEquals("/health", config.getHealthCheckPath());
+        assertEquals(500, config.getHealthCheckIntervalMs());
+        assertEquals(200, config.getHealthCheckTimeoutMs());
+        assertEquals(10000, config.getHealthCheckMaxBackoffMs());
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--health-check-path=health"}));
+    }
+
+    @Test
+    void testParsingCircuitBreakerOptions() {
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--breaker-failure-rate=25",
+                "--breaker-slow-call-rate=90", "--breaker-slow-call-ms=300", "--breaker-minimum-calls=5",
+                "--breaker-window-ms=2000", "--breaker-half-open-calls=1"});
+        assertEquals(25, config.getBreakerFailureRateThreshold());
+        assertEquals(90, config.getBreakerSlowCallRateThreshold());
+        assertEquals(300, config.getBreakerSlowCallDurationMs());
+        assertEquals(5, config.getBreakerMinimumCalls());
+        assertEquals(2000, config.getBreakerWindowMs());
+        assertEquals(1, config.getBreakerHalfOpenCalls());
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--breaker-failure-rate=150"}));
+        // a half-open breaker without trial calls would never close again
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--breaker-half-open-calls=0"}));
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--breaker-minimum-calls=0"}));
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--breaker-minimum-calls=4294967297"}));
+    }
+
+    @Test
+    void testParsingHedgeOptions() {
+        Config defaults = ConfigParser.parse(new String[]{"instance[http://localhost:8001]"});
+        assertEquals(0, defaults.getHedgeDelayMs());
+        assertEquals(0.0, defaults.getHedgePercentile());
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--hedge-delay-ms=20",
+                "--hedge-percentile=99.5", "--hedge-budget-percent=10"});
+        assertEquals(20, config.getHedgeDelayMs());
+        assertEquals(99.5, config.getHedgePercentile());
+        assertEquals(10, config.getHedgeBudgetPercent());
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--hedge-percentile=100"}));
+    }
+
+    @Test
+    void testParsingRetryOptions() {
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--retry-max=1",
+                "--retry-backoff-ms=5", "--retry-max-backoff-ms=50", "--retry-budget-percent=10"});
+        assertEquals(1, config.getRetryMaxRetries());
+        assertEquals(5, config.getRetryBackoffMs());
+        assertEquals(50, config.getRetryMaxBackoffMs());
+        assertEquals(10, config.getRetryBudgetPercent());
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--retry-max=-1"}));
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--retry-max=2147483648"}));
+    }
+
+    @Test
+    void testParsingCacheSize() {
+        assertEquals(0, ConfigParser.parse(new String[]{"instance[http://localhost:8001]"}).getCacheMaxBytes());
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--cache-max-bytes=67108864"});
+        assertEquals(67108864, config.getCacheMaxBytes());
+    }
+
+    @Test
+    void testParsingCoalesceOptions() {
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]"});
+        assertFalse(config.isCoalesce());
+        assertEquals(CoalescingRoutingService.DEFAULT_WAIT_MS, config.getCoalesceWaitMs());
+        config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--coalesce", "--coalesce-wait-ms=200"});
+        assertTrue(config.isCoalesce());
+        assertEquals(200, config.getCoalesceWaitMs());
+    }
+
+    @Test
+    void testParsingRetryLimitsPerRoute() {
+        Config config = ConfigParser.parse(new String[]{"api[http://localhost:8001];web[http://localhost:9001]",
+                "--routes=/api=api;retry-max=0,/v2/api=api;retry-max=0,/=web", "--retry-max=3", "--retry-budget-percent=30"});
+        Config api = config.forGroup("api");
+        assertEquals(0, api.getRetryMaxRetries());
+        assertEquals(30, api.getRetryBudgetPercent());
+        assertSame(config, config.forGroup("web"));
+        assertEquals(3, config.forGroup("web").getRetryMaxRetries());
+
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"api[http://localhost:8001]",
+                "--routes=/api=api;retry-max=1,/v2/api=api"}));
+    }
+
+    @Test
+    void testParsingInstanceGroupsAndRoutes() {
+        Config config = ConfigParser.parse(new String[]{"api[http://localhost:8001=2,http://localhost:8002];web[http://localhost:9001]",
+                "--routes=/api=api, static.example.com/=web"});
+        assertEquals(List.of("api", "web"), List.copyOf(config.getInstances().keySet()));
+        assertEquals(List.of("http://localhost:9001"), config.getInstances().get("web"));
+        assertEquals(2, config.getWeight("http://localhost:8001"));
+        assertEquals(List.of(new Route(null, "/api", "api"), new Route("static.example.com", "/", "web")), config.getRoutes());
+
+        assertTrue(ConfigParser.parse(new String[]{"instance[http://localhost:8001]"}).getRoutes().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"api[http://localhost:8001]", "--routes=/=web"}));
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"api[http://localhost:8001];api[http://localhost:8002]"}));
+    }
+
+    @Test
+    void testParsingFrontEndOptions() {
+        Config defaults = ConfigParser.parse(new String[]{"instance[http://localhost:8001]"});
+        assertEquals(FrontEnd.HTTP_SERVER, defaults.getFrontEnd());
+        assertEquals(NioHttpServer.DEFAULT_EVENT_LOOPS, defaults.getEventLoops());
+        assertEquals(NioHttpServer.DEFAULT_MAX_REQUEST_BYTES, defaults.getMaxRequestBytes());
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--front-end=nio",
+                "--event-loops=2", "--max-request-bytes=65536"});
+        assertEquals(FrontEnd.NIO, config.getFrontEnd());
+        assertEquals(2, config.getEventLoops());
+        assertEquals(65536, config.getMaxRequestBytes());
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--event-loops=0"}));
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--front-end=nio", "--streaming"}));
+    }
+
+    @Test
+    void testParsingPoolOptions() {
+        Config defaults = ConfigParser.parse(new String[]{"instance[http://localhost:8001]"});
+        assertEquals(ConnectionPool.DEFAULT_MAX_CONNECTIONS, defaults.getPoolMaxConnections());
+        assertEquals(ConnectionPool.DEFAULT_MIN_CONNECTIONS, defaults.getPoolMinConnections());
+        assertEquals(ConnectionPool.DEFAULT_IDLE_TIMEOUT_MS, defaults.getPoolIdleTimeoutMs());
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--pool-max-connections=64",
+                "--pool-min-connections=4", "--pool-idle-timeout-ms=90000", "--pool-max-lifetime-ms=600000", "--pool-keep-alive-ms=15000"});
+        assertEquals(64, config.getPoolMaxConnections());
+        assertEquals(4, config.getPoolMinConnections());
+        assertEquals(90000, config.getPoolIdleTimeoutMs());
+        assertEquals(600000, config.getPoolMaxLifetimeMs());
+        assertEquals(15000, config.getPoolKeepAliveMs());
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--pool-idle-timeout-ms=10"}));
+    }
+
+    @Test
+    void testParsingConcurrencyLimitOptions() {
+        Config defaults = ConfigParser.parse(new String[]{"instance[http://localhost:8001]"});
+        assertFalse(defaults.isConcurrencyLimit());
+        assertEquals(AdaptiveLimiter.DEFAULT_INITIAL_LIMIT, defaults.getConcurrencyLimitInitial());
+        assertEquals(AdaptiveLimiter.DEFAULT_MAX_LIMIT, defaults.getConcurrencyLimitMax());
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--concurrency-limit",
+                "--concurrency-limit-initial=50", "--concurrency-limit-max=400"});
+        assertTrue(config.isConcurrencyLimit());
+        assertEquals(50, config.getConcurrencyLimitInitial());
+        assertEquals(400, config.getConcurrencyLimitMax());
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--concurrency-limit-max=0"}));
+    }
+
+    @Test
+    void testParsingRateLimitOptions() {
+        Config defaults = ConfigParser.parse(new String[]{"instance[http://localhost:8001]"});
+        assertEquals(0, defaults.getRateLimit());
+        assertEquals(HashKey.CLIENT, defaults.getRateLimitKey());
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--rate-limit=100",
+                "--rate-limit-burst=200", "--rate-limit-key=header:X-Api-Key", "--rate-limit-max-keys=100000"});
+        assertEquals(100, config.getRateLimit());
+        assertEquals(200, config.getRateLimitBurst());
+        assertEquals(new HashKey(HashKey.Source.HEADER, "X-Api-Key"), config.getRateLimitKey());
+        assertEquals(100000, config.getRateLimitMaxKeys());
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--rate-limit-key=header"}));
+    }
+
+    @Test
+    void testParsingAdminPort() {
+        assertEquals(0, ConfigParser.parse(new String[]{"instance[http://localhost:8001]"}).getAdminPort());
+        assertEquals(9090, ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--admin-port=9090"}).getAdminPort());
+    }
+
+    @Test
+    void testParsingCompressionOptions() {
+        Config defaults = ConfigParser.parse(new String[]{"instance[http://localhost:8001]"});
+        assertFalse(defaults.isCompress());
+        assertEquals(ResponseCompressor.DEFAULT_MIN_BYTES, defaults.getCompressMinBytes());
+        assertEquals(ResponseCompressor.DEFAULT_CONTENT_TYPES, defaults.getCompressTypes());
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--compress", "--compress-min-bytes=256",
+                "--compress-types=application/json, text/*"});
+        assertTrue(config.isCompress());
+        assertEquals(256, config.getCompressMinBytes());
+        assertEquals(List.of("application/json", "text/*"), config.getCompressTypes());
+        assertThrows(IllegalArgumentException.class, () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--compress-types=,"}));
+    }
+
+    @Test
+    void testParsingAccessLogOptions() {
+        Config defaults = ConfigParser.parse(new String[]{"instance[http://localhost:8001]"});
+        assertNull(defaults.getAccessLog());
+        assertEquals(AccessLog.DEFAULT_CAPACITY, defaults.getAccessLogCapacity());
+        assertEquals(AccessLog.DEFAULT_MAX_FILE_BYTES, defaults.getAccessLogMaxBytes());
+        assertEquals(AccessLog.DEFAULT_MAX_FILES, defaults.getAccessLogMaxFiles());
+        Config config = ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--access-log=/var/log/proxy/access.log",
+                "--access-log-capacity=1024", "--access-log-max-bytes=1048576", "--access-log-max-files=3"});
+        assertEquals("/var/log/proxy/access.log", config.getAccessLog());
+        assertEquals(1024, config.getAccessLogCapacity());
+        assertEquals(1048576, config.getAccessLogMaxBytes());
+        assertEquals(3, config.getAccessLogMaxFiles());
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigParser.parse(new String[]{"instance[http://localhost:8001]", "--access-log-max-files=0"}));
+    }
 }